@@ -1,20 +1,17 @@
 package gc01.cw.robf.controller;
 
-import java.io.IOException;
-
-import gc01.cw.robf.model.UserModel;
-import gc01.cw.robf.utility.FileXmlHandler;
+import gc01.cw.robf.store.StartupLoader;
+import gc01.cw.robf.store.StoreRegistry;
+import gc01.cw.robf.utility.BootImage;
+import gc01.cw.robf.utility.PersistenceExecutor;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
-import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
 /**
  * AppDriver serves as the driver class containing the main method for OrdoGrub.
- * Its functionality is limited to loading menus, users and prior orders from
- * file and displaying the login view. Extends JavaFX Application class to
- * instantiate first stage.
+ * Its functionality is limited to starting to load menus, users and prior
+ * orders from file and displaying the login view while they load. Extends
+ * JavaFX Application class to instantiate first stage.
  * 
  * @author Rob Farthing
  * @version 1.0.0
@@ -22,58 +19,59 @@ import javafx.stage.Stage;
  */
 public class AppDriver extends Application {
 
-	// paths to data files
-	private static String userFilePath = "./data/users.xml";
-	private static String orderFilePath = "./data/orders.xml";
-	private static String menuFilePath = "./data/menuItems.xml";
+	// storage engines and data file paths
+	private static String configFilePath = "./data/ordogrub.properties";
 
 	/*
-	 * Overridden JavaFX Application start method which loads LoginView FXML and
-	 * applies basic formatting.
+	 * Overridden JavaFX Application start method which shows the Login view in
+	 * the primary stage with basic formatting. The view is kept by ViewCache
+	 * for later logins.
 	 * 
 	 * @see javafx.application.Application#start(javafx.stage.Stage)
 	 */
 	@Override
 	public void start(Stage loginViewStage) {
+		ViewCache.showPrimary(loginViewStage, ViewCache.LOGIN_VIEW, "Login");
+	}
 
-		loginViewStage.setTitle("Login");
+	/*
+	 * Overridden JavaFX Application stop method which moves closed orders to
+	 * the order archive, runs every save still waiting on the persistence
+	 * thread and closes the order and log stores so that anything still
+	 * waiting is saved before exit. Then writes the boot image used by the
+	 * next launch.
+	 * 
+	 * @see javafx.application.Application#stop()
+	 */
+	@Override
+	public void stop() {
+		StartupLoader.getOrdersLoaded().join();
+		StoreRegistry.getOrderStore().archiveClosedOrders(StoreRegistry.getOrderArchive());
+
+		PersistenceExecutor.shutdown();
+		StoreRegistry.getOrderStore().close();
+		StoreRegistry.getLogStore().close();
 
-		// Open FXML and load
-		FXMLLoader loginViewLoader = new FXMLLoader(getClass().getResource("/gc01/cw/robf/view/LoginView.fxml"));
-		Scene loginViewScene;
-		try {
-			loginViewScene = new Scene(loginViewLoader.load());
-			String baseCss = this.getClass().getResource("/gc01/cw/robf/view/base.css").toExternalForm();
-			loginViewScene.getStylesheets().addAll(baseCss);
-			loginViewStage.setScene(loginViewScene);
-			loginViewStage.getIcons().add(new Image("file:./static/OrdoGrubLogo.png"));
-			loginViewStage.show();
-		} catch (IOException e) {
-			e.printStackTrace();
+		String bootImageFilePath = StoreRegistry.getBootImageFilePath();
+		if (bootImageFilePath != null) {
+			BootImage.save(bootImageFilePath, StoreRegistry.getBootImageSources());
 		}
 	}
 
 	/**
-	 * Main method. Sets temporary pre-login user and loads menu, orders, and
-	 * users from XML files using the XML handler utility. Calls launch method
-	 * on JavaFX Application class which loads overridden start method.
+	 * Main method. Creates the stores described by the configuration file and
+	 * starts loading menu, orders and users from them in the background,
+	 * moving closed orders to the order archive and opening the activity log
+	 * store. Calls launch method on JavaFX Application class which loads
+	 * overridden start method while orders are still loading.
 	 * 
 	 * @param args
 	 *            Unused
 	 */
 	public static void main(String[] args) {
-		// set a fake user to prevent null pointer exceptions when order file
-		// loader looks for users
-		UserModel preLoginUser = new UserModel("Pre-login User", "preLoginUser", "", UserModel.UserType.BLOCKED);
-		UserModel.setCurrentUser(preLoginUser);
-
-		// Load data from files with overwriting enabled
-		FileXmlHandler.loadMenuItems(menuFilePath, true);
-		FileXmlHandler.loadOrders(orderFilePath, true);
-
-		// load users from file with overwriting and clear preLoginUser
-		FileXmlHandler.loadUsers(userFilePath, true);
-		UserModel.setCurrentUser(null);
+		// Load data from the configured stores, replacing anything in memory
+		StoreRegistry.configure(configFilePath);
+		StartupLoader.start();
 
 		launch(args);
 	}
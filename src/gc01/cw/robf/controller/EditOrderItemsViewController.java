@@ -4,10 +4,13 @@ import java.util.ArrayList;
 
 import gc01.cw.robf.model.LogModel;
 import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.model.OrderLineModel;
 import gc01.cw.robf.model.OrderModel;
 import gc01.cw.robf.model.UserModel;
-import gc01.cw.robf.utility.FileXmlHandler;
-import gc01.cw.robf.utility.XmlCustomLogger;
+import gc01.cw.robf.store.LogStore;
+import gc01.cw.robf.store.OrderStore;
+import gc01.cw.robf.store.StoreRegistry;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
@@ -27,8 +30,10 @@ import javafx.stage.Stage;
 /**
  * Controller for the edit order items interface. Allows user to choose a Menu
  * category and displays click-able items from that category to be added to the
- * current order. Displays order items in an un-editable tableView. Uses FXML
- * template. Also allows user to delete existing items from order.
+ * current order. Displays order lines, one for each item with its quantity, in
+ * an un-editable tableView. Uses FXML template. Also allows user to delete
+ * existing items from order, one at a time from the selected line. Kept by
+ * ViewCache and bound to the current order each time it is shown.
  * <p>
  * TableView adapted from
  * http://docs.oracle.com/javafx/2/ui_controls/table-view.htm
@@ -37,21 +42,21 @@ import javafx.stage.Stage;
  * @version 1.0.0
  *
  */
-public class EditOrderItemsViewController {
+public class EditOrderItemsViewController implements RefreshableView {
 
 	private boolean modTag;
-	private TableView<MenuItemModel> editOrdersTable = new TableView<>();
+	private TableView<OrderLineModel> editOrdersTable = new TableView<>();
 	private Stage ordersViewStage;
 	private ArrayList<Button> starterMenuButtons;
 	private ArrayList<Button> mainMenuButtons;
 	private ArrayList<Button> dessertMenuButtons;
 	private ArrayList<Button> sideMenuButtons;
 	private ArrayList<Button> drinkMenuButtons;
-	private String orderFilePath = "./data/orders.xml";
-	private String logFilePath = "./data/activityLog.xml";
+	private OrderStore orderStore = StoreRegistry.getOrderStore();
+	private LogStore logStore = StoreRegistry.getLogStore();
 
-	private ObservableList<MenuItemModel> orderMenuItems;
-	private ObservableList<MenuItemModel> existingMenuItems;
+	private ObservableList<OrderLineModel> orderLines;
+	private ArrayList<OrderLineModel> existingLines;
 
 	private static ObservableList<MenuItemModel> menuItemList = FXCollections.observableArrayList();
 
@@ -84,7 +89,8 @@ public class EditOrderItemsViewController {
 
 	/**
 	 * Method triggered when user presses Save button. If items have been
-	 * modified, saves orders to file and closes view.
+	 * modified, saves the order items to the order store and closes view
+	 * once they are saved.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -92,19 +98,31 @@ public class EditOrderItemsViewController {
 	@FXML
 	public void save(ActionEvent event) {
 
+		ordersViewStage = (Stage) cancelButton.getScene().getWindow();
+
 		if (modTag) {
-			// save order to file
-			FileXmlHandler.saveOrders(orderFilePath, OrderModel.getOrderList());
-			XmlCustomLogger.writeLogLine(logFilePath,
-					new LogModel(UserModel.getCurrentUser().getUsername(),
-							"Order menu items modified for order opened on "
-									+ OrderModel.getCurrentOrder().getDateOpened() + " on Table "
-									+ OrderModel.getCurrentOrder().getTableNumber() + "."));
+			logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(),
+					"Order menu items modified for order opened on " + OrderModel.getCurrentOrder().getDateOpened()
+							+ " on Table " + OrderModel.getCurrentOrder().getTableNumber() + "."));
+
+			// save the new items and close Orders View once saved
+			statusLabel.setText("Saving...");
+			cancelButton.setDisable(true);
+
+			// futures may complete on another thread
+			orderStore.itemsChanged(OrderModel.getCurrentOrder())
+					.whenComplete((result, error) -> Platform.runLater(() -> {
+						if (error == null) {
+							ordersViewStage.close();
+						} else {
+							statusLabel.setText("Items could not be saved");
+							cancelButton.setDisable(false);
+						}
+					}));
+		} else {
+			// close Orders View
+			ordersViewStage.close();
 		}
-
-		// close Orders View
-		ordersViewStage = (Stage) cancelButton.getScene().getWindow();
-		ordersViewStage.close();
 	}
 
 	/**
@@ -117,8 +135,8 @@ public class EditOrderItemsViewController {
 	@FXML
 	public void cancel(ActionEvent event) {
 
-		// restore menu items as they were
-		orderMenuItems.setAll(existingMenuItems);
+		// restore order lines as they were
+		OrderModel.getCurrentOrder().setLines(existingLines);
 
 		// close Orders View
 		ordersViewStage = (Stage) cancelButton.getScene().getWindow();
@@ -126,8 +144,8 @@ public class EditOrderItemsViewController {
 	}
 
 	/**
-	 * Method triggered when user presses Delete button. Removes item selected
-	 * in tableView.
+	 * Method triggered when user presses Delete button. Removes one item from
+	 * the line selected in tableView, and the line if it was the last one.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -135,14 +153,16 @@ public class EditOrderItemsViewController {
 	@FXML
 	public void delete(ActionEvent event) {
 		statusLabel.setText("");
-		ObservableList<MenuItemModel> menuItemsSelected = editOrdersTable.getSelectionModel().getSelectedItems();
+		// copied as removing items changes the selection
+		ArrayList<OrderLineModel> linesSelected = new ArrayList<>(
+				editOrdersTable.getSelectionModel().getSelectedItems());
 
-		if (menuItemsSelected.isEmpty()) {
+		if (linesSelected.isEmpty()) {
 			statusLabel.setText("Select a menu item to delete");
 		} else {
-			for (MenuItemModel menuItemSelected : menuItemsSelected) {
+			for (OrderLineModel lineSelected : linesSelected) {
 				modTag = true;
-				orderMenuItems.remove(menuItemSelected);
+				OrderModel.getCurrentOrder().removeItem(lineSelected);
 			}
 		}
 
@@ -219,25 +239,78 @@ public class EditOrderItemsViewController {
 	}
 
 	/**
-	 * Method automatically called by JavaFX Application class when loading a
-	 * view. Initialises buttons for each menu item and their EventHandlers.
-	 * Also initialises the tableView of items in the current order and adds it
-	 * to the view.
+	 * Method called by ViewCache before the view is shown. Binds the tableView
+	 * to the items in the current order, keeping a copy to restore if the
+	 * changes are cancelled, and creates buttons for each menu item, as the
+	 * menu may have changed since the view was last shown.
 	 */
-	public void initialize() {
+	@Override
+	public void refresh() {
+		modTag = false;
+		statusLabel.setText("");
+		cancelButton.setDisable(false);
 
 		// get the current order
-		orderMenuItems = OrderModel.getCurrentOrder().getItemList();
+		orderLines = OrderModel.getCurrentOrder().getLineList();
+
+		// add to a new list so it can be restored if we close the window
+		existingLines = new ArrayList<>(orderLines);
 
-		// add to a new ObservableList so it can be restored if we close the
-		// window
-		existingMenuItems = FXCollections.observableArrayList();
-		existingMenuItems.setAll(orderMenuItems);
+		editOrdersTable.setItems(orderLines);
+		editOrdersTable.getSelectionModel().clearSelection();
+
+		createMenuButtons();
+		menuTilePane.getChildren().clear();
+	}
+
+	/**
+	 * Method automatically called by JavaFX Application class when loading a
+	 * view. Initialises the tableView of items in the current order and adds
+	 * it to the view. The items and the menu item buttons are filled in by
+	 * refresh.
+	 */
+	public void initialize() {
 
 		// initialise tile pane containing menu selector
 		menuTilePane.setHgap(30);
 		menuTilePane.setVgap(30);
 
+		// initialise table view
+		// sort out table
+		Parent root = cancelButton.getParent();
+		Pane tablePane = (Pane) ((AnchorPane) root).lookup("#tablePane");
+
+		editOrdersTable.setEditable(false);
+		editOrdersTable.setPrefWidth(tablePane.getPrefWidth());
+		editOrdersTable.setPrefHeight(tablePane.getPrefHeight());
+
+		TableColumn<OrderLineModel, Integer> quantityCol = new TableColumn<>("Qty");
+		quantityCol.setCellValueFactory(new PropertyValueFactory<OrderLineModel, Integer>("quantity"));
+
+		TableColumn<OrderLineModel, MenuItemModel.ItemType> menuTypeCol = new TableColumn<>("Type");
+		menuTypeCol.setCellValueFactory(new PropertyValueFactory<OrderLineModel, MenuItemModel.ItemType>("type"));
+
+		TableColumn<OrderLineModel, String> nameCol = new TableColumn<>("Name");
+		nameCol.setCellValueFactory(new PropertyValueFactory<OrderLineModel, String>("name"));
+
+		TableColumn<OrderLineModel, String> descriptionCol = new TableColumn<>("Description");
+		descriptionCol.setCellValueFactory(new PropertyValueFactory<OrderLineModel, String>("description"));
+
+		// price each when the line was first added
+		TableColumn<OrderLineModel, Double> priceCol = new TableColumn<>("Price");
+		priceCol.setCellValueFactory(new PropertyValueFactory<OrderLineModel, Double>("unitPrice"));
+
+		editOrdersTable.getColumns().addAll(quantityCol, menuTypeCol, nameCol, descriptionCol, priceCol);
+
+		// add table to existing pane
+		tablePane.getChildren().addAll(editOrdersTable);
+
+	}
+
+	/*
+	 * Creates the buttons for each menu item, sorted by menu item type.
+	 */
+	private void createMenuButtons() {
 		// create arraylist of buttons for each menu item enum type
 		// STARTER, MAIN, DESSERT, SIDE, DRINK;
 		starterMenuButtons = new ArrayList<>();
@@ -253,6 +326,8 @@ public class EditOrderItemsViewController {
 			Button button = new Button(item.getName());
 			button.setPrefWidth(100);
 			button.setPrefHeight(100);
+			// menu item is found by ID when the button is clicked
+			button.setUserData(item.getItemId());
 
 			// add event handler that adds menu item to current order when
 			// clicked
@@ -261,65 +336,33 @@ public class EditOrderItemsViewController {
 				public void handle(ActionEvent e) {
 					statusLabel.setText("");
 					Button clickedButton = (Button) e.getSource();
-					String clickedItemName = clickedButton.getText();
+					MenuItemModel menuItem = MenuItemModel.getMenuItemById((Long) clickedButton.getUserData());
 
-					for (MenuItemModel menuItem : menuItemList) {
-						if (menuItem.getName().equals(clickedItemName)) {
-							orderMenuItems.add(menuItem);
-							modTag = true;
-							break;
-						}
+					if (menuItem != null) {
+						OrderModel.getCurrentOrder().addItem(menuItem);
+						modTag = true;
 					}
 				}
 			});
 
 			switch (item.getType()) {
-			case "STARTER":
+			case STARTER:
 				starterMenuButtons.add(button);
 				break;
-			case "MAIN":
+			case MAIN:
 				mainMenuButtons.add(button);
 				break;
-			case "DESSERT":
+			case DESSERT:
 				dessertMenuButtons.add(button);
 				break;
-			case "SIDE":
+			case SIDE:
 				sideMenuButtons.add(button);
 				break;
-			case "DRINK":
+			case DRINK:
 				drinkMenuButtons.add(button);
 				break;
 			}
 		}
-
-		// initialise table view
-		// sort out table
-		Parent root = cancelButton.getParent();
-		Pane tablePane = (Pane) ((AnchorPane) root).lookup("#tablePane");
-
-		editOrdersTable.setEditable(false);
-		editOrdersTable.setPrefWidth(tablePane.getPrefWidth());
-		editOrdersTable.setPrefHeight(tablePane.getPrefHeight());
-
-		TableColumn<MenuItemModel, MenuItemModel.ItemType> menuTypeCol = new TableColumn<>("Type");
-		menuTypeCol.setCellValueFactory(new PropertyValueFactory<MenuItemModel, MenuItemModel.ItemType>("type"));
-
-		TableColumn<MenuItemModel, String> nameCol = new TableColumn<>("Name");
-		nameCol.setCellValueFactory(new PropertyValueFactory<MenuItemModel, String>("name"));
-
-		TableColumn<MenuItemModel, String> descriptionCol = new TableColumn<>("Description");
-		descriptionCol.setCellValueFactory(new PropertyValueFactory<MenuItemModel, String>("description"));
-
-		TableColumn<MenuItemModel, Double> priceCol = new TableColumn<>("Price");
-		priceCol.setCellValueFactory(new PropertyValueFactory<MenuItemModel, Double>("price"));
-
-		editOrdersTable.getColumns().addAll(menuTypeCol, nameCol, descriptionCol, priceCol);
-
-		// add table to existing pane
-		tablePane.getChildren().addAll(editOrdersTable);
-
-		editOrdersTable.setItems(orderMenuItems);
-
 	}
 
 }
@@ -1,10 +1,8 @@
 package gc01.cw.robf.controller;
 
 import gc01.cw.robf.model.LogModel;
-import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
+import gc01.cw.robf.utility.SearchFilter;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -21,7 +19,8 @@ import javafx.stage.Stage;
 
 /**
  * Controller for the log view interface. Displays list of log items for
- * selected user. Includes filter for search. Uses FXML template.
+ * selected user. Includes filter for search. Uses FXML template. Kept by
+ * ViewCache and refreshed each time it is shown.
  * <p>
  * TableView adapted from
  * http://docs.oracle.com/javafx/2/ui_controls/table-view.htm
@@ -33,11 +32,12 @@ import javafx.stage.Stage;
  * @version 1.0.0
  *
  */
-public class LogViewController {
+public class LogViewController implements RefreshableView {
 
 	private Stage logViewStage;
 	private TableView<LogModel> logTable = new TableView<>();
 	private ObservableList<LogModel> logList;
+	private SearchFilter<LogModel> logSearch;
 
 	@FXML
 	private TextField filterTextField;
@@ -61,6 +61,17 @@ public class LogViewController {
 		logViewStage.close();
 	}
 
+	/**
+	 * Method called by ViewCache before the view is shown. Clears the filter.
+	 * The tableView shows the selected log list, so is already up to date.
+	 */
+	@Override
+	public void refresh() {
+		filterTextField.clear();
+		statusLabel.setText(null);
+		logTable.getSelectionModel().clearSelection();
+	}
+
 	/**
 	 * Method automatically called by JavaFX Application class when loading a
 	 * view. Initialises the tableView of log items for the selected user. Sets
@@ -92,39 +103,14 @@ public class LogViewController {
 		// add table to existing pane
 		tablePane.getChildren().addAll(logTable);
 
-		// Wrap the ObservableList in a FilteredList and initially show all data
-		FilteredList<LogModel> filteredLogList = new FilteredList<>(logList, null);
-
-		filterTextField.textProperty().addListener(new ChangeListener<String>() {
-
-			@Override
-			public void changed(ObservableValue<? extends String> observable, String oldValue, String newValue) {
-
-				// using Java 8 lambda notation
-				filteredLogList.setPredicate(logItem -> {
-					// If filter text is empty, display all values
-					if (newValue == null || newValue.isEmpty()) {
-						return true;
-					}
-
-					// filter on username, description and message columns
-					String lowerCaseFilter = newValue.toLowerCase();
-
-					if (logItem.getUsername().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (logItem.getDateTime().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (logItem.getMessage().toString().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					}
-					return false; // Does not match
-				});
-
-			}
-		});
+		// filter on the cached username, date/time and message of each log
+		// item
+		logSearch = new SearchFilter<>(logList, logItem -> logItem.getUsername() + "\n" + logItem.getDateTime()
+				+ "\n" + logItem.getMessage());
+		logSearch.bind(filterTextField.textProperty());
 
 		// Wrap the FilteredList in a SortedList.
-		SortedList<LogModel> sortedLogList = new SortedList<>(filteredLogList);
+		SortedList<LogModel> sortedLogList = new SortedList<>(logSearch.getFilteredList());
 
 		// Bind the SortedList comparator to the TableView comparator.
 		sortedLogList.comparatorProperty().bind(logTable.comparatorProperty());
@@ -4,7 +4,10 @@ import java.io.IOException;
 
 import gc01.cw.robf.model.LogModel;
 import gc01.cw.robf.model.UserModel;
-import gc01.cw.robf.utility.XmlCustomLogger;
+import gc01.cw.robf.store.LogStore;
+import gc01.cw.robf.store.StartupLoader;
+import gc01.cw.robf.store.StoreRegistry;
+import javafx.application.Platform;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -13,24 +16,24 @@ import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
-import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
 /**
  * Controller for the login application interface. Prompts user for user-name
- * and password credentials and loads Main view if authenticated. Uses FXML
- * template.
+ * and password credentials and loads Main view if authenticated, once orders
+ * have finished loading. Uses FXML template. Kept by ViewCache and shown again
+ * on logout.
  * 
  * @author Rob Farthing
  * @version 1.0.0
  *
  */
-public class LoginViewController {
+public class LoginViewController implements RefreshableView {
 
 	private Stage loginViewStage;
 	private Stage mainViewStage;
 	private ObservableList<UserModel> userList;
-	private String logFilePath = "./data/activityLog.xml";
+	private LogStore logStore = StoreRegistry.getLogStore();
 
 	@FXML
 	private Label lblStatus;
@@ -47,13 +50,16 @@ public class LoginViewController {
 	/**
 	 * Method triggered when user presses Login button. Checks entered user
 	 * credentials. If authenticated and not a BLOCKED user, sets currentUser
-	 * and loads the Main view. Otherwise displays error.
+	 * and loads the Main view once orders have loaded. Otherwise displays
+	 * error.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
 	 */
 	@FXML
 	public void login(ActionEvent event) {
+		// users are loaded in the background at startup
+		StartupLoader.awaitUsers();
 		userList = UserModel.getUserList();
 
 		boolean validLogin = false;
@@ -61,7 +67,7 @@ public class LoginViewController {
 		// check whether the user is authenticated and prevent blocked users
 		// from logging in
 		for (UserModel user : userList) {
-			if (!user.getType().equals(UserModel.UserType.BLOCKED.toString())
+			if (user.getType() != UserModel.UserType.BLOCKED
 					&& user.getUsername().equals(txtUsername.getText())
 					&& user.getPassword().equals(txtPassword.getText())) {
 				validLogin = true;
@@ -70,36 +76,69 @@ public class LoginViewController {
 		}
 
 		if (validLogin == true) {
-			XmlCustomLogger.writeLogLine(logFilePath,
-					new LogModel(UserModel.getCurrentUser().getUsername(), "User successfully logged in."));
-
-			// close the login window
-			loginViewStage = (Stage) loginButton.getScene().getWindow();
-			loginViewStage.close();
-
-			// start the main window
-			mainViewStage = new Stage();
-			mainViewStage.setTitle("OrdoGrub");
-
-			// Open FXML and load
-			FXMLLoader mainViewLoader = new FXMLLoader(getClass().getResource("/gc01/cw/robf/view/MainView.fxml"));
-			Scene mainViewScene;
-			try {
-				mainViewScene = new Scene(mainViewLoader.load());
-				String baseCss = this.getClass().getResource("/gc01/cw/robf/view/base.css").toExternalForm();
-				mainViewScene.getStylesheets().addAll(baseCss);
-				mainViewStage.setScene(mainViewScene);
-				mainViewStage.getIcons().add(new Image("file:./static/OrdoGrubLogo.png"));
-				mainViewStage.show();
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+			logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(), "User successfully logged in."));
+
+			// orders may still be loading in the background
+			lblStatus.setText("Loading orders...");
+			loginButton.setDisable(true);
+
+			// the future may complete on a loader thread
+			StartupLoader.getOrdersLoaded().thenRun(() -> Platform.runLater(() -> showMainView()));
 		} else {
-			XmlCustomLogger.writeLogLine(logFilePath, new LogModel("unknown",
+			logStore.write(new LogModel("unknown",
 					"User unsuccessfully attempted to log in with username \"" + txtUsername.getText() + "\"."));
 
 			lblStatus.setText("Login failed, try again.");
 		}
 	}
 
+	/*
+	 * Closes the Login view and loads the Main view.
+	 */
+	private void showMainView() {
+		// close the login window
+		loginViewStage = (Stage) loginButton.getScene().getWindow();
+		loginViewStage.close();
+
+		// start the main window
+		mainViewStage = new Stage();
+		mainViewStage.setTitle("OrdoGrub");
+
+		// Open FXML and load
+		FXMLLoader mainViewLoader = new FXMLLoader(getClass().getResource("/gc01/cw/robf/view/MainView.fxml"));
+		Scene mainViewScene;
+		try {
+			mainViewScene = new Scene(mainViewLoader.load());
+			mainViewScene.getStylesheets().addAll(ViewCache.getBaseCss());
+			mainViewStage.setScene(mainViewScene);
+			mainViewStage.getIcons().add(ViewCache.getLogo());
+			mainViewStage.show();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		// load the views opened from the Main view once it has been drawn, so
+		// that they open straight away when first needed
+		boolean manager = UserModel.getCurrentUser().getType() == UserModel.UserType.MANAGER;
+		Platform.runLater(() -> {
+			ViewCache.preload(ViewCache.MANAGE_ORDERS_VIEW, ViewCache.EDIT_ORDER_ITEMS_VIEW);
+			if (manager) {
+				ViewCache.preload(ViewCache.MANAGE_USERS_VIEW, ViewCache.MANAGE_MENU_ITEMS_VIEW, ViewCache.LOG_VIEW);
+			}
+		});
+	}
+
+	/**
+	 * Method called by ViewCache before the view is shown. Clears the
+	 * credentials and status of the last login.
+	 */
+	@Override
+	public void refresh() {
+		txtUsername.clear();
+		txtPassword.clear();
+		lblStatus.setText(null);
+		loginButton.setDisable(false);
+		txtUsername.requestFocus();
+	}
+
 }
@@ -1,23 +1,24 @@
 package gc01.cw.robf.controller;
 
-import java.io.IOException;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import gc01.cw.robf.model.LogModel;
-import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.model.OrderLineModel;
 import gc01.cw.robf.model.OrderModel;
 import gc01.cw.robf.model.UserModel;
-import gc01.cw.robf.utility.FileXmlHandler;
-import gc01.cw.robf.utility.XmlCustomLogger;
-import javafx.collections.ObservableList;
+import gc01.cw.robf.store.LogStore;
+import gc01.cw.robf.store.OrderStore;
+import gc01.cw.robf.store.StoreRegistry;
+import gc01.cw.robf.utility.PersistenceExecutor;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.event.ActionEvent;
 import javafx.event.Event;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
@@ -25,12 +26,9 @@ import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.control.TextArea;
-import javafx.scene.image.Image;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.shape.Shape;
-import javafx.stage.Modality;
 import javafx.stage.Stage;
-import javafx.stage.StageStyle;
 import javafx.stage.WindowEvent;
 
 /**
@@ -45,8 +43,8 @@ import javafx.stage.WindowEvent;
  */
 public class MainViewController {
 
-	private String orderFilePath = "./data/orders.xml";
-	private String logFilePath = "./data/activityLog.xml";
+	private OrderStore orderStore = StoreRegistry.getOrderStore();
+	private LogStore logStore = StoreRegistry.getLogStore();
 
 	private Stage loginViewStage;
 	private Stage mainViewStage;
@@ -54,10 +52,20 @@ public class MainViewController {
 	private Stage manageOrdersViewStage;
 	private Stage manageMenuItemsViewStage;
 	private Stage editOrderItemsView;
-	private ObservableList<OrderModel> orderList;
 	private Shape currentTable;
 	private Integer intTableNumber;
 
+	// shows saves which failed on the persistence thread, e.g. menu changes
+	// saved after their view closed
+	private ChangeListener<String> saveFailureListener = new ChangeListener<String>() {
+		@Override
+		public void changed(ObservableValue<? extends String> observable, String oldMessage, String message) {
+			if (message != null) {
+				systemStatusLabel.setText("Warning: " + message + ". Check the data folder.");
+			}
+		}
+	};
+
 	@FXML
 	private Button logoutButton;
 
@@ -98,7 +106,7 @@ public class MainViewController {
 	private Label timeOpenedLabel;
 
 	@FXML
-	private ListView<MenuItemModel> itemsListView;
+	private ListView<OrderLineModel> itemsListView;
 
 	@FXML
 	private Label totalCostLabel;
@@ -108,45 +116,31 @@ public class MainViewController {
 
 	/**
 	 * Method triggered when user presses Logout button. Closes the Main view
-	 * and reloads the Login view.
+	 * and shows the Login view again.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
 	 */
 	@FXML
 	public void logout(ActionEvent event) {
-		XmlCustomLogger.writeLogLine(logFilePath,
-				new LogModel(UserModel.getCurrentUser().getUsername(), "User successfully logged out."));
+		logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(), "User successfully logged out."));
+		orderStore.flush();
+		PersistenceExecutor.failureProperty().removeListener(saveFailureListener);
 
 		// close Main View and restore Login View
 		mainViewStage = (Stage) logoutButton.getScene().getWindow();
 		mainViewStage.close();
 
-		loginViewStage = new Stage();
-		loginViewStage.setTitle("Login");
-
-		// Open FXML and load
-		FXMLLoader loginViewLoader = new FXMLLoader(getClass().getResource("/gc01/cw/robf/view/LoginView.fxml"));
-		Scene loginViewScene;
-		try {
-			loginViewScene = new Scene(loginViewLoader.load());
-			String baseCss = this.getClass().getResource("/gc01/cw/robf/view/base.css").toExternalForm();
-			loginViewScene.getStylesheets().addAll(baseCss);
-			loginViewStage.setScene(loginViewScene);
-			loginViewStage.getIcons().add(new Image("file:./static/OrdoGrubLogo.png"));
-			loginViewStage.show();
-
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		loginViewStage = ViewCache.show(ViewCache.LOGIN_VIEW, "Login", null);
 	}
 
 	/**
-	 * Method triggered when user presses Manage Users button. Loads the Manage
-	 * Users view in modal and undecorated mode to force user to complete
-	 * interaction with Manage Users view before returning to Main view. Applies
-	 * overlay CSS formatting to window as well as basic formatting. This button
-	 * is only available if the user is of type Manager.
+	 * Method triggered when user presses Manage Users button. Shows the Manage
+	 * Users view, loaded once by ViewCache and refreshed, in modal and
+	 * undecorated mode to force user to complete interaction with Manage Users
+	 * view before returning to Main view. Applies overlay CSS formatting to
+	 * window as well as basic formatting. This button is only available if the
+	 * user is of type Manager.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -159,36 +153,17 @@ public class MainViewController {
 		// Load Manage Users View
 		mainViewStage = (Stage) logoutButton.getScene().getWindow();
 
-		manageUsersViewStage = new Stage();
-		manageUsersViewStage.setTitle("Manage Users");
-		manageUsersViewStage.initOwner(mainViewStage);
-		manageUsersViewStage.initModality(Modality.WINDOW_MODAL);
-		manageUsersViewStage.initStyle(StageStyle.UNDECORATED);
-
-		// Open FXML and load
-		FXMLLoader manageUsersViewLoader = new FXMLLoader(
-				getClass().getResource("/gc01/cw/robf/view/ManageUsersView.fxml"));
-		Scene manageUsersViewScene;
-		try {
-			manageUsersViewScene = new Scene(manageUsersViewLoader.load());
-			String baseCss = this.getClass().getResource("/gc01/cw/robf/view/base.css").toExternalForm();
-			String overlayCss = this.getClass().getResource("/gc01/cw/robf/view/overlay.css").toExternalForm();
-			manageUsersViewScene.getStylesheets().addAll(baseCss, overlayCss);
-			manageUsersViewStage.setScene(manageUsersViewScene);
-			manageUsersViewStage.getIcons().add(new Image("file:./static/OrdoGrubLogo.png"));
-			manageUsersViewStage.show();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		manageUsersViewStage = ViewCache.show(ViewCache.MANAGE_USERS_VIEW, "Manage Users", mainViewStage);
 	}
 
 	/**
-	 * Method triggered when user presses Manage Orders button. Loads the Manage
-	 * Orders view in modal and undecorated mode to force user to complete
-	 * interaction with Manage Orders view before returning to Main view.
-	 * Applies overlay CSS formatting to window as well as basic formatting.
-	 * Overrides EventHandler for when Orders view is closed so that the table
-	 * layout in Main view is cleared as it could have changed.
+	 * Method triggered when user presses Manage Orders button. Shows the Manage
+	 * Orders view, loaded once by ViewCache and refreshed, in modal and
+	 * undecorated mode to force user to complete interaction with Manage Orders
+	 * view before returning to Main view. Applies overlay CSS formatting to
+	 * window as well as basic formatting. Overrides EventHandler for when
+	 * Orders view is closed so that the table layout in Main view is cleared as
+	 * it could have changed.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -198,36 +173,25 @@ public class MainViewController {
 		// clear system status
 		systemStatusLabel.setText(null);
 
+		// save changes held back by the order store now, before the view
+		// changes orders which may yet be cancelled
+		orderStore.flush();
+
 		// Load Manage Orders View
 		mainViewStage = (Stage) logoutButton.getScene().getWindow();
 
-		manageOrdersViewStage = new Stage();
-		manageOrdersViewStage.setTitle("Manage Orders");
-		manageOrdersViewStage.initOwner(mainViewStage);
-		manageOrdersViewStage.initModality(Modality.WINDOW_MODAL);
-		manageOrdersViewStage.initStyle(StageStyle.UNDECORATED);
-
-		// Open FXML and load
-		FXMLLoader manageOrdersViewLoader = new FXMLLoader(
-				getClass().getResource("/gc01/cw/robf/view/ManageOrdersView.fxml"));
-		Scene manageOrdersViewScene;
-		try {
-			manageOrdersViewScene = new Scene(manageOrdersViewLoader.load());
-			String baseCss = this.getClass().getResource("/gc01/cw/robf/view/base.css").toExternalForm();
-			String overlayCss = this.getClass().getResource("/gc01/cw/robf/view/overlay.css").toExternalForm();
-			manageOrdersViewScene.getStylesheets().addAll(baseCss, overlayCss);
-			manageOrdersViewStage.setScene(manageOrdersViewScene);
-			manageOrdersViewStage.getIcons().add(new Image("file:./static/OrdoGrubLogo.png"));
-			manageOrdersViewStage.show();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		manageOrdersViewStage = ViewCache.show(ViewCache.MANAGE_ORDERS_VIEW, "Manage Orders", mainViewStage);
 
 		// clear the table as changes could have been made which impact the
-		// order
+		// order. The window changes on every login, so this is set each time
+		if (manageOrdersViewStage == null) {
+			return;
+		}
+		orderStore.beginEdit();
 		manageOrdersViewStage.setOnHidden(new EventHandler<WindowEvent>() {
 			@Override
 			public void handle(WindowEvent event) {
+				orderStore.endEdit();
 				clearTable(event);
 			}
 		});
@@ -235,11 +199,12 @@ public class MainViewController {
 	}
 
 	/**
-	 * Method triggered when user presses Manage Menu button. Loads the Manage
-	 * Menu view in modal and undecorated mode to force user to complete
-	 * interaction with Manage Menu view before returning to Main view. Applies
-	 * overlay CSS formatting to window as well as basic formatting. This button
-	 * is only available if the user is of type Manager.
+	 * Method triggered when user presses Manage Menu button. Shows the Manage
+	 * Menu view, loaded once by ViewCache and refreshed, in modal and
+	 * undecorated mode to force user to complete interaction with Manage Menu
+	 * view before returning to Main view. Applies overlay CSS formatting to
+	 * window as well as basic formatting. This button is only available if the
+	 * user is of type Manager.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -252,27 +217,8 @@ public class MainViewController {
 		// Load Manage Menu View
 		mainViewStage = (Stage) logoutButton.getScene().getWindow();
 
-		manageMenuItemsViewStage = new Stage();
-		manageMenuItemsViewStage.setTitle("Manage Menu Items");
-		manageMenuItemsViewStage.initOwner(mainViewStage);
-		manageMenuItemsViewStage.initModality(Modality.WINDOW_MODAL);
-		manageMenuItemsViewStage.initStyle(StageStyle.UNDECORATED);
-
-		// Open FXML and load
-		FXMLLoader manageMenuItemsViewLoader = new FXMLLoader(
-				getClass().getResource("/gc01/cw/robf/view/ManageMenuItemsView.fxml"));
-		Scene manageMenuItemsViewScene;
-		try {
-			manageMenuItemsViewScene = new Scene(manageMenuItemsViewLoader.load());
-			String baseCss = this.getClass().getResource("/gc01/cw/robf/view/base.css").toExternalForm();
-			String overlayCss = this.getClass().getResource("/gc01/cw/robf/view/overlay.css").toExternalForm();
-			manageMenuItemsViewScene.getStylesheets().addAll(baseCss, overlayCss);
-			manageMenuItemsViewStage.setScene(manageMenuItemsViewScene);
-			manageMenuItemsViewStage.getIcons().add(new Image("file:./static/OrdoGrubLogo.png"));
-			manageMenuItemsViewStage.show();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		manageMenuItemsViewStage = ViewCache.show(ViewCache.MANAGE_MENU_ITEMS_VIEW, "Manage Menu Items",
+				mainViewStage);
 	}
 
 	/**
@@ -347,26 +293,27 @@ public class MainViewController {
 	 * Method triggered when user presses Open Order button. Open order button
 	 * is only available if a table has been selected and there is no current
 	 * Open order for that table. When triggered, creates a new order object on
-	 * the highlighted table and immediately saves it to file. Refreshes the
-	 * order pane.
+	 * the highlighted table and immediately saves it to the order store.
+	 * Refreshes the order pane and confirms once the order is saved.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
 	 */
 	@FXML
 	public void openOrder(ActionEvent event) {
-		// create new order and save to file immediately (so not lost if user
+		// create new order and save it immediately (so not lost if user
 		// closes window)
-		OrderModel order = new OrderModel(intTableNumber);
+		OrderModel order = new OrderModel(intTableNumber, UserModel.getCurrentUser().getFullName());
 		OrderModel.setCurrentOrder(order);
 
-		XmlCustomLogger.writeLogLine(logFilePath, new LogModel(UserModel.getCurrentUser().getUsername(),
+		logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(),
 				"Order opened on Table " + OrderModel.getCurrentOrder().getTableNumber() + "."));
 
-		FileXmlHandler.saveOrders(orderFilePath, OrderModel.getOrderList());
+		CompletableFuture<Void> saved = orderStore.orderOpened(order);
 
 		openOrderButton.setDisable(true);
 		displayOrder();
+		confirmSaved(saved, "Order opened");
 
 	}
 
@@ -375,8 +322,8 @@ public class MainViewController {
 	 * is only available if a table has been selected and there is an Open order
 	 * for that table. When triggered, activates an Alert prompt and if user
 	 * accepts this, closes the order on the highlighted table and immediately
-	 * saves to file. Clears the table selection as this order can no longer be
-	 * modified.
+	 * saves it to the order store. Clears the table selection as this order
+	 * can no longer be modified. Confirms once the order is saved.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -392,23 +339,25 @@ public class MainViewController {
 
 		Optional<ButtonType> buttonPressed = confirmOrderClose.showAndWait();
 		if (buttonPressed.get() == ButtonType.OK) {
-			XmlCustomLogger.writeLogLine(logFilePath, new LogModel(UserModel.getCurrentUser().getUsername(),
+			logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(),
 					"Order closed on Table " + OrderModel.getCurrentOrder().getTableNumber() + "."));
 			OrderModel.getCurrentOrder().setStatus(OrderModel.OrderStatus.CLOSED);
 
-			FileXmlHandler.saveOrders(orderFilePath, OrderModel.getOrderList());
+			CompletableFuture<Void> saved = orderStore.statusChanged(OrderModel.getCurrentOrder());
 			clearTable(event);
+			confirmSaved(saved, "Order closed");
 		}
 	}
 
 	/**
 	 * Method triggered when user presses Edit button under Order pane's Items
 	 * list box. Button only available if a table has been selected and there is
-	 * an Open order for that table. Loads the Edit Order Items view in modal
-	 * and undecorated mode to force user to complete interaction before
-	 * returning to Main view. Applies overlay CSS formatting to window as well
-	 * as basic formatting. Overrides EventHandler for when view is closed to
-	 * refresh Order pane as it could have changed.
+	 * an Open order for that table. Shows the Edit Order Items view, loaded
+	 * once by ViewCache and refreshed, in modal and undecorated mode to force
+	 * user to complete interaction before returning to Main view. Applies
+	 * overlay CSS formatting to window as well as basic formatting. Overrides
+	 * EventHandler for when view is closed to refresh Order pane as it could
+	 * have changed.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -418,36 +367,25 @@ public class MainViewController {
 		// clear system status
 		systemStatusLabel.setText(null);
 
+		// save changes held back by the order store now, before the view
+		// changes orders which may yet be cancelled
+		orderStore.flush();
+
 		// Load Orders View
 		mainViewStage = (Stage) logoutButton.getScene().getWindow();
 
-		editOrderItemsView = new Stage();
-		editOrderItemsView.setTitle("Edit Order Items");
-		editOrderItemsView.initOwner(mainViewStage);
-		editOrderItemsView.initModality(Modality.WINDOW_MODAL);
-		editOrderItemsView.initStyle(StageStyle.UNDECORATED);
-
-		// Open FXML and load
-		FXMLLoader editOrderItemsViewLoader = new FXMLLoader(
-				getClass().getResource("/gc01/cw/robf/view/EditOrderItemsView.fxml"));
-		Scene editOrderItemsViewScene;
-		try {
-			editOrderItemsViewScene = new Scene(editOrderItemsViewLoader.load());
-			String baseCss = this.getClass().getResource("/gc01/cw/robf/view/base.css").toExternalForm();
-			String overlayCss = this.getClass().getResource("/gc01/cw/robf/view/overlay.css").toExternalForm();
-			editOrderItemsViewScene.getStylesheets().addAll(baseCss, overlayCss);
-			editOrderItemsView.setScene(editOrderItemsViewScene);
-			editOrderItemsView.getIcons().add(new Image("file:./static/OrdoGrubLogo.png"));
-			editOrderItemsView.show();
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		editOrderItemsView = ViewCache.show(ViewCache.EDIT_ORDER_ITEMS_VIEW, "Edit Order Items", mainViewStage);
 
 		// call displayOrder when closing edit window so that all values refresh
+		if (editOrderItemsView == null) {
+			return;
+		}
+		orderStore.beginEdit();
 		editOrderItemsView.setOnHidden(new EventHandler<WindowEvent>() {
 
 			@Override
 			public void handle(WindowEvent event) {
+				orderStore.endEdit();
 				displayOrder();
 			}
 
@@ -458,75 +396,73 @@ public class MainViewController {
 	 * Method triggered when user presses Save button under comments text box.
 	 * Save button is only available if a table has been selected and there is
 	 * an Open order for that table. When triggered, sets the comments in the
-	 * current Order and immediately saves to file.
+	 * current Order and immediately saves them to the order store.
+	 * Confirms once the comments are saved.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
 	 */
 	@FXML
 	public void saveComments(ActionEvent event) {
-		XmlCustomLogger.writeLogLine(logFilePath,
-				new LogModel(UserModel.getCurrentUser().getUsername(),
-						"Comments saved for order opened on " + OrderModel.getCurrentOrder().getDateOpened()
-								+ " on Table " + OrderModel.getCurrentOrder().getTableNumber() + "."));
+		logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(),
+				"Comments saved for order opened on " + OrderModel.getCurrentOrder().getDateOpened() + " on Table "
+						+ OrderModel.getCurrentOrder().getTableNumber() + "."));
 
 		// set the comments in the current order object
 		OrderModel.getCurrentOrder().setComments(commentsTextArea.getText());
 
-		// save the orders
-		FileXmlHandler.saveOrders(orderFilePath, orderList);
+		// save the new comments and tell the user once saved
+		confirmSaved(orderStore.commentsChanged(OrderModel.getCurrentOrder()), "Comments saved");
+	}
 
-		// tell the user
-		systemStatusLabel.setText("Comments saved");
+	/*
+	 * Shows a message in the system status once a change to an order is
+	 * saved, or a warning if it could not be saved.
+	 */
+	private void confirmSaved(CompletableFuture<Void> saved, String message) {
+		systemStatusLabel.setText("Saving...");
+
+		// futures may complete on another thread
+		saved.whenComplete((result, error) -> Platform.runLater(() -> {
+			if (error == null) {
+				systemStatusLabel.setText(message);
+			} else {
+				systemStatusLabel.setText("Warning: changes could not be saved. Check the data folder.");
+			}
+		}));
 	}
 
 	/**
 	 * Method automatically called by JavaFX Application class when loading a
-	 * view. Loads existing list of orders and enables User and Menu Manager
-	 * buttons if the currentUser type is MANAGER.
+	 * view. Enables User and Menu Manager buttons if the currentUser type is
+	 * MANAGER.
 	 */
 	public void initialize() {
 
-		// initialise lists for use in creating orders
-		orderList = OrderModel.getOrderList();
-
 		// allow access to user and menu managers for Manager users
-		if (UserModel.getCurrentUser().getType().equals(UserModel.UserType.MANAGER.toString())) {
+		if (UserModel.getCurrentUser().getType() == UserModel.UserType.MANAGER) {
 			userManagerButton.setDisable(false);
 			menuManagerButton.setDisable(false);
 		}
+
+		PersistenceExecutor.failureProperty().addListener(saveFailureListener);
 	}
 
 	/*
 	 * Private method which opens an order in the Order pane in the Main view.
-	 * Handles multiple open orders per table: Sorts list of orders by latest
-	 * opened date first. Checks whether there is >1 open order on current table
-	 * and warns user if so. Opens latest order if there is one. If no order is
-	 * found, enables use of Open order button.
+	 * Handles multiple open orders per table: Asks the order store for the
+	 * open orders on the current table, oldest opened first. Warns user if
+	 * there is >1 open order and opens the latest one if there is one. If no
+	 * order is found, enables use of Open order button.
 	 */
 	private void displayOrder() {
-		// sort the orders in ascending opened date order to allow us to get
-		// the latest open order if there is more than one
-		Collections.sort(orderList, new Comparator<OrderModel>() {
-			@Override
-			public int compare(OrderModel oM1, OrderModel oM2) {
-				return oM1.getDateOpened().compareTo(oM2.getDateOpened());
-			}
-
-		});
+		List<OrderModel> openOrders = orderStore.findOpenOrders(intTableNumber);
+		int openOrderCount = openOrders.size();
+		boolean existingOrder = openOrderCount > 0;
 
-		int openOrderCount = 0;
-		boolean existingOrder = false;
-
-		// check whether there is one or more open orders on the table
-		// take the last open order for the table in any case which is the
-		// latest based on sort above
-		for (OrderModel order : orderList) {
-			if (order.getTableNumber().equals(intTableNumber) && order.getStatus().equals("OPEN")) {
-				OrderModel.setCurrentOrder(order);
-				existingOrder = true;
-				openOrderCount++;
-			}
+		// take the last open order for the table which is the latest opened
+		if (existingOrder) {
+			OrderModel.setCurrentOrder(openOrders.get(openOrderCount - 1));
 		}
 
 		// set the order view for the selected table if one exists
@@ -538,18 +474,17 @@ public class MainViewController {
 						"Warning: more than one open order for table " + OrderModel.getCurrentOrder().getTableNumber()
 								+ ". Most recent opened. Close other open orders in Order Manager.");
 
-				XmlCustomLogger.writeLogLine(logFilePath,
-						new LogModel(UserModel.getCurrentUser().getUsername(), "WARNING: Multiple orders open on Table "
-								+ OrderModel.getCurrentOrder().getTableNumber() + "."));
+				logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(),
+						"WARNING: Multiple orders open on Table " + OrderModel.getCurrentOrder().getTableNumber() + "."));
 			}
 
 			closeOrderButton.setDisable(false);
 			editOrderItemsButton.setDisable(false);
 			saveCommentsButton.setDisable(false);
-			statusLabel.setText(OrderModel.getCurrentOrder().getStatus());
+			statusLabel.setText(OrderModel.getCurrentOrder().getStatus().toString());
 			creatingUserLabel.setText(OrderModel.getCurrentOrder().getCreatingUser());
 			timeOpenedLabel.setText(OrderModel.getCurrentOrder().getDateOpened());
-			itemsListView.setItems(OrderModel.getCurrentOrder().getItemList());
+			itemsListView.setItems(OrderModel.getCurrentOrder().getLineList());
 			totalCostLabel.setText(String.format("£%1$.2f", OrderModel.getCurrentOrder().getTotalCost()));
 			commentsTextArea.setEditable(true);
 			commentsTextArea.setText(OrderModel.getCurrentOrder().getComments());
@@ -5,13 +5,13 @@ import java.util.Optional;
 import gc01.cw.robf.model.LogModel;
 import gc01.cw.robf.model.MenuItemModel;
 import gc01.cw.robf.model.UserModel;
-import gc01.cw.robf.utility.FileXmlHandler;
-import gc01.cw.robf.utility.XmlCustomLogger;
-import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
+import gc01.cw.robf.store.LogStore;
+import gc01.cw.robf.store.MenuStore;
+import gc01.cw.robf.store.StoreRegistry;
+import gc01.cw.robf.utility.SearchFilter;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -39,7 +39,8 @@ import javafx.util.converter.NumberStringConverter;
 /**
  * Controller for the Manage Menu Items interface. Allows Managers to add (text entry
  * fields), edit (in tableView) and delete menu items (selected tableView item).
- * Includes filter for search. Uses FXML template.
+ * Includes filter for search. Uses FXML template. Kept by ViewCache and
+ * refreshed each time it is shown.
  * <p>
  * TableView and editing adapted from
  * http://docs.oracle.com/javafx/2/ui_controls/table-view.htm
@@ -51,14 +52,15 @@ import javafx.util.converter.NumberStringConverter;
  * @version 1.0.0
  *
  */
-public class ManageMenuItemsViewController {
+public class ManageMenuItemsViewController implements RefreshableView {
 
 	private boolean modTag;
 	private Stage manageMenuItemsViewStage;
 	private TableView<MenuItemModel> manageMenuItemsTable = new TableView<>();
 	private ObservableList<MenuItemModel> menuItemsList = MenuItemModel.getMenu();
-	private String menuItemFilePath = "./data/menuItems.xml";
-	private String logFilePath = "./data/activityLog.xml";
+	private SearchFilter<MenuItemModel> menuItemSearch;
+	private MenuStore menuStore = StoreRegistry.getMenuStore();
+	private LogStore logStore = StoreRegistry.getLogStore();
 
 	// Return values from ItemType enum for combo box in table
 	private ObservableList<MenuItemModel.ItemType> itemTypeCombo = FXCollections
@@ -87,7 +89,8 @@ public class ManageMenuItemsViewController {
 
 	/**
 	 * Method triggered when user presses Save button. If items have been
-	 * modified, saves menu items to file and closes view.
+	 * modified, saves menu items to file and closes view once
+	 * they are saved.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -95,16 +98,27 @@ public class ManageMenuItemsViewController {
 	@FXML
 	public void save(ActionEvent event) {
 
-		// if modified, save and log
+		manageMenuItemsViewStage = (Stage) cancelButton.getScene().getWindow();
+
+		// if modified, save and log, and close once saved
 		if (modTag) {
-			FileXmlHandler.saveMenuItems(menuItemFilePath, menuItemsList);
-			XmlCustomLogger.writeLogLine(logFilePath,
-					new LogModel(UserModel.getCurrentUser().getUsername(), "Menu items modified."));
+			logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(), "Menu items modified."));
+			statusLabel.setText("Saving...");
+			cancelButton.setDisable(true);
+
+			// futures may complete on another thread
+			menuStore.save(menuItemsList).whenComplete((result, error) -> Platform.runLater(() -> {
+				if (error == null) {
+					manageMenuItemsViewStage.close();
+				} else {
+					statusLabel.setText("Menu items could not be saved");
+					cancelButton.setDisable(false);
+				}
+			}));
+		} else {
+			// close menu editor stage
+			manageMenuItemsViewStage.close();
 		}
-
-		// close menu editor stage
-		manageMenuItemsViewStage = (Stage) cancelButton.getScene().getWindow();
-		manageMenuItemsViewStage.close();
 	}
 
 	/**
@@ -117,7 +131,7 @@ public class ManageMenuItemsViewController {
 	public void cancel(ActionEvent event) {
 
 		// reload menu items from file
-		FileXmlHandler.loadMenuItems(menuItemFilePath, true);
+		menuStore.load();
 
 		// close menu editor stage
 		manageMenuItemsViewStage = (Stage) cancelButton.getScene().getWindow();
@@ -195,6 +209,27 @@ public class ManageMenuItemsViewController {
 
 	}
 
+	/**
+	 * Method called by ViewCache before the view is shown. Clears the filter,
+	 * the new menu item fields and any changes flagged the last time the view
+	 * was shown. The tableView shows the menu, so is already up to date.
+	 */
+	@Override
+	public void refresh() {
+		// modification tag
+		modTag = false;
+
+		filterTextField.clear();
+		nameTextArea.clear();
+		descriptionTextArea.clear();
+		priceTextField.clear();
+		itemTypeComboBox.valueProperty().set(null);
+		statusLabel.setText("");
+		cancelButton.setDisable(false);
+		manageMenuItemsTable.getSelectionModel().clearSelection();
+		menuItemSearch.invalidateAll();
+	}
+
 	/**
 	 * Method automatically called by JavaFX Application class when loading a
 	 * view. Initialises the tableView of menu items. Sets up filtered view for
@@ -203,9 +238,6 @@ public class ManageMenuItemsViewController {
 	 */
 	public void initialize() {
 
-		// modification tag
-		modTag = false;
-
 		// sort out table
 		Parent root = cancelButton.getParent();
 		Pane tablePane = (Pane) ((AnchorPane) root).lookup("#tablePane");
@@ -223,6 +255,7 @@ public class ManageMenuItemsViewController {
 				statusLabel.setText("");
 				((MenuItemModel) t.getTableView().getItems().get(t.getTablePosition().getRow()))
 						.setName(t.getNewValue());
+				menuItemSearch.invalidate(t.getRowValue());
 				modTag = true;
 			}
 		});
@@ -236,6 +269,7 @@ public class ManageMenuItemsViewController {
 				statusLabel.setText("");
 				((MenuItemModel) t.getTableView().getItems().get(t.getTablePosition().getRow()))
 						.setDescription(t.getNewValue());
+				menuItemSearch.invalidate(t.getRowValue());
 				modTag = true;
 			}
 		});
@@ -264,6 +298,7 @@ public class ManageMenuItemsViewController {
 				statusLabel.setText("");
 				((MenuItemModel) t.getTableView().getItems().get(t.getTablePosition().getRow()))
 						.setType(t.getNewValue());
+				menuItemSearch.invalidate(t.getRowValue());
 				modTag = true;
 			}
 		});
@@ -277,39 +312,13 @@ public class ManageMenuItemsViewController {
 		// add table to existing pane
 		tablePane.getChildren().addAll(manageMenuItemsTable);
 
-		// Wrap the ObservableList in a FilteredList and initially show all data
-		FilteredList<MenuItemModel> filteredMenuItemList = new FilteredList<>(menuItemsList, null);
-
-		filterTextField.textProperty().addListener(new ChangeListener<String>() {
-
-			@Override
-			public void changed(ObservableValue<? extends String> observable, String oldValue, String newValue) {
-
-				// using Java 8 lambda notation
-				filteredMenuItemList.setPredicate(menuItem -> {
-					// If filter text is empty, display all values
-					if (newValue == null || newValue.isEmpty()) {
-						return true;
-					}
-
-					// filter on name, description and type columns
-					String lowerCaseFilter = newValue.toLowerCase();
-
-					if (menuItem.getName().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (menuItem.getDescription().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (menuItem.getType().toString().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					}
-					return false; // Does not match
-				});
-
-			}
-		});
+		// filter on the cached name, description and type of each menu item
+		menuItemSearch = new SearchFilter<>(menuItemsList, menuItem -> menuItem.getName() + "\n"
+				+ menuItem.getDescription() + "\n" + menuItem.getType());
+		menuItemSearch.bind(filterTextField.textProperty());
 
 		// Wrap the FilteredList in a SortedList.
-		SortedList<MenuItemModel> sortedMenuItemList = new SortedList<>(filteredMenuItemList);
+		SortedList<MenuItemModel> sortedMenuItemList = new SortedList<>(menuItemSearch.getFilteredList());
 
 		// Bind the SortedList comparator to the TableView comparator.
 		sortedMenuItemList.comparatorProperty().bind(manageMenuItemsTable.comparatorProperty());
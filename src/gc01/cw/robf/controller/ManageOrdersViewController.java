@@ -1,19 +1,28 @@
 package gc01.cw.robf.controller;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
 
 import gc01.cw.robf.model.LogModel;
 import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.OrderRecord;
 import gc01.cw.robf.model.UserModel;
-import gc01.cw.robf.utility.FileXmlHandler;
-import gc01.cw.robf.utility.XmlCustomLogger;
+import gc01.cw.robf.store.LogStore;
+import gc01.cw.robf.store.OrderStore;
+import gc01.cw.robf.store.StoreRegistry;
+import gc01.cw.robf.utility.OrderArchive;
+import gc01.cw.robf.utility.SearchFilter;
+import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -41,7 +50,10 @@ import javafx.util.Callback;
  * Controller for the Manage Orders interface. Allows all users to change order
  * Status (in tableView) and permits managers to delete orders (selected
  * tableView item), import orders from an XML file and export order to an XML
- * file. Includes filter on tableView for search. Uses FXML template.
+ * file. Includes filter on tableView for search. Closed orders in the order
+ * archive are loaded into the tableView a page at a time on request. Uses FXML
+ * template. Kept by ViewCache, so the tableView is built once and refreshed
+ * from the order list each time the view is shown.
  * <p>
  * TableView and editing adapted from
  * http://docs.oracle.com/javafx/2/ui_controls/table-view.htm
@@ -56,15 +68,26 @@ import javafx.util.Callback;
  * @version 1.0.0
  *
  */
-public class ManageOrdersViewController {
+public class ManageOrdersViewController implements RefreshableView {
+
+	private static final int ARCHIVE_PAGE_SIZE = 100;
 
 	private boolean modTag;
 	private Stage manageOrdersViewStage;
 	// table views for nested windows
 	private TableView<OrderModel> manageOrdersTable = new TableView<>();
 	private ObservableList<OrderModel> orderList;
-	private String orderFilePath = "./data/orders.xml";
-	private String logFilePath = "./data/activityLog.xml";
+	// loaded orders followed by archived orders loaded by this view
+	private ObservableList<OrderModel> viewOrderList;
+	private SearchFilter<OrderModel> orderSearch;
+	private HashSet<Long> archivedOrderIds = new HashSet<>();
+	// changes to pass to the order store when saved
+	private LinkedHashSet<OrderModel> modifiedOrders = new LinkedHashSet<>();
+	private LinkedHashSet<OrderModel> importedOrders = new LinkedHashSet<>();
+	private ArrayList<OrderModel> deletedOrders = new ArrayList<>();
+	private OrderStore orderStore = StoreRegistry.getOrderStore();
+	private OrderArchive orderArchive = StoreRegistry.getOrderArchive();
+	private LogStore logStore = StoreRegistry.getLogStore();
 
 	// Return values from OrderStatus enum for combo box in orders table
 	private ObservableList<OrderModel.OrderStatus> orderTypeCombo = FXCollections
@@ -88,9 +111,15 @@ public class ManageOrdersViewController {
 	@FXML
 	private Label statusLabel;
 
+	@FXML
+	private Label archiveLabel;
+
 	/**
 	 * Method triggered when user presses Save button. If items have been
-	 * modified, saves orders to file and closes view.
+	 * modified, saves imported, modified and deleted orders to the order store
+	 * and closes view once reopened orders are saved. Archived orders which
+	 * have been opened again are moved back to the order store and archived
+	 * orders which have been deleted are removed from the archive.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -98,16 +127,69 @@ public class ManageOrdersViewController {
 	@FXML
 	public void save(ActionEvent event) {
 
+		manageOrdersViewStage = (Stage) cancelButton.getScene().getWindow();
+
 		// if modified, save and log
 		if (modTag) {
-			FileXmlHandler.saveOrders(orderFilePath, orderList);
-			XmlCustomLogger.writeLogLine(logFilePath,
-					new LogModel(UserModel.getCurrentUser().getUsername(), "Orders modified."));
-		}
+			HashSet<Long> reopenedOrderIds = new HashSet<>();
+			List<CompletableFuture<Void>> reopenedOrders = new ArrayList<>();
+			HashSet<Long> deletedOrderIds = new HashSet<>();
 
-		// close Manage Orders Views
-		manageOrdersViewStage = (Stage) cancelButton.getScene().getWindow();
-		manageOrdersViewStage.close();
+			for (OrderModel order : importedOrders) {
+				if (!deletedOrders.contains(order)) {
+					orderStore.orderOpened(order);
+				}
+			}
+			for (OrderModel order : modifiedOrders) {
+				if (importedOrders.contains(order) || deletedOrders.contains(order)) {
+					continue;
+				}
+
+				if (!archivedOrderIds.contains(order.getOrderId())) {
+					orderStore.statusChanged(order);
+				} else if (order.getStatus() == OrderModel.OrderStatus.OPEN) {
+					// opened again, so load it and save it in the order store
+					orderList.add(order);
+					reopenedOrders.add(orderStore.orderOpened(order));
+					reopenedOrderIds.add(order.getOrderId());
+				}
+			}
+			for (OrderModel order : deletedOrders) {
+				if (archivedOrderIds.contains(order.getOrderId())) {
+					deletedOrderIds.add(order.getOrderId());
+				} else if (!importedOrders.contains(order)) {
+					orderStore.orderDeleted(order);
+				}
+			}
+
+			logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(), "Orders modified."));
+			statusLabel.setText("Saving...");
+			cancelButton.setDisable(true);
+
+			// reopened orders stay archived until the order store has saved
+			// them, so that they can not be lost. Futures may complete on
+			// another thread
+			CompletableFuture.allOf(reopenedOrders.toArray(new CompletableFuture<?>[reopenedOrders.size()]))
+					.whenComplete((result, error) -> Platform.runLater(() -> {
+						if (error == null) {
+							deletedOrderIds.addAll(reopenedOrderIds);
+						}
+						if (!deletedOrderIds.isEmpty()) {
+							orderArchive.remove(deletedOrderIds);
+						}
+
+						if (error == null) {
+							// close Manage Orders Views
+							manageOrdersViewStage.close();
+						} else {
+							statusLabel.setText("Reopened orders could not be saved and are still archived");
+							cancelButton.setDisable(false);
+						}
+					}));
+		} else {
+			// close Manage Orders Views
+			manageOrdersViewStage.close();
+		}
 	}
 
 	/**
@@ -119,8 +201,8 @@ public class ManageOrdersViewController {
 	@FXML
 	public void cancel(ActionEvent event) {
 
-		// reload orders from file
-		FileXmlHandler.loadOrders(orderFilePath, true);
+		// discard changes by reloading orders from the order store
+		orderStore.reload();
 
 		// close Manage Orders Views
 		manageOrdersViewStage = (Stage) cancelButton.getScene().getWindow();
@@ -156,7 +238,9 @@ public class ManageOrdersViewController {
 			if (buttonPressed.get() == ButtonType.OK) {
 				for (OrderModel orderSelected : ordersSelected) {
 					modTag = true;
+					deletedOrders.add(orderSelected);
 					orderList.remove(orderSelected);
+					viewOrderList.remove(orderSelected);
 				}
 			}
 		}
@@ -165,7 +249,7 @@ public class ManageOrdersViewController {
 
 	/**
 	 * Method triggered when user presses Import button. Opens an Open File
-	 * dialog and passes selected file path to FileXmlHandler to append file
+	 * dialog and passes selected file path to the order store to append file
 	 * orders to currently loaded orders.
 	 * 
 	 * @param event
@@ -184,15 +268,17 @@ public class ManageOrdersViewController {
 		manageOrdersViewStage = (Stage) cancelButton.getScene().getWindow();
 		File selectedFile = fileChooser.showOpenDialog(manageOrdersViewStage);
 		if (selectedFile != null) {
-			FileXmlHandler.loadOrders(selectedFile.getAbsolutePath(), false);
+			List<OrderModel> imported = orderStore.importOrders(selectedFile.getAbsolutePath());
+			importedOrders.addAll(imported);
+			viewOrderList.addAll(imported);
 			modTag = true;
 		}
 	}
 
 	/**
 	 * Method triggered when user presses Export button. Opens a Save File
-	 * dialog and passes selected file path to FileXmlHandler to save current
-	 * order list.
+	 * dialog, loads the rest of the order archive and passes selected file
+	 * path to the order store to save every order in the view.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -211,32 +297,76 @@ public class ManageOrdersViewController {
 		// save dialog for choosing location to save file
 		File selectedFile = fileChooser.showSaveDialog(manageOrdersViewStage);
 		if (selectedFile != null) {
-			// save whatever is in memory directly to the file
-			FileXmlHandler.saveOrders(selectedFile.getAbsolutePath(), OrderModel.getOrderList());
+			// save whatever is in memory directly to the file, along with
+			// every archived order
+			loadArchivedOrders(record -> true, Integer.MAX_VALUE);
+			orderStore.exportOrders(selectedFile.getAbsolutePath(), viewOrderList);
 			statusLabel.setText("Orders saved to " + selectedFile.getAbsolutePath());
-			XmlCustomLogger.writeLogLine(logFilePath, new LogModel(UserModel.getCurrentUser().getUsername(),
+			logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(),
 					"Orders exported to " + selectedFile.getAbsolutePath() + "."));
 		}
 
 	}
 
+	/**
+	 * Method triggered when user presses Load Closed Orders button. Loads the
+	 * next page of archived orders matching the filter text, newest first.
+	 * 
+	 * @param event
+	 *            Event object passed during trigger.
+	 */
+	@FXML
+	public void loadArchivedOrders(ActionEvent event) {
+		statusLabel.setText("");
+
+		String filterText = filterTextField.getText();
+		String lowerCaseFilter = filterText == null ? "" : filterText.toLowerCase();
+
+		loadArchivedOrders(record -> OrderStore.searchText(record).contains(lowerCaseFilter), ARCHIVE_PAGE_SIZE);
+	}
+
+	/**
+	 * Method called by ViewCache before the view is shown. Discards changes
+	 * and archived orders from the last time the view was shown, fills the
+	 * tableView from the order list and enables delete, import and export
+	 * buttons if currentUser is a MANAGER.
+	 */
+	@Override
+	public void refresh() {
+		// clear the filter first so that it is not applied to the old orders
+		filterTextField.clear();
+		statusLabel.setText("");
+		cancelButton.setDisable(false);
+
+		modTag = false;
+		modifiedOrders.clear();
+		importedOrders.clear();
+		deletedOrders.clear();
+		archivedOrderIds.clear();
+		// orders may have changed in the Main view since last shown
+		orderSearch.invalidateAll();
+		viewOrderList.setAll(orderList);
+		manageOrdersTable.getSelectionModel().clearSelection();
+		showArchiveSize();
+
+		// allow access to user and menu managers for Manager users
+		boolean manager = UserModel.getCurrentUser().getType() == UserModel.UserType.MANAGER;
+		importButton.setDisable(!manager);
+		exportButton.setDisable(!manager);
+		deleteButton.setDisable(!manager);
+	}
+
 	/**
 	 * Method automatically called by JavaFX Application class when loading a
 	 * view. Initialises the tableView of orders. Sets up filtered view for
 	 * interactive searching on table columns. Also adds custom edit handlers to
-	 * permit modifying order Status directly in table. Enables delete, import
-	 * and export buttons if currentUser is a MANAGER.
+	 * permit modifying order Status directly in table. The orders are filled in
+	 * by refresh.
 	 */
 	public void initialize() {
 		// initialise lists for use in creating orders
 		orderList = OrderModel.getOrderList();
-
-		// allow access to user and menu managers for Manager users
-		if (UserModel.getCurrentUser().getType().equals(UserModel.UserType.MANAGER.toString())) {
-			importButton.setDisable(false);
-			exportButton.setDisable(false);
-			deleteButton.setDisable(false);
-		}
+		viewOrderList = FXCollections.observableArrayList();
 
 		// sort out table
 		Parent root = cancelButton.getParent();
@@ -256,8 +386,10 @@ public class ManageOrdersViewController {
 			@Override
 			public void handle(CellEditEvent<OrderModel, OrderModel.OrderStatus> t) {
 				statusLabel.setText("");
-				((OrderModel) t.getTableView().getItems().get(t.getTablePosition().getRow()))
-						.setStatus(t.getNewValue());
+				OrderModel order = (OrderModel) t.getTableView().getItems().get(t.getTablePosition().getRow());
+				order.setStatus(t.getNewValue());
+				orderSearch.invalidate(order);
+				modifiedOrders.add(order);
 				modTag = true;
 			}
 		});
@@ -297,47 +429,14 @@ public class ManageOrdersViewController {
 		// add table to existing pane
 		tablePane.getChildren().addAll(manageOrdersTable);
 
-		// Wrap the ObservableList in a FilteredList and initially show all data
-		FilteredList<OrderModel> filteredOrderList = new FilteredList<>(orderList, null);
-
-		filterTextField.textProperty().addListener(new ChangeListener<String>() {
-
-			@Override
-			public void changed(ObservableValue<? extends String> observable, String oldValue, String newValue) {
-
-				// using Java 8 lambda notation
-				filteredOrderList.setPredicate(order -> {
-					// If filter text is empty, display all values
-					if (newValue == null || newValue.isEmpty()) {
-						return true;
-					}
-
-					// filter on multiple columns
-					String lowerCaseFilter = newValue.toLowerCase();
-
-					if (order.getTableNumber().toString().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (order.getStatus().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (order.getCreatingUser().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (order.getDateOpened().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (order.getDateClosed().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (order.getTotalCost().toString().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (order.getComments().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					}
-					return false; // Does not match
-				});
-
-			}
-		});
+		// Filter on the cached search text of each order, which is built from
+		// the current values of the order so that orders changed since opening
+		// this view, imported orders and archived orders match as shown
+		orderSearch = new SearchFilter<>(viewOrderList, order -> OrderStore.searchText(order));
+		orderSearch.bind(filterTextField.textProperty());
 
 		// Wrap the FilteredList in a SortedList.
-		SortedList<OrderModel> sortedOrderList = new SortedList<>(filteredOrderList);
+		SortedList<OrderModel> sortedOrderList = new SortedList<>(orderSearch.getFilteredList());
 
 		// Bind the SortedList comparator to the TableView comparator.
 		sortedOrderList.comparatorProperty().bind(manageOrdersTable.comparatorProperty());
@@ -347,4 +446,21 @@ public class ManageOrdersViewController {
 
 	}
 
+	/*
+	 * Adds archived orders matching a filter which are not already in the
+	 * view to the view, newest first.
+	 */
+	private void loadArchivedOrders(Predicate<OrderRecord> filter, int limit) {
+		List<OrderModel> archivedOrders = orderArchive.load(filter, archivedOrderIds, limit);
+		for (OrderModel order : archivedOrders) {
+			archivedOrderIds.add(order.getOrderId());
+		}
+		viewOrderList.addAll(archivedOrders);
+		showArchiveSize();
+	}
+
+	private void showArchiveSize() {
+		archiveLabel.setText(archivedOrderIds.size() + " of " + orderArchive.size() + " closed orders loaded");
+	}
+
 }
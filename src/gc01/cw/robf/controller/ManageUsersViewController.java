@@ -1,24 +1,21 @@
 package gc01.cw.robf.controller;
 
-import java.io.IOException;
 import java.util.Optional;
 
 import gc01.cw.robf.model.LogModel;
 import gc01.cw.robf.model.UserModel;
-import gc01.cw.robf.utility.FileXmlHandler;
-import gc01.cw.robf.utility.XmlCustomLogger;
-import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
+import gc01.cw.robf.store.LogStore;
+import gc01.cw.robf.store.StoreRegistry;
+import gc01.cw.robf.store.UserStore;
+import gc01.cw.robf.utility.SearchFilter;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
 import javafx.collections.transformation.SortedList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
-import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
@@ -35,19 +32,17 @@ import javafx.scene.control.TextField;
 import javafx.scene.control.cell.ComboBoxTableCell;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.control.cell.TextFieldTableCell;
-import javafx.scene.image.Image;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.Pane;
-import javafx.stage.Modality;
 import javafx.stage.Stage;
-import javafx.stage.StageStyle;
 import javafx.util.Callback;
 
 /**
  * Controller for the Manage Users interface. Allows Managers to add (text entry
  * fields), edit (in tableView) and delete users (selected tableView item).
- * Includes filter for search and obscures passwords. Uses FXML template.
+ * Includes filter for search and obscures passwords. Uses FXML template. Kept
+ * by ViewCache and refreshed each time it is shown.
  * <p>
  * TableView and editing adapted from
  * http://docs.oracle.com/javafx/2/ui_controls/table-view.htm
@@ -66,7 +61,7 @@ import javafx.util.Callback;
  * @version 1.0.0
  *
  */
-public class ManageUsersViewController {
+public class ManageUsersViewController implements RefreshableView {
 
 	private boolean modTag;
 	private Stage manageUsersViewStage;
@@ -74,8 +69,9 @@ public class ManageUsersViewController {
 	// table views for nested windows
 	private TableView<UserModel> manageUsersTable = new TableView<>();
 	private ObservableList<UserModel> userList = UserModel.getUserList();
-	private String userFilePath = "./data/users.xml";
-	private String logFilePath = "./data/activityLog.xml";
+	private SearchFilter<UserModel> userSearch;
+	private UserStore userStore = StoreRegistry.getUserStore();
+	private LogStore logStore = StoreRegistry.getLogStore();
 
 	// Return values from UserType enum for combo box in users table
 	private ObservableList<UserModel.UserType> userTypeCombo = FXCollections
@@ -104,7 +100,8 @@ public class ManageUsersViewController {
 
 	/**
 	 * Method triggered when user presses Save button. If items have been
-	 * modified, saves users to file and closes view.
+	 * modified, saves users to file and closes view once
+	 * they are saved.
 	 * 
 	 * @param event
 	 *            Event object passed during trigger.
@@ -112,16 +109,27 @@ public class ManageUsersViewController {
 	@FXML
 	public void save(ActionEvent event) {
 
-		// if modified, save and log
+		manageUsersViewStage = (Stage) cancelButton.getScene().getWindow();
+
+		// if modified, save and log, and close once saved
 		if (modTag) {
-			FileXmlHandler.saveUsers(userFilePath, userList);
-			XmlCustomLogger.writeLogLine(logFilePath,
-					new LogModel(UserModel.getCurrentUser().getUsername(), "Users modified."));
+			logStore.write(new LogModel(UserModel.getCurrentUser().getUsername(), "Users modified."));
+			statusLabel.setText("Saving...");
+			cancelButton.setDisable(true);
+
+			// futures may complete on another thread
+			userStore.save(userList).whenComplete((result, error) -> Platform.runLater(() -> {
+				if (error == null) {
+					manageUsersViewStage.close();
+				} else {
+					statusLabel.setText("Users could not be saved");
+					cancelButton.setDisable(false);
+				}
+			}));
+		} else {
+			// close Manage Users Views
+			manageUsersViewStage.close();
 		}
-
-		// close Manage Users Views
-		manageUsersViewStage = (Stage) cancelButton.getScene().getWindow();
-		manageUsersViewStage.close();
 	}
 
 	/**
@@ -134,7 +142,7 @@ public class ManageUsersViewController {
 	public void cancel(ActionEvent event) {
 
 		// reload users from file
-		FileXmlHandler.loadUsers(userFilePath, true);
+		userStore.load();
 
 		// close Manage Users Views
 		manageUsersViewStage = (Stage) cancelButton.getScene().getWindow();
@@ -161,32 +169,13 @@ public class ManageUsersViewController {
 			statusLabel.setText("Select a user to view their logs.");
 		} else {
 			// generate the selected user's list of logs
-			LogModel.setSelectedLogList(XmlCustomLogger.readLogLinesByUser(logFilePath, usersSelected.get(0)));
+			LogModel.setSelectedLogList(logStore.readLogLinesByUser(usersSelected.get(0)));
 
 			// Load log view
 			manageUsersViewStage = (Stage) cancelButton.getScene().getWindow();
 
-			logViewStage = new Stage();
-			logViewStage.setTitle("Log Viewer - " + usersSelected.get(0).getUsername());
-			logViewStage.initOwner(manageUsersViewStage);
-			logViewStage.initModality(Modality.WINDOW_MODAL);
-			logViewStage.initStyle(StageStyle.UNDECORATED);
-
-			// Open FXML and load
-			FXMLLoader logViewLoader = new FXMLLoader(getClass().getResource("/gc01/cw/robf/view/LogView.fxml"));
-			Scene logViewScene;
-			try {
-				logViewScene = new Scene(logViewLoader.load());
-				String baseCss = this.getClass().getResource("/gc01/cw/robf/view/base.css").toExternalForm();
-				String overlayCss = this.getClass().getResource("/gc01/cw/robf/view/overlay.css").toExternalForm();
-				logViewScene.getStylesheets().addAll(baseCss, overlayCss);
-				logViewStage.getIcons().add(new Image("file:./static/OrdoGrubLogo.png"));
-				logViewStage.setScene(logViewScene);
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
-
-			logViewStage.show();
+			logViewStage = ViewCache.show(ViewCache.LOG_VIEW, "Log Viewer - " + usersSelected.get(0).getUsername(),
+					manageUsersViewStage);
 		}
 	}
 
@@ -330,6 +319,25 @@ public class ManageUsersViewController {
 		}
 	}
 
+	/**
+	 * Method called by ViewCache before the view is shown. Clears the filter,
+	 * the new user fields and any changes flagged the last time the view was
+	 * shown. The tableView shows the user list, so is already up to date.
+	 */
+	@Override
+	public void refresh() {
+		modTag = false;
+		filterTextField.clear();
+		fullNameTextField.clear();
+		usernameTextField.clear();
+		passwordTextField.clear();
+		userTypeComboBox.valueProperty().set(null);
+		statusLabel.setText("");
+		cancelButton.setDisable(false);
+		manageUsersTable.getSelectionModel().clearSelection();
+		userSearch.invalidateAll();
+	}
+
 	/**
 	 * Method automatically called by JavaFX Application class when loading a
 	 * view. Initialises the tableView of users. Sets up filtered view for
@@ -360,6 +368,7 @@ public class ManageUsersViewController {
 				if (valueValid) {
 					((UserModel) t.getTableView().getItems().get(t.getTablePosition().getRow()))
 							.setFullName(t.getNewValue());
+					userSearch.invalidate(t.getRowValue());
 					modTag = true;
 				} else {
 					statusLabel.setText(statusLabel.getText() + "Name can only contain letters, spaces or dashes. ");
@@ -385,6 +394,7 @@ public class ManageUsersViewController {
 				if (valueValid) {
 					((UserModel) t.getTableView().getItems().get(t.getTablePosition().getRow()))
 							.setUsername(t.getNewValue());
+					userSearch.invalidate(t.getRowValue());
 					modTag = true;
 				} else {
 					statusLabel.setText(
@@ -406,6 +416,7 @@ public class ManageUsersViewController {
 			public void handle(CellEditEvent<UserModel, UserModel.UserType> t) {
 				statusLabel.setText("");
 				((UserModel) t.getTableView().getItems().get(t.getTablePosition().getRow())).setType(t.getNewValue());
+				userSearch.invalidate(t.getRowValue());
 				modTag = true;
 			}
 		});
@@ -417,39 +428,13 @@ public class ManageUsersViewController {
 		// add table to existing pane
 		tablePane.getChildren().addAll(manageUsersTable);
 
-		// Wrap the ObservableList in a FilteredList and initially show all data
-		FilteredList<UserModel> filteredUserList = new FilteredList<>(userList, null);
-
-		filterTextField.textProperty().addListener(new ChangeListener<String>() {
-
-			@Override
-			public void changed(ObservableValue<? extends String> observable, String oldValue, String newValue) {
-
-				// using Java 8 lambda notation
-				filteredUserList.setPredicate(user -> {
-					// If filter text is empty, display all values
-					if (newValue == null || newValue.isEmpty()) {
-						return true;
-					}
-
-					// filter on fullName, username and type columns
-					String lowerCaseFilter = newValue.toLowerCase();
-
-					if (user.getFullName().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (user.getUsername().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					} else if (user.getType().toString().toLowerCase().contains(lowerCaseFilter)) {
-						return true;
-					}
-					return false; // Does not match
-				});
-
-			}
-		});
+		// filter on the cached fullName, username and type of each user
+		userSearch = new SearchFilter<>(userList, user -> user.getFullName() + "\n" + user.getUsername() + "\n"
+				+ user.getType());
+		userSearch.bind(filterTextField.textProperty());
 
 		// Wrap the FilteredList in a SortedList.
-		SortedList<UserModel> sortedUserList = new SortedList<>(filteredUserList);
+		SortedList<UserModel> sortedUserList = new SortedList<>(userSearch.getFilteredList());
 
 		// Bind the SortedList comparator to the TableView comparator.
 		sortedUserList.comparatorProperty().bind(manageUsersTable.comparatorProperty());
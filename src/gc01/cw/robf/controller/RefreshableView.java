@@ -0,0 +1,21 @@
+package gc01.cw.robf.controller;
+
+/**
+ * Controller of a view kept by ViewCache. The view is loaded once and
+ * refreshed every time it is shown, so anything which depends on the current
+ * user, the current order or what was entered last time is set up in refresh
+ * rather than in initialize.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public interface RefreshableView {
+
+	/**
+	 * Clears what was entered the last time the view was shown and binds the
+	 * view to the current models. Called before every show, including the
+	 * first.
+	 */
+	void refresh();
+}
@@ -0,0 +1,230 @@
+package gc01.cw.robf.controller;
+
+import java.io.IOException;
+import java.util.HashMap;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Scene;
+import javafx.scene.image.Image;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+
+/**
+ * Statically accessible cache of the views which are opened again and again
+ * during service: the Login view and the modal Manage Users, Manage Orders,
+ * Manage Menu Items, Edit Order Items and Log views. Each FXML template is
+ * loaded once and its scene and controller are kept; later opens refresh the
+ * controller and show the same scene, rather than loading the template,
+ * resolving the stylesheets and decoding the logo every time.
+ * <p>
+ * Modal views are owned by the window they are opened from. The Main view
+ * gets a new window on every login, so a view opened from a different owner
+ * than last time gets a new window and its scene is moved into it.
+ * <p>
+ * Only used on the JavaFX application thread.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class ViewCache {
+
+	/**
+	 * FXML template of the Login view.
+	 */
+	public static final String LOGIN_VIEW = "/gc01/cw/robf/view/LoginView.fxml";
+
+	/**
+	 * FXML template of the Manage Users view.
+	 */
+	public static final String MANAGE_USERS_VIEW = "/gc01/cw/robf/view/ManageUsersView.fxml";
+
+	/**
+	 * FXML template of the Manage Orders view.
+	 */
+	public static final String MANAGE_ORDERS_VIEW = "/gc01/cw/robf/view/ManageOrdersView.fxml";
+
+	/**
+	 * FXML template of the Manage Menu Items view.
+	 */
+	public static final String MANAGE_MENU_ITEMS_VIEW = "/gc01/cw/robf/view/ManageMenuItemsView.fxml";
+
+	/**
+	 * FXML template of the Edit Order Items view.
+	 */
+	public static final String EDIT_ORDER_ITEMS_VIEW = "/gc01/cw/robf/view/EditOrderItemsView.fxml";
+
+	/**
+	 * FXML template of the Log view.
+	 */
+	public static final String LOG_VIEW = "/gc01/cw/robf/view/LogView.fxml";
+
+	private static final String LOGO_URL = "file:./static/OrdoGrubLogo.png";
+
+	private static HashMap<String, CachedView> views = new HashMap<>();
+	private static String baseCss;
+	private static String overlayCss;
+	private static Image logo;
+
+	/*
+	 * A loaded view and the window it was last shown in, if any.
+	 */
+	private static class CachedView {
+		private Scene scene;
+		private RefreshableView controller;
+		private Stage stage;
+	}
+
+	/**
+	 * Static method to load views which are not loaded yet without showing
+	 * them, e.g. once the Main view is showing so that the first open is as
+	 * quick as later ones.
+	 *
+	 * @param fxmlPaths
+	 *            String paths of the FXML templates to load
+	 */
+	public static void preload(String... fxmlPaths) {
+		for (String fxmlPath : fxmlPaths) {
+			getView(fxmlPath);
+		}
+	}
+
+	/**
+	 * Static method to refresh and show a view. A view with an owner is shown
+	 * in modal and undecorated mode with the overlay CSS formatting as well
+	 * as basic formatting; a view without one is shown in a normal window with
+	 * basic formatting.
+	 *
+	 * @param fxmlPath
+	 *            String path of the FXML template
+	 * @param title
+	 *            String title of the window
+	 * @param owner
+	 *            Stage the view is opened from, or null
+	 * @return Stage showing the view, or null if the view could not be loaded
+	 */
+	public static Stage show(String fxmlPath, String title, Stage owner) {
+		CachedView view = getView(fxmlPath);
+		if (view == null) {
+			return null;
+		}
+
+		if (view.stage == null || view.stage.getOwner() != owner) {
+			Stage stage = new Stage();
+			if (owner != null) {
+				stage.initOwner(owner);
+				stage.initModality(Modality.WINDOW_MODAL);
+				stage.initStyle(StageStyle.UNDECORATED);
+			}
+			setStage(view, stage);
+		}
+
+		return show(view, title);
+	}
+
+	/**
+	 * Static method to refresh and show a view without an owner in the
+	 * primary stage, e.g. the Login view at startup, so that later shows of
+	 * the view use the same window.
+	 *
+	 * @param primaryStage
+	 *            Stage created by the JavaFX Application class
+	 * @param fxmlPath
+	 *            String path of the FXML template
+	 * @param title
+	 *            String title of the window
+	 * @return Stage showing the view, or null if the view could not be loaded
+	 */
+	public static Stage showPrimary(Stage primaryStage, String fxmlPath, String title) {
+		CachedView view = getView(fxmlPath);
+		if (view == null) {
+			return null;
+		}
+
+		if (view.stage != primaryStage) {
+			setStage(view, primaryStage);
+		}
+
+		return show(view, title);
+	}
+
+	/**
+	 * @return String URL of the basic CSS formatting applied to every view.
+	 */
+	public static String getBaseCss() {
+		if (baseCss == null) {
+			baseCss = ViewCache.class.getResource("/gc01/cw/robf/view/base.css").toExternalForm();
+		}
+		return baseCss;
+	}
+
+	/**
+	 * @return String URL of the CSS formatting applied to modal views.
+	 */
+	public static String getOverlayCss() {
+		if (overlayCss == null) {
+			overlayCss = ViewCache.class.getResource("/gc01/cw/robf/view/overlay.css").toExternalForm();
+		}
+		return overlayCss;
+	}
+
+	/**
+	 * @return Image of the OrdoGrub logo used as the icon of every window,
+	 *         decoded once.
+	 */
+	public static Image getLogo() {
+		if (logo == null) {
+			logo = new Image(LOGO_URL);
+		}
+		return logo;
+	}
+
+	private static Stage show(CachedView view, String title) {
+		view.stage.setTitle(title);
+		view.controller.refresh();
+		view.stage.show();
+		return view.stage;
+	}
+
+	/*
+	 * Moves the scene of a view into a new window.
+	 */
+	private static void setStage(CachedView view, Stage stage) {
+		if (view.stage != null) {
+			// a scene can only be shown in one window
+			view.stage.setScene(null);
+		}
+
+		if (stage.getOwner() == null) {
+			view.scene.getStylesheets().setAll(getBaseCss());
+		} else {
+			view.scene.getStylesheets().setAll(getBaseCss(), getOverlayCss());
+		}
+		stage.getIcons().setAll(getLogo());
+		stage.setScene(view.scene);
+		view.stage = stage;
+	}
+
+	/*
+	 * Returns the cached view, loading it first if it has not been loaded.
+	 */
+	private static CachedView getView(String fxmlPath) {
+		CachedView view = views.get(fxmlPath);
+		if (view != null) {
+			return view;
+		}
+
+		FXMLLoader loader = new FXMLLoader(ViewCache.class.getResource(fxmlPath));
+		try {
+			view = new CachedView();
+			view.scene = new Scene(loader.load());
+			view.controller = loader.getController();
+			views.put(fxmlPath, view);
+			return view;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+}
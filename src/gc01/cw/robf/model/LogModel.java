@@ -3,13 +3,15 @@ package gc01.cw.robf.model;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
-import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 /**
- * Model for log objects. Uses Property and Observable types for most variables
- * to allow JavaFX tableView refresh.
+ * Model for log objects. Fields are held as plain values; JavaFX properties,
+ * which allow tableView refresh, are created the first time a view asks for
+ * them and kept in step by the setters.
  * <p>
  * Returning current date-time adapted from
  * https://www.mkyong.com/java/java-how-to-get-current-date-time-date-and-calender/
@@ -20,9 +22,10 @@ import javafx.collections.ObservableList;
  */
 public class LogModel {
 
-	private SimpleStringProperty username;
-	private SimpleStringProperty dateTime;
-	private SimpleStringProperty message;
+	private String username;
+	private String dateTime;
+	private String message;
+	private PropertyAdapters properties;
 	private static ObservableList<LogModel> selectedLogList = FXCollections.observableArrayList();
 	private static DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
 
@@ -36,11 +39,11 @@ public class LogModel {
 	 *            String value of message to log.
 	 */
 	public LogModel(String username, String message) {
-		this.username = new SimpleStringProperty(username);
+		this.username = username;
 		LocalDateTime now = LocalDateTime.now();
 		String currentDateTime = dtf.format(now);
-		this.dateTime = new SimpleStringProperty(currentDateTime);
-		this.message = new SimpleStringProperty(message);
+		this.dateTime = currentDateTime;
+		this.message = message;
 	}
 
 	/**
@@ -67,7 +70,7 @@ public class LogModel {
 	 * @return String value of object username.
 	 */
 	public String getUsername() {
-		return username.get();
+		return username;
 	}
 
 	/**
@@ -75,14 +78,17 @@ public class LogModel {
 	 *            String value of username to set.
 	 */
 	public void setUsername(String username) {
-		this.username.set(username);
+		this.username = username;
+		if (properties != null) {
+			properties.username.set(username);
+		}
 	}
 
 	/**
 	 * @return String value of object dateTime.
 	 */
 	public String getDateTime() {
-		return dateTime.get();
+		return dateTime;
 	}
 
 	/**
@@ -90,14 +96,17 @@ public class LogModel {
 	 *            String value of dateTime to set.
 	 */
 	public void setDateTime(String dateTime) {
-		this.dateTime.set(dateTime);
+		this.dateTime = dateTime;
+		if (properties != null) {
+			properties.dateTime.set(dateTime);
+		}
 	}
 
 	/**
 	 * @return String value of object message.
 	 */
 	public String getMessage() {
-		return message.get();
+		return message;
 	}
 
 	/**
@@ -105,6 +114,54 @@ public class LogModel {
 	 *            String value of message to set.
 	 */
 	public void setMessage(String message) {
-		this.message.set(message);
+		this.message = message;
+		if (properties != null) {
+			properties.message.set(message);
+		}
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of username for binding to a view.
+	 */
+	public ReadOnlyStringProperty usernameProperty() {
+		return properties().username.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of dateTime for binding to a view.
+	 */
+	public ReadOnlyStringProperty dateTimeProperty() {
+		return properties().dateTime.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of message for binding to a view.
+	 */
+	public ReadOnlyStringProperty messageProperty() {
+		return properties().message.getReadOnlyProperty();
+	}
+
+	private PropertyAdapters properties() {
+		if (properties == null) {
+			properties = new PropertyAdapters(this);
+		}
+		return properties;
+	}
+
+	/*
+	 * JavaFX properties of a log line bound to a view. Read only, as the log
+	 * setters keep them in step.
+	 */
+	private static class PropertyAdapters {
+
+		private ReadOnlyStringWrapper username;
+		private ReadOnlyStringWrapper dateTime;
+		private ReadOnlyStringWrapper message;
+
+		private PropertyAdapters(LogModel logObject) {
+			username = new ReadOnlyStringWrapper(logObject.username);
+			dateTime = new ReadOnlyStringWrapper(logObject.dateTime);
+			message = new ReadOnlyStringWrapper(logObject.message);
+		}
 	}
 }
@@ -1,14 +1,30 @@
 package gc01.cw.robf.model;
 
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
 /**
- * Model for menu item objects. Uses Property and Observable types for most
- * variables to allow JavaFX tableView refresh. Contains enum ItemType to
- * describe menu item type.
+ * Model for menu item objects. Fields are held as plain values; JavaFX
+ * properties, which allow tableView refresh, are created the first time a
+ * view asks for them and kept in step by the setters. Prices are held as
+ * whole pence. Contains enum ItemType to describe menu item type.
+ * <p>
+ * Menu items in the statically accessible menu are indexed by item ID and by
+ * name so that saved orders and menu buttons can find them without searching
+ * the menu. The indexes follow items as they are added to or removed from
+ * the menu and as they are renamed.
  * 
  * @author Rob Farthing
  * @version 1.0.0
@@ -27,30 +43,54 @@ public class MenuItemModel {
 		STARTER, MAIN, DESSERT, SIDE, DRINK;
 	}
 
-	private SimpleStringProperty name;
-	private SimpleStringProperty description;
-	private SimpleDoubleProperty price;
-	private SimpleStringProperty type;
+	private long itemId;
+	private String name;
+	private String description;
+	private long pricePence;
+	private ItemType type;
+	private PropertyAdapters properties;
 	private static ObservableList<MenuItemModel> menuItemList = FXCollections.observableArrayList();
+	private static long nextItemId = 1;
+	private static Map<Long, MenuItemModel> itemsById = new HashMap<>();
+	// menu items with each name, in the order they were added
+	private static Map<String, List<MenuItemModel>> itemsByName = new HashMap<>();
+
+	static {
+		// keep the indexes in step with the menu
+		menuItemList.addListener(new ListChangeListener<MenuItemModel>() {
+			@Override
+			public void onChanged(Change<? extends MenuItemModel> change) {
+				while (change.next()) {
+					for (MenuItemModel menuItem : change.getRemoved()) {
+						menuItem.removeFromIndexes();
+					}
+					for (MenuItemModel menuItem : change.getAddedSubList()) {
+						menuItem.addToIndexes();
+					}
+				}
+			}
+		});
+	}
 
 	/**
-	 * Constructor for Menu Item objects. Adds new menu items to the statically
-	 * accessible menuItemList list.
+	 * Constructor for Menu Item objects. Assigns the next unused item ID and
+	 * adds new menu items to the statically accessible menuItemList list.
 	 * 
 	 * @param name
 	 *            String of short name for menu item.
 	 * @param description
 	 *            String of item description.
 	 * @param price
-	 *            Double of item price.
+	 *            double of item price in pounds.
 	 * @param type
 	 *            MenuModelItem.ItemType enum of item type.
 	 */
-	public MenuItemModel(String name, String description, Double price, ItemType type) {
-		this.name = new SimpleStringProperty(name);
-		this.description = new SimpleStringProperty(description);
-		this.price = new SimpleDoubleProperty(price);
-		this.type = new SimpleStringProperty(type.toString());
+	public MenuItemModel(String name, String description, double price, ItemType type) {
+		this.itemId = nextItemId++;
+		this.name = name;
+		this.description = description;
+		this.pricePence = toPence(price);
+		this.type = type;
 		menuItemList.add(this);
 	}
 
@@ -63,11 +103,91 @@ public class MenuItemModel {
 		return menuItemList;
 	}
 
+	/**
+	 * Static method for finding a menu item in the menu by item ID.
+	 * 
+	 * @param itemId
+	 *            long of item ID to find.
+	 * @return MenuItemModel object with the item ID, or null if there is none.
+	 */
+	public static MenuItemModel getMenuItemById(long itemId) {
+		return itemsById.get(itemId);
+	}
+
+	/**
+	 * Static method for finding a menu item in the menu by name. If more than
+	 * one menu item has the name, returns the first one added.
+	 * 
+	 * @param name
+	 *            String of name to find.
+	 * @return MenuItemModel object with the name, or null if there is none.
+	 */
+	public static MenuItemModel getMenuItemByName(String name) {
+		List<MenuItemModel> namedItems = itemsByName.get(name);
+		return namedItems != null ? namedItems.get(0) : null;
+	}
+
+	/**
+	 * Static method for finding the menu item of a saved order line. The item
+	 * with the saved ID is used if it also has the saved name. Otherwise, e.g.
+	 * for lines saved before item IDs were saved or imported from another
+	 * menu, the line is looked up by name. Only if no item has the name is
+	 * the item with the ID used, as the line's item has been renamed since.
+	 *
+	 * @param name
+	 *            String of saved name to find.
+	 * @param itemId
+	 *            long of saved item ID to find, or 0 if not saved.
+	 * @return MenuItemModel object, or null if there is none.
+	 */
+	public static MenuItemModel getMenuItem(String name, long itemId) {
+		MenuItemModel item = itemId > 0 ? getMenuItemById(itemId) : null;
+		if (item != null && item.getName().equals(name)) {
+			return item;
+		}
+
+		MenuItemModel namedItem = getMenuItemByName(name);
+		return namedItem != null ? namedItem : item;
+	}
+
+	/**
+	 * @return long value of object item ID. Unique among loaded menu items and
+	 *         kept when menu items are renamed, saved and reloaded.
+	 */
+	public long getItemId() {
+		return itemId;
+	}
+
+	/**
+	 * Sets the item ID, e.g. when loading from file. IDs assigned to new menu
+	 * items afterwards will be greater than this value. If another item in the
+	 * menu already has the ID, e.g. in a damaged file, that item keeps it and
+	 * this item keeps its own ID.
+	 * 
+	 * @param itemId
+	 *            long of item ID to set.
+	 */
+	public void setItemId(long itemId) {
+		nextItemId = Math.max(nextItemId, itemId + 1);
+
+		MenuItemModel holder = itemsById.get(itemId);
+		if (holder != null && holder != this) {
+			System.err.println("Menu item ID " + itemId + " is already used by \"" + holder.getName() + "\", \""
+					+ name + "\" keeps ID " + this.itemId);
+			return;
+		}
+
+		if (itemsById.remove(this.itemId, this)) {
+			itemsById.put(itemId, this);
+		}
+		this.itemId = itemId;
+	}
+
 	/**
 	 * @return String value of object name.
 	 */
 	public String getName() {
-		return name.get();
+		return name;
 	}
 
 	/**
@@ -75,14 +195,24 @@ public class MenuItemModel {
 	 *            String value of name to set.
 	 */
 	public void setName(String name) {
-		this.name.set(name);
+		String oldName = this.name;
+		this.name = name;
+		if (properties != null) {
+			properties.name.set(name);
+		}
+
+		// move the name index entry if the item is in the menu
+		if (itemsById.get(itemId) == this) {
+			removeName(oldName);
+			addName(name);
+		}
 	}
 
 	/**
 	 * @return String value of object description.
 	 */
 	public String getDescription() {
-		return description.get();
+		return description;
 	}
 
 	/**
@@ -90,29 +220,54 @@ public class MenuItemModel {
 	 *            String value of description to set.
 	 */
 	public void setDescription(String description) {
-		this.description.set(description);
+		this.description = description;
+		if (properties != null) {
+			properties.description.set(description);
+		}
+	}
+
+	/**
+	 * Static method for converting an amount of money in pounds to whole
+	 * pence, rounding to the nearest penny.
+	 * 
+	 * @param amount
+	 *            double of amount in pounds.
+	 * @return long of amount in pence.
+	 */
+	public static long toPence(double amount) {
+		return Math.round(amount * 100);
+	}
+
+	/**
+	 * @return double value of object price in pounds.
+	 */
+	public double getPrice() {
+		return pricePence / 100.0;
 	}
 
 	/**
-	 * @return Double value of object price.
+	 * @return long value of object price in pence.
 	 */
-	public Double getPrice() {
-		return price.get();
+	public long getPricePence() {
+		return pricePence;
 	}
 
 	/**
 	 * @param price
-	 *            Double value of price to set.
+	 *            double value of price to set in pounds.
 	 */
-	public void setPrice(Double price) {
-		this.price.set(price);
+	public void setPrice(double price) {
+		this.pricePence = toPence(price);
+		if (properties != null) {
+			properties.price.set(getPrice());
+		}
 	}
 
 	/**
-	 * @return String value of object type.
+	 * @return MenuItemModel.ItemType enum of object type.
 	 */
-	public String getType() {
-		return type.get();
+	public ItemType getType() {
+		return type;
 	}
 
 	/**
@@ -120,7 +275,77 @@ public class MenuItemModel {
 	 *            MenuItemModel.ItemType enum of type to set.
 	 */
 	public void setType(ItemType type) {
-		this.type.set(type.toString());
+		this.type = type;
+		if (properties != null) {
+			properties.type.set(type);
+		}
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of name for binding to a view.
+	 */
+	public ReadOnlyStringProperty nameProperty() {
+		return properties().name.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of description for binding to a view.
+	 */
+	public ReadOnlyStringProperty descriptionProperty() {
+		return properties().description.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyDoubleProperty of price for binding to a view.
+	 */
+	public ReadOnlyDoubleProperty priceProperty() {
+		return properties().price.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyObjectProperty of type for binding to a view.
+	 */
+	public ReadOnlyObjectProperty<ItemType> typeProperty() {
+		return properties().type.getReadOnlyProperty();
+	}
+
+	private PropertyAdapters properties() {
+		if (properties == null) {
+			properties = new PropertyAdapters(this);
+		}
+		return properties;
+	}
+
+	private void addToIndexes() {
+		// an item added back to the menu gives up an ID taken in the meantime
+		MenuItemModel holder = itemsById.get(itemId);
+		if (holder != null && holder != this) {
+			itemId = nextItemId++;
+		}
+		itemsById.put(itemId, this);
+		addName(getName());
+	}
+
+	private void removeFromIndexes() {
+		itemsById.remove(itemId, this);
+		removeName(getName());
+	}
+
+	private void addName(String name) {
+		List<MenuItemModel> namedItems = itemsByName.get(name);
+		if (namedItems == null) {
+			// names are nearly always unique
+			namedItems = new ArrayList<>(1);
+			itemsByName.put(name, namedItems);
+		}
+		namedItems.add(this);
+	}
+
+	private void removeName(String name) {
+		List<MenuItemModel> namedItems = itemsByName.get(name);
+		if (namedItems != null && namedItems.remove(this) && namedItems.isEmpty()) {
+			itemsByName.remove(name);
+		}
 	}
 
 	/*
@@ -130,7 +355,26 @@ public class MenuItemModel {
 	 */
 	@Override
 	public String toString() {
-		return name.get();
+		return name;
+	}
+
+	/*
+	 * JavaFX properties of a menu item bound to a view. Read only, as the menu
+	 * item setters keep them in step.
+	 */
+	private static class PropertyAdapters {
+
+		private ReadOnlyStringWrapper name;
+		private ReadOnlyStringWrapper description;
+		private ReadOnlyDoubleWrapper price;
+		private ReadOnlyObjectWrapper<ItemType> type;
+
+		private PropertyAdapters(MenuItemModel menuItem) {
+			name = new ReadOnlyStringWrapper(menuItem.name);
+			description = new ReadOnlyStringWrapper(menuItem.description);
+			price = new ReadOnlyDoubleWrapper(menuItem.getPrice());
+			type = new ReadOnlyObjectWrapper<>(menuItem.type);
+		}
 	}
 
 }
@@ -0,0 +1,111 @@
+package gc01.cw.robf.model;
+
+/**
+ * Model for one line of an order: a menu item, how many of it were ordered
+ * and its unit price when it was first added to the order. Lines are
+ * immutable; OrderModel replaces a line to change its quantity so that views
+ * of the order's lines refresh.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public final class OrderLineModel {
+
+	private final MenuItemModel menuItem;
+	private final int quantity;
+	private final long unitPricePence;
+
+	/**
+	 * Constructor for OrderLineModel objects.
+	 *
+	 * @param menuItem
+	 *            MenuItemModel of the item ordered.
+	 * @param quantity
+	 *            int number of the item ordered.
+	 * @param unitPricePence
+	 *            long price of one of the item in pence.
+	 */
+	public OrderLineModel(MenuItemModel menuItem, int quantity, long unitPricePence) {
+		this.menuItem = menuItem;
+		this.quantity = quantity;
+		this.unitPricePence = unitPricePence;
+	}
+
+	/**
+	 * @return MenuItemModel of the item ordered.
+	 */
+	public MenuItemModel getMenuItem() {
+		return menuItem;
+	}
+
+	/**
+	 * @return int number of the item ordered.
+	 */
+	public int getQuantity() {
+		return quantity;
+	}
+
+	/**
+	 * @return long price of one of the item in pence.
+	 */
+	public long getUnitPricePence() {
+		return unitPricePence;
+	}
+
+	/**
+	 * @return double price of one of the item in pounds.
+	 */
+	public double getUnitPrice() {
+		return unitPricePence / 100.0;
+	}
+
+	/**
+	 * @return long price of the whole line in pence.
+	 */
+	public long getLinePence() {
+		return quantity * unitPricePence;
+	}
+
+	/**
+	 * @return String value of the menu item name.
+	 */
+	public String getName() {
+		return menuItem.getName();
+	}
+
+	/**
+	 * @return String value of the menu item description.
+	 */
+	public String getDescription() {
+		return menuItem.getDescription();
+	}
+
+	/**
+	 * @return MenuItemModel.ItemType enum of the menu item type.
+	 */
+	public MenuItemModel.ItemType getType() {
+		return menuItem.getType();
+	}
+
+	/**
+	 * @param quantity
+	 *            int number of the item ordered.
+	 * @return OrderLineModel of the same item and unit price with the new
+	 *         quantity.
+	 */
+	public OrderLineModel withQuantity(int quantity) {
+		return new OrderLineModel(menuItem, quantity, unitPricePence);
+	}
+
+	/*
+	 * Overridden toString method to return the quantity and name of the menu
+	 * item, e.g. 6 x Pint.
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return quantity + " x " + menuItem.getName();
+	}
+}
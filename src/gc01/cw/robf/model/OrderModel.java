@@ -1,17 +1,41 @@
 package gc01.cw.robf.model;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-
-import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 
 /**
- * Model for Order objects. Uses Property and Observable types for most
- * variables to allow JavaFX tableView refresh.
+ * Model for Order objects. Fields are held as plain values so that orders
+ * which are never shown cost little memory. JavaFX properties and the
+ * observable line list, which allow tableView and listView refresh, are
+ * created the first time a view asks for them and kept in step by the
+ * setters.
+ * <p>
+ * Status is held as an OrderStatus and date-times as epoch milliseconds, so
+ * that comparisons are primitive. Date-times are formatted as yyyy/MM/dd
+ * HH:mm:ss only for display and text files.
+ * <p>
+ * Open orders in the statically accessible order list are indexed by table
+ * number, oldest opened first. The index follows orders as they are added to
+ * or removed from the list and as their status, table number or opened
+ * date-time change.
  * <p>
  * Returning current date-time adapted from
  * https://www.mkyong.com/java/java-how-to-get-current-date-time-date-and-calender/
@@ -33,45 +57,111 @@ public class OrderModel {
 		OPEN, CLOSED;
 	}
 
-	private SimpleIntegerProperty tableNumber;
-	private SimpleStringProperty creatingUser;
-	private SimpleStringProperty status;
-	private SimpleStringProperty dateOpened;
-	private SimpleStringProperty dateClosed;
-	private SimpleDoubleProperty totalCost;
-	private SimpleStringProperty comments;
-	private ObservableList<MenuItemModel> itemList = FXCollections.observableArrayList();
+	/**
+	 * Epoch milliseconds of a date-time which has not been set, formatted as
+	 * N/A.
+	 */
+	public static final long NO_DATE = Long.MIN_VALUE;
+
+	private long orderId;
+	private int tableNumber;
+	private String creatingUser;
+	private OrderStatus status;
+	private long dateOpened;
+	private long dateClosed;
+	private long totalPence;
+	private String comments;
+	private ArrayList<OrderLineModel> lines = new ArrayList<>();
+	// created on first use by a view, backed by lines
+	private ObservableList<OrderLineModel> lineList;
+	private PropertyAdapters properties;
+	private boolean inOrderList;
 
 	private static ObservableList<OrderModel> orderList = FXCollections.observableArrayList();
 	private static OrderModel currentOrder;
+	private static long nextOrderId = 1;
+	private static Map<Integer, List<OrderModel>> openOrdersByTable = new HashMap<>();
+
+	static {
+		// keep the open order index in step with the order list
+		orderList.addListener(new ListChangeListener<OrderModel>() {
+			@Override
+			public void onChanged(Change<? extends OrderModel> change) {
+				while (change.next()) {
+					for (OrderModel order : change.getRemoved()) {
+						order.removeFromOpenOrders();
+						order.inOrderList = false;
+					}
+					for (OrderModel order : change.getAddedSubList()) {
+						order.inOrderList = true;
+						order.addToOpenOrders();
+					}
+				}
+			}
+		});
+	}
 
-	private DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+	private static DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
 
 	/**
 	 * Constructor for OrderModel objects. Automatically sets status to OPEN and
-	 * dateOpened to the current date-time. Adds new orders to the statically
-	 * accessible orderList list.
+	 * dateOpened to the current date-time and assigns the next unused order
+	 * ID. Adds new orders to the statically accessible orderList list.
 	 * 
 	 * @param tableNumber
 	 *            Integer value of table number to create order against.
+	 * @param creatingUser
+	 *            String of full name of the user creating the order.
 	 */
-	public OrderModel(Integer tableNumber) {
-		this.tableNumber = new SimpleIntegerProperty(tableNumber);
-		this.creatingUser = new SimpleStringProperty(UserModel.getCurrentUser().getFullName());
-		this.status = new SimpleStringProperty(OrderModel.OrderStatus.OPEN.toString());
-		LocalDateTime now = LocalDateTime.now();
-		this.dateOpened = new SimpleStringProperty(dtf.format(now));
-		this.dateClosed = new SimpleStringProperty("N/A");
-		this.totalCost = new SimpleDoubleProperty(0.0);
-		this.comments = new SimpleStringProperty("N/A");
+	public OrderModel(Integer tableNumber, String creatingUser) {
+		this.orderId = nextOrderId++;
+		this.tableNumber = tableNumber;
+		this.creatingUser = creatingUser;
+		this.status = OrderModel.OrderStatus.OPEN;
+		this.dateOpened = now();
+		this.dateClosed = NO_DATE;
+		this.totalPence = 0;
+		this.comments = "N/A";
 
 		orderList.add(this);
 	}
 
 	/**
-	 * Static method for returning the list of all orders.
+	 * Constructor for OrderModel objects copied from a saved OrderRecord, such
+	 * as an archived order. Keeps the saved order ID and field values and does
+	 * not add the order to the statically accessible orderList list. Uses name
+	 * and item ID of the lines contained within the record to lookup
+	 * MenuItemModel objects.
+	 * 
+	 * @param record
+	 *            OrderRecord of saved order fields.
+	 */
+	public OrderModel(OrderRecord record) {
+		this.orderId = record.getOrderId();
+		nextOrderId = Math.max(nextOrderId, orderId + 1);
+		this.tableNumber = record.getTableNumber();
+		this.creatingUser = record.getCreatingUser();
+		this.status = record.getStatus();
+		this.dateOpened = record.getOpenedMillis();
+		this.dateClosed = record.getClosedMillis();
+		this.totalPence = record.getTotalPence();
+		this.comments = record.getComments();
+
+		lines.ensureCapacity(record.getLines().size());
+		for (OrderRecord.Line line : record.getLines()) {
+			MenuItemModel menuItem = MenuItemModel.getMenuItem(line.getName(), line.getItemId());
+			if (menuItem != null) {
+				lines.add(new OrderLineModel(menuItem, line.getQuantity(), line.getUnitPricePence()));
+			}
+		}
+	}
+
+	/**
+	 * Static method for returning the list of loaded orders: open orders and
+	 * orders closed since startup. Older closed orders are kept in the order
+	 * archive.
 	 * 
-	 * @return ObservableList containing all OrderModel objects.
+	 * @return ObservableList containing all loaded OrderModel objects.
 	 */
 	public static ObservableList<OrderModel> getOrderList() {
 		return orderList;
@@ -98,10 +188,88 @@ public class OrderModel {
 	}
 
 	/**
-	 * @return String value of object status.
+	 * Static method for making sure that IDs assigned to new orders are
+	 * greater than an order ID saved elsewhere, e.g. in an archive.
+	 * 
+	 * @param orderId
+	 *            long of the highest order ID in use.
+	 */
+	public static void reserveOrderIds(long orderId) {
+		nextOrderId = Math.max(nextOrderId, orderId + 1);
+	}
+
+	/**
+	 * Static method for converting a date-time in the format yyyy/MM/dd
+	 * HH:mm:ss to epoch milliseconds. The date-time is read as UTC so that it
+	 * formats back unchanged whatever the time zone.
+	 * 
+	 * @param dateTime
+	 *            String of date-time to convert.
+	 * @return long epoch milliseconds, or NO_DATE if the date-time can not be
+	 *         read, e.g. N/A.
 	 */
-	public String getStatus() {
-		return status.get();
+	public static long toEpochMillis(String dateTime) {
+		try {
+			return LocalDateTime.parse(dateTime, dtf).toInstant(ZoneOffset.UTC).toEpochMilli();
+		} catch (DateTimeParseException e) {
+			return NO_DATE;
+		}
+	}
+
+	/**
+	 * Static method for formatting epoch milliseconds from toEpochMillis as a
+	 * date-time in the format yyyy/MM/dd HH:mm:ss.
+	 * 
+	 * @param epochMillis
+	 *            long epoch milliseconds to format.
+	 * @return String of date-time, or N/A for NO_DATE.
+	 */
+	public static String formatDateTime(long epochMillis) {
+		if (epochMillis == NO_DATE) {
+			return "N/A";
+		}
+		return dtf.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC));
+	}
+
+	/**
+	 * Static method for returning the open orders on a table without
+	 * searching the order list.
+	 * 
+	 * @param tableNumber
+	 *            int of table number.
+	 * @return unmodifiable List of open OrderModel objects on the table,
+	 *         oldest opened first. Reflects later changes to the orders.
+	 */
+	public static List<OrderModel> getOpenOrders(int tableNumber) {
+		List<OrderModel> openOrders = openOrdersByTable.get(tableNumber);
+		return openOrders != null ? Collections.unmodifiableList(openOrders) : Collections.emptyList();
+	}
+
+	/**
+	 * @return long value of object order ID. Unique among loaded orders and
+	 *         kept when orders are saved and reloaded.
+	 */
+	public long getOrderId() {
+		return orderId;
+	}
+
+	/**
+	 * Sets the order ID, e.g. when loading from file. IDs assigned to new
+	 * orders afterwards will be greater than this value.
+	 * 
+	 * @param orderId
+	 *            long of order ID to set.
+	 */
+	public void setOrderId(long orderId) {
+		this.orderId = orderId;
+		nextOrderId = Math.max(nextOrderId, orderId + 1);
+	}
+
+	/**
+	 * @return OrderModel.OrderStatus enum of object status.
+	 */
+	public OrderStatus getStatus() {
+		return status;
 	}
 
 	/**
@@ -112,10 +280,15 @@ public class OrderModel {
 	 *            OrderModel.OrderStatus enum of status to set.
 	 */
 	public void setStatus(OrderStatus status) {
-		this.status.set(status.toString());
+		removeFromOpenOrders();
+		this.status = status;
+		addToOpenOrders();
+		if (properties != null) {
+			properties.status.set(status);
+		}
 
-		if (this.status.get().equals(OrderStatus.CLOSED.toString())) {
-			closeOrder();
+		if (status == OrderStatus.CLOSED) {
+			setClosedMillis(now());
 		}
 
 	}
@@ -124,7 +297,7 @@ public class OrderModel {
 	 * @return String value of object creating user username.
 	 */
 	public String getCreatingUser() {
-		return creatingUser.get();
+		return creatingUser;
 	}
 
 	/**
@@ -132,14 +305,17 @@ public class OrderModel {
 	 *            String of creating user username.
 	 */
 	public void setCreatingUser(String creatingUser) {
-		this.creatingUser.set(creatingUser);
+		this.creatingUser = creatingUser;
+		if (properties != null) {
+			properties.creatingUser.set(creatingUser);
+		}
 	}
 
 	/**
 	 * @return Integer value of object table number.
 	 */
 	public Integer getTableNumber() {
-		return tableNumber.get();
+		return tableNumber;
 	}
 
 	/**
@@ -147,39 +323,47 @@ public class OrderModel {
 	 *            Integer of table number for object.
 	 */
 	public void setTableNumber(Integer tableNumber) {
-		this.tableNumber.set(tableNumber);
+		removeFromOpenOrders();
+		this.tableNumber = tableNumber;
+		addToOpenOrders();
+		if (properties != null) {
+			properties.tableNumber.set(tableNumber);
+		}
 	}
 
 	/**
-	 * Calculates total order cost based on prices of items in order item list.
+	 * Total order cost is a running total, which adds or takes away the price
+	 * of each item as it is added to or removed from the order rather than
+	 * adding up the item list.
 	 * 
-	 * @return Double value of object total cost.
+	 * @return double value of object total cost in pounds.
 	 */
-	public Double getTotalCost() {
-		Double tempCost = 0.0;
-
-		for (MenuItemModel item : this.getItemList()) {
-			tempCost += (Double) item.getPrice();
-		}
+	public double getTotalCost() {
+		return totalPence / 100.0;
+	}
 
-		totalCost.set(tempCost);
-		return totalCost.get();
+	/**
+	 * @return long value of object total cost in pence.
+	 */
+	public long getTotalPence() {
+		return totalPence;
 	}
 
 	/**
 	 * @param totalCost
-	 *            Double of total order cost. Required as menu items may change
-	 *            in price so we want a way to set this from file
+	 *            double of total order cost in pounds. Required as menu items
+	 *            may change in price so we want a way to set this from file.
+	 *            Must be set after the items have been added.
 	 */
-	public void setTotalCost(Double totalCost) {
-		this.totalCost.set(totalCost);
+	public void setTotalCost(double totalCost) {
+		this.totalPence = MenuItemModel.toPence(totalCost);
 	}
 
 	/**
 	 * @return String value of object comments.
 	 */
 	public String getComments() {
-		return comments.get();
+		return comments;
 	}
 
 	/**
@@ -187,14 +371,18 @@ public class OrderModel {
 	 *            String of order comments to set.
 	 */
 	public void setComments(String comments) {
-		this.comments.set(comments);
+		this.comments = comments;
+		if (properties != null) {
+			properties.comments.set(comments);
+		}
 	}
 
 	/**
-	 * @return String value of object opened datetime.
+	 * @return String value of object opened datetime, formatted yyyy/MM/dd
+	 *         HH:mm:ss.
 	 */
 	public String getDateOpened() {
-		return dateOpened.get();
+		return formatDateTime(dateOpened);
 	}
 
 	/**
@@ -203,14 +391,36 @@ public class OrderModel {
 	 *            HH:mm:ss
 	 */
 	public void setDateOpened(String dateOpened) {
-		this.dateOpened.set(dateOpened);
+		setOpenedMillis(toEpochMillis(dateOpened));
+	}
+
+	/**
+	 * @return long epoch milliseconds of object opened datetime.
+	 */
+	public long getOpenedMillis() {
+		return dateOpened;
 	}
 
 	/**
-	 * @return String value of object closed datetime.
+	 * @param dateOpened
+	 *            long epoch milliseconds of dateOpened for object, as returned
+	 *            by toEpochMillis.
+	 */
+	public void setOpenedMillis(long dateOpened) {
+		removeFromOpenOrders();
+		this.dateOpened = dateOpened;
+		addToOpenOrders();
+		if (properties != null) {
+			properties.dateOpened.set(formatDateTime(dateOpened));
+		}
+	}
+
+	/**
+	 * @return String value of object closed datetime, formatted yyyy/MM/dd
+	 *         HH:mm:ss, or N/A if open.
 	 */
 	public String getDateClosed() {
-		return dateClosed.get();
+		return formatDateTime(dateClosed);
 	}
 
 	/**
@@ -219,41 +429,283 @@ public class OrderModel {
 	 *            HH:mm:ss
 	 */
 	public void setDateClosed(String dateClosed) {
-		this.dateClosed.set(dateClosed);
+		setClosedMillis(toEpochMillis(dateClosed));
+	}
+
+	/**
+	 * @return long epoch milliseconds of object closed datetime, or NO_DATE.
+	 */
+	public long getClosedMillis() {
+		return dateClosed;
+	}
+
+	/**
+	 * @param dateClosed
+	 *            long epoch milliseconds of dateClosed for object, as returned
+	 *            by toEpochMillis, or NO_DATE.
+	 */
+	public void setClosedMillis(long dateClosed) {
+		this.dateClosed = dateClosed;
+		if (properties != null) {
+			properties.dateClosed.set(formatDateTime(dateClosed));
+		}
+	}
+
+	/**
+	 * Creates the observable line list the first time it is asked for. For
+	 * views which show the lines; use the item methods to change them.
+	 * 
+	 * @return ObservableList of OrderLineModel objects of order lines.
+	 */
+	public ObservableList<OrderLineModel> getLineList() {
+		if (lineList == null) {
+			lineList = FXCollections.observableList(lines);
+
+			// keep the running total in step with replaced lines
+			lineList.addListener(new ListChangeListener<OrderLineModel>() {
+				@Override
+				public void onChanged(Change<? extends OrderLineModel> change) {
+					while (change.next()) {
+						for (OrderLineModel line : change.getRemoved()) {
+							totalPence -= line.getLinePence();
+						}
+						for (OrderLineModel line : change.getAddedSubList()) {
+							totalPence += line.getLinePence();
+						}
+					}
+				}
+			});
+		}
+		return lineList;
+	}
+
+	/**
+	 * @return unmodifiable List of OrderLineModel objects of order lines,
+	 *         which reflects later changes to the lines.
+	 */
+	public List<OrderLineModel> getLines() {
+		return Collections.unmodifiableList(lines);
+	}
+
+	/**
+	 * Adds one of an item to the order at its current price.
+	 * 
+	 * @param menuItem
+	 *            MenuItemModel of item to add.
+	 */
+	public void addItem(MenuItemModel menuItem) {
+		addItem(menuItem, 1, menuItem.getPricePence());
 	}
 
 	/**
-	 * @return ObservableList of MenuItemModel objects of order items.
+	 * Adds a number of an item to the order at a unit price, e.g. when loading
+	 * from file, and adds the cost to the total. The quantity is added to the
+	 * line of the same item at the same unit price if there is one.
+	 * 
+	 * @param menuItem
+	 *            MenuItemModel of item to add.
+	 * @param quantity
+	 *            int number of the item to add.
+	 * @param unitPricePence
+	 *            long price of one of the item in pence.
 	 */
-	public ObservableList<MenuItemModel> getItemList() {
-		return itemList;
+	public void addItem(MenuItemModel menuItem, int quantity, long unitPricePence) {
+		for (int i = 0; i < lines.size(); i++) {
+			OrderLineModel line = lines.get(i);
+			if (line.getMenuItem() == menuItem && line.getUnitPricePence() == unitPricePence) {
+				setLine(i, line.withQuantity(line.getQuantity() + quantity));
+				return;
+			}
+		}
+
+		OrderLineModel line = new OrderLineModel(menuItem, quantity, unitPricePence);
+		if (lineList != null) {
+			lineList.add(line);
+		} else {
+			lines.add(line);
+			totalPence += line.getLinePence();
+		}
 	}
 
 	/**
-	 * Must pass full menu item list as method overwrites existing items.
+	 * Removes one of the item of a line from the order, and the line itself
+	 * if it was the last one, taking its unit price from the total cost.
 	 * 
-	 * @param itemList
-	 *            ObservableList of MenuItemModel containing list of menu items
-	 *            in order.
+	 * @param line
+	 *            OrderLineModel of line to remove an item from.
 	 */
-	public void setItemList(ObservableList<MenuItemModel> itemList) {
-		this.itemList.clear();
-		this.itemList.addAll(itemList);
+	public void removeItem(OrderLineModel line) {
+		int index = lines.indexOf(line);
+		if (index < 0) {
+			return;
+		}
+
+		if (line.getQuantity() > 1) {
+			setLine(index, line.withQuantity(line.getQuantity() - 1));
+		} else if (lineList != null) {
+			lineList.remove(index);
+		} else {
+			lines.remove(index);
+			totalPence -= line.getLinePence();
+		}
 	}
 
 	/**
-	 * @return int of total number of items in order.
+	 * Must pass full line list as method overwrites existing lines. The total
+	 * cost becomes the sum of the costs of the new lines.
+	 * 
+	 * @param lineList
+	 *            List of OrderLineModel containing list of lines in order.
+	 */
+	public void setLines(List<OrderLineModel> lineList) {
+		if (this.lineList != null) {
+			this.lineList.setAll(lineList);
+		} else {
+			lines.clear();
+			lines.addAll(lineList);
+			totalPence = 0;
+			for (OrderLineModel line : lines) {
+				totalPence += line.getLinePence();
+			}
+		}
+	}
+
+	/**
+	 * @return int of total number of items in order, adding up the quantity of
+	 *         each line.
 	 */
 	public int getNumberItems() {
-		return this.itemList.size();
+		int numberItems = 0;
+		for (OrderLineModel line : lines) {
+			numberItems += line.getQuantity();
+		}
+		return numberItems;
+	}
+
+	/**
+	 * @return ReadOnlyIntegerProperty of table number for binding to a view.
+	 */
+	public ReadOnlyIntegerProperty tableNumberProperty() {
+		return properties().tableNumber.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of creating user for binding to a view.
+	 */
+	public ReadOnlyStringProperty creatingUserProperty() {
+		return properties().creatingUser.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyObjectProperty of status for binding to a view.
+	 */
+	public ReadOnlyObjectProperty<OrderStatus> statusProperty() {
+		return properties().status.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of opened datetime for binding to a view.
+	 */
+	public ReadOnlyStringProperty dateOpenedProperty() {
+		return properties().dateOpened.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of closed datetime for binding to a view.
+	 */
+	public ReadOnlyStringProperty dateClosedProperty() {
+		return properties().dateClosed.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of comments for binding to a view.
+	 */
+	public ReadOnlyStringProperty commentsProperty() {
+		return properties().comments.getReadOnlyProperty();
+	}
+
+	private PropertyAdapters properties() {
+		if (properties == null) {
+			properties = new PropertyAdapters(this);
+		}
+		return properties;
+	}
+
+	/*
+	 * Replaces a line, e.g. to change its quantity, keeping the running total
+	 * in step.
+	 */
+	private void setLine(int index, OrderLineModel line) {
+		if (lineList != null) {
+			lineList.set(index, line);
+		} else {
+			totalPence += line.getLinePence() - lines.set(index, line).getLinePence();
+		}
 	}
 
 	/*
-	 * Private method for setting the dateClosed value when setting order status
-	 * to CLOSED.
+	 * Adds the order to the open order index if it is open and in the order
+	 * list, after any open orders on the table opened at the same time or
+	 * earlier. New orders are the latest so the search starts from the end.
 	 */
-	private void closeOrder() {
-		LocalDateTime now = LocalDateTime.now();
-		this.dateClosed = new SimpleStringProperty(dtf.format(now));
+	private void addToOpenOrders() {
+		if (!inOrderList || status != OrderStatus.OPEN) {
+			return;
+		}
+
+		List<OrderModel> openOrders = openOrdersByTable.get(getTableNumber());
+		if (openOrders == null) {
+			openOrders = new ArrayList<>();
+			openOrdersByTable.put(getTableNumber(), openOrders);
+		}
+
+		int index = openOrders.size();
+		while (index > 0 && openOrders.get(index - 1).dateOpened > dateOpened) {
+			index--;
+		}
+		openOrders.add(index, this);
+	}
+
+	private void removeFromOpenOrders() {
+		if (!inOrderList || status != OrderStatus.OPEN) {
+			return;
+		}
+
+		List<OrderModel> openOrders = openOrdersByTable.get(getTableNumber());
+		if (openOrders != null && openOrders.remove(this) && openOrders.isEmpty()) {
+			openOrdersByTable.remove(getTableNumber());
+		}
+	}
+
+	/*
+	 * Returns the current date-time as epoch milliseconds to the second, as
+	 * saved in files.
+	 */
+	private static long now() {
+		LocalDateTime now = LocalDateTime.now().withNano(0);
+		return now.toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+
+	/*
+	 * JavaFX properties of an order bound to a view. Read only, as the order
+	 * setters keep them in step.
+	 */
+	private static class PropertyAdapters {
+
+		private ReadOnlyIntegerWrapper tableNumber;
+		private ReadOnlyStringWrapper creatingUser;
+		private ReadOnlyObjectWrapper<OrderStatus> status;
+		private ReadOnlyStringWrapper dateOpened;
+		private ReadOnlyStringWrapper dateClosed;
+		private ReadOnlyStringWrapper comments;
+
+		private PropertyAdapters(OrderModel order) {
+			tableNumber = new ReadOnlyIntegerWrapper(order.tableNumber);
+			creatingUser = new ReadOnlyStringWrapper(order.creatingUser);
+			status = new ReadOnlyObjectWrapper<>(order.status);
+			dateOpened = new ReadOnlyStringWrapper(formatDateTime(order.dateOpened));
+			dateClosed = new ReadOnlyStringWrapper(formatDateTime(order.dateClosed));
+			comments = new ReadOnlyStringWrapper(order.comments);
+		}
 	}
 }
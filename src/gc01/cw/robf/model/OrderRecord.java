@@ -0,0 +1,247 @@
+package gc01.cw.robf.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable copy of the saved fields of an OrderModel object. The menu item of
+ * each order line is held by name and item ID, as it is in saved files. Records are captured on the JavaFX
+ * application thread and can then be written to file from any thread while
+ * the original orders continue to change.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public final class OrderRecord {
+
+	private final long orderId;
+	private final int tableNumber;
+	private final String creatingUser;
+	private final OrderModel.OrderStatus status;
+	private final long dateOpened;
+	private final long dateClosed;
+	private final long totalPence;
+	private final String comments;
+	private final List<Line> lines;
+
+	/**
+	 * Constructor for OrderRecord objects.
+	 *
+	 * @param orderId
+	 *            long of order ID.
+	 * @param tableNumber
+	 *            int of table number.
+	 * @param creatingUser
+	 *            String of creating user full name.
+	 * @param status
+	 *            OrderModel.OrderStatus enum of order status.
+	 * @param dateOpened
+	 *            long epoch milliseconds of opened date-time.
+	 * @param dateClosed
+	 *            long epoch milliseconds of closed date-time, or
+	 *            OrderModel.NO_DATE.
+	 * @param totalPence
+	 *            long of total order cost in pence.
+	 * @param comments
+	 *            String of order comments.
+	 * @param lines
+	 *            List of OrderRecord.Line of the lines in the order.
+	 */
+	public OrderRecord(long orderId, int tableNumber, String creatingUser, OrderModel.OrderStatus status,
+			long dateOpened, long dateClosed, long totalPence, String comments, List<Line> lines) {
+		this.orderId = orderId;
+		this.tableNumber = tableNumber;
+		this.creatingUser = creatingUser;
+		this.status = status;
+		this.dateOpened = dateOpened;
+		this.dateClosed = dateClosed;
+		this.totalPence = totalPence;
+		this.comments = comments;
+		this.lines = Collections.unmodifiableList(new ArrayList<>(lines));
+	}
+
+	/**
+	 * Copies the saved fields of an OrderModel object. Must be called on the
+	 * thread which modifies the order.
+	 *
+	 * @param order
+	 *            OrderModel object to copy.
+	 * @return OrderRecord copy of the order.
+	 */
+	public static OrderRecord of(OrderModel order) {
+		List<Line> lines = new ArrayList<>(order.getLines().size());
+		for (OrderLineModel line : order.getLines()) {
+			lines.add(new Line(line.getName(), line.getMenuItem().getItemId(), line.getQuantity(),
+					line.getUnitPricePence()));
+		}
+
+		return new OrderRecord(order.getOrderId(), order.getTableNumber(), order.getCreatingUser(),
+				order.getStatus(), order.getOpenedMillis(), order.getClosedMillis(), order.getTotalPence(),
+				order.getComments(), lines);
+	}
+
+	/**
+	 * Copies the saved fields of every OrderModel object in a list.
+	 *
+	 * @param orderList
+	 *            List of OrderModel objects to copy.
+	 * @return List of OrderRecord copies in the same order.
+	 */
+	public static List<OrderRecord> copyOf(List<OrderModel> orderList) {
+		List<OrderRecord> records = new ArrayList<>(orderList.size());
+		for (OrderModel order : orderList) {
+			records.add(of(order));
+		}
+		return records;
+	}
+
+	/**
+	 * @return long value of order ID.
+	 */
+	public long getOrderId() {
+		return orderId;
+	}
+
+	/**
+	 * @return int value of table number.
+	 */
+	public int getTableNumber() {
+		return tableNumber;
+	}
+
+	/**
+	 * @return String value of creating user full name.
+	 */
+	public String getCreatingUser() {
+		return creatingUser;
+	}
+
+	/**
+	 * @return OrderModel.OrderStatus enum of order status.
+	 */
+	public OrderModel.OrderStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return String value of opened date-time, formatted yyyy/MM/dd HH:mm:ss.
+	 */
+	public String getDateOpened() {
+		return OrderModel.formatDateTime(dateOpened);
+	}
+
+	/**
+	 * @return long epoch milliseconds of opened date-time.
+	 */
+	public long getOpenedMillis() {
+		return dateOpened;
+	}
+
+	/**
+	 * @return String value of closed date-time, formatted yyyy/MM/dd HH:mm:ss,
+	 *         or N/A.
+	 */
+	public String getDateClosed() {
+		return OrderModel.formatDateTime(dateClosed);
+	}
+
+	/**
+	 * @return long epoch milliseconds of closed date-time, or
+	 *         OrderModel.NO_DATE.
+	 */
+	public long getClosedMillis() {
+		return dateClosed;
+	}
+
+	/**
+	 * @return double value of total order cost in pounds.
+	 */
+	public double getTotalCost() {
+		return totalPence / 100.0;
+	}
+
+	/**
+	 * @return long value of total order cost in pence.
+	 */
+	public long getTotalPence() {
+		return totalPence;
+	}
+
+	/**
+	 * @return String value of order comments.
+	 */
+	public String getComments() {
+		return comments;
+	}
+
+	/**
+	 * @return unmodifiable List of OrderRecord.Line of the lines in the order.
+	 */
+	public List<Line> getLines() {
+		return lines;
+	}
+
+	/**
+	 * Immutable copy of the saved fields of an OrderLineModel object.
+	 *
+	 * @author Rob Farthing
+	 * @version 1.0.0
+	 *
+	 */
+	public static final class Line {
+
+		private final String name;
+		private final long itemId;
+		private final int quantity;
+		private final long unitPricePence;
+
+		/**
+		 * Constructor for OrderRecord.Line objects.
+		 *
+		 * @param name
+		 *            String of menu item name.
+		 * @param itemId
+		 *            long of menu item ID, or 0 if not saved.
+		 * @param quantity
+		 *            int number of the item ordered.
+		 * @param unitPricePence
+		 *            long price of one of the item in pence.
+		 */
+		public Line(String name, long itemId, int quantity, long unitPricePence) {
+			this.name = name;
+			this.itemId = itemId;
+			this.quantity = quantity;
+			this.unitPricePence = unitPricePence;
+		}
+
+		/**
+		 * @return String value of menu item name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return long value of menu item ID, or 0 if not saved.
+		 */
+		public long getItemId() {
+			return itemId;
+		}
+
+		/**
+		 * @return int number of the item ordered.
+		 */
+		public int getQuantity() {
+			return quantity;
+		}
+
+		/**
+		 * @return long price of one of the item in pence.
+		 */
+		public long getUnitPricePence() {
+			return unitPricePence;
+		}
+	}
+}
@@ -1,12 +1,16 @@
 package gc01.cw.robf.model;
 
-import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 /**
- * Model for User objects. Uses Property and Observable types for most variables
- * to allow JavaFX tableView refresh.
+ * Model for User objects. Fields are held as plain values; JavaFX properties,
+ * which allow tableView refresh, are created the first time a view asks for
+ * them and kept in step by the setters.
  * 
  * @author Rob Farthing
  * @version 1.0.0
@@ -25,10 +29,11 @@ public class UserModel {
 		WAITING, MANAGER, BLOCKED;
 	}
 
-	private SimpleStringProperty fullName;
-	private SimpleStringProperty username;
-	private SimpleStringProperty password;
-	private SimpleStringProperty type;
+	private String fullName;
+	private String username;
+	private String password;
+	private UserType type;
+	private PropertyAdapters properties;
 	private static ObservableList<UserModel> userList = FXCollections.observableArrayList();
 	private static UserModel currentUser;
 
@@ -46,10 +51,10 @@ public class UserModel {
 	 *            UserModel.UserType of user type
 	 */
 	public UserModel(String fullName, String username, String password, UserType type) {
-		this.fullName = new SimpleStringProperty(fullName);
-		this.username = new SimpleStringProperty(username);
-		this.password = new SimpleStringProperty(password);
-		this.type = new SimpleStringProperty(type.toString());
+		this.fullName = fullName;
+		this.username = username;
+		this.password = password;
+		this.type = type;
 		userList.add(this);
 	}
 
@@ -86,7 +91,7 @@ public class UserModel {
 	 * @return String value of user full name.
 	 */
 	public String getFullName() {
-		return fullName.get();
+		return fullName;
 	}
 
 	/**
@@ -94,14 +99,17 @@ public class UserModel {
 	 *            String value of full name to set.
 	 */
 	public void setFullName(String fullName) {
-		this.fullName.set(fullName);
+		this.fullName = fullName;
+		if (properties != null) {
+			properties.fullName.set(fullName);
+		}
 	}
 
 	/**
 	 * @return String value of user username.
 	 */
 	public String getUsername() {
-		return username.get();
+		return username;
 	}
 
 	/**
@@ -109,14 +117,17 @@ public class UserModel {
 	 *            String value of username to set.
 	 */
 	public void setUsername(String username) {
-		this.username.set(username);
+		this.username = username;
+		if (properties != null) {
+			properties.username.set(username);
+		}
 	}
 
 	/**
 	 * @return String value of user password.
 	 */
 	public String getPassword() {
-		return password.get();
+		return password;
 	}
 
 	/**
@@ -124,14 +135,14 @@ public class UserModel {
 	 *            String value of password to set.
 	 */
 	public void setPassword(String password) {
-		this.password.set(password);
+		this.password = password;
 	}
 
 	/**
-	 * @return String value of user type.
+	 * @return UserModel.UserType enum of user type.
 	 */
-	public String getType() {
-		return type.get();
+	public UserType getType() {
+		return type;
 	}
 
 	/**
@@ -139,7 +150,38 @@ public class UserModel {
 	 *            UserModel.UserType enum of type to set.
 	 */
 	public void setType(UserType type) {
-		this.type.set(type.toString());
+		this.type = type;
+		if (properties != null) {
+			properties.type.set(type);
+		}
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of full name for binding to a view.
+	 */
+	public ReadOnlyStringProperty fullNameProperty() {
+		return properties().fullName.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty of username for binding to a view.
+	 */
+	public ReadOnlyStringProperty usernameProperty() {
+		return properties().username.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyObjectProperty of type for binding to a view.
+	 */
+	public ReadOnlyObjectProperty<UserType> typeProperty() {
+		return properties().type.getReadOnlyProperty();
+	}
+
+	private PropertyAdapters properties() {
+		if (properties == null) {
+			properties = new PropertyAdapters(this);
+		}
+		return properties;
 	}
 
 	/*
@@ -149,6 +191,23 @@ public class UserModel {
 	 */
 	@Override
 	public String toString() {
-		return fullName.get();
+		return fullName;
+	}
+
+	/*
+	 * JavaFX properties of a user bound to a view. Read only, as the user
+	 * setters keep them in step. The password is never shown so has none.
+	 */
+	private static class PropertyAdapters {
+
+		private ReadOnlyStringWrapper fullName;
+		private ReadOnlyStringWrapper username;
+		private ReadOnlyObjectWrapper<UserType> type;
+
+		private PropertyAdapters(UserModel user) {
+			fullName = new ReadOnlyStringWrapper(user.fullName);
+			username = new ReadOnlyStringWrapper(user.username);
+			type = new ReadOnlyObjectWrapper<>(user.type);
+		}
 	}
 }
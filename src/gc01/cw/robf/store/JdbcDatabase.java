@@ -0,0 +1,229 @@
+package gc01.cw.robf.store;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection to an embedded, file-based SQL database shared by the JDBC
+ * stores. The connection is opened when the first store acquires it and
+ * closed when the last store releases it. Tables and indexes are created the
+ * first time the connection is opened.
+ * <p>
+ * The schema uses plain SQL types and CREATE ... IF NOT EXISTS statements so
+ * that any embedded engine with a JDBC driver on the classpath, such as H2 or
+ * SQLite, can be used.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class JdbcDatabase {
+
+	private static final String[] SCHEMA = {
+			"CREATE TABLE IF NOT EXISTS orders (order_id BIGINT PRIMARY KEY, table_number INTEGER NOT NULL, "
+					+ "creating_user VARCHAR(255) NOT NULL, status VARCHAR(16) NOT NULL, "
+					+ "date_opened VARCHAR(19) NOT NULL, date_closed VARCHAR(19) NOT NULL, "
+					+ "total_cost DOUBLE NOT NULL, comments VARCHAR(4000) NOT NULL, "
+					+ "search_text VARCHAR(8000) NOT NULL)",
+			"CREATE INDEX IF NOT EXISTS orders_table_status ON orders (table_number, status, date_opened)",
+			"CREATE INDEX IF NOT EXISTS orders_status ON orders (status)",
+			"CREATE INDEX IF NOT EXISTS orders_date_opened ON orders (date_opened)",
+			"CREATE INDEX IF NOT EXISTS orders_creating_user ON orders (creating_user)",
+			"CREATE TABLE IF NOT EXISTS order_items (order_id BIGINT NOT NULL, item_index INTEGER NOT NULL, "
+					+ "item_name VARCHAR(255) NOT NULL, PRIMARY KEY (order_id, item_index))",
+			"CREATE TABLE IF NOT EXISTS order_lines (order_id BIGINT NOT NULL, line_index INTEGER NOT NULL, "
+					+ "item_id BIGINT NOT NULL, item_name VARCHAR(255) NOT NULL, quantity INTEGER NOT NULL, "
+					+ "unit_price_pence BIGINT NOT NULL, PRIMARY KEY (order_id, line_index))",
+			"CREATE TABLE IF NOT EXISTS menu_items (item_index INTEGER PRIMARY KEY, item_id BIGINT NOT NULL, "
+					+ "name VARCHAR(255) NOT NULL, description VARCHAR(4000) NOT NULL, price DOUBLE NOT NULL, "
+					+ "item_type VARCHAR(16) NOT NULL)",
+			"CREATE TABLE IF NOT EXISTS users (user_index INTEGER PRIMARY KEY, full_name VARCHAR(255) NOT NULL, "
+					+ "username VARCHAR(255) NOT NULL, password VARCHAR(255) NOT NULL, "
+					+ "user_type VARCHAR(16) NOT NULL)",
+			"CREATE TABLE IF NOT EXISTS log_lines (log_id BIGINT PRIMARY KEY, username VARCHAR(255) NOT NULL, "
+					+ "date_time VARCHAR(19) NOT NULL, message VARCHAR(4000) NOT NULL)",
+			"CREATE INDEX IF NOT EXISTS log_lines_username ON log_lines (username, log_id)",
+			// records which XML files have been converted, so that an
+			// emptied table is not filled from the old file again
+			"CREATE TABLE IF NOT EXISTS conversions (store_name VARCHAR(16) PRIMARY KEY)" };
+
+	private String url;
+	private String user;
+	private String password;
+	private Connection connection;
+	private int users;
+
+	/**
+	 * Constructor for JdbcDatabase objects. Does not connect to the database.
+	 *
+	 * @param url
+	 *            JDBC URL of the database
+	 * @param user
+	 *            Database user name
+	 * @param password
+	 *            Database password
+	 */
+	public JdbcDatabase(String url, String user, String password) {
+		this.url = url;
+		this.user = user;
+		this.password = password;
+	}
+
+	/**
+	 * @return String JDBC URL of the database.
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * Checks whether a JDBC driver on the classpath accepts the database URL.
+	 *
+	 * @return boolean true if a driver is available
+	 */
+	public boolean isDriverAvailable() {
+		try {
+			DriverManager.getDriver(url);
+			return true;
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Opens the connection if no store is using it and creates any missing
+	 * tables. Every call must be matched by a call to release.
+	 *
+	 * @return Connection to the database
+	 * @throws SQLException
+	 *             if the database can not be opened
+	 */
+	public synchronized Connection acquire() throws SQLException {
+		if (connection == null) {
+			connection = DriverManager.getConnection(url, user, password);
+			try (Statement statement = connection.createStatement()) {
+				for (String sql : SCHEMA) {
+					statement.execute(sql);
+				}
+			} catch (SQLException e) {
+				connection.close();
+				connection = null;
+				throw e;
+			}
+		}
+		users++;
+		return connection;
+	}
+
+	/**
+	 * Releases a connection returned by acquire, closing it if no other store
+	 * is using it.
+	 */
+	public synchronized void release() {
+		if (users > 0 && --users == 0) {
+			try {
+				connection.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+			connection = null;
+		}
+	}
+
+	/**
+	 * Checks whether the XML file of a store has already been converted, and
+	 * marks it as converted if not.
+	 *
+	 * @param connection
+	 *            Connection returned by acquire
+	 * @param storeName
+	 *            String name of the store
+	 * @return boolean true if the store still needs to be converted
+	 * @throws SQLException
+	 *             if the database can not be read or written
+	 */
+	static boolean startConversion(Connection connection, String storeName) throws SQLException {
+		try (PreparedStatement select = connection
+				.prepareStatement("SELECT store_name FROM conversions WHERE store_name = ?")) {
+			select.setString(1, storeName);
+			try (ResultSet results = select.executeQuery()) {
+				if (results.next()) {
+					return false;
+				}
+			}
+		}
+
+		try (PreparedStatement insert = connection
+				.prepareStatement("INSERT INTO conversions (store_name) VALUES (?)")) {
+			insert.setString(1, storeName);
+			insert.executeUpdate();
+		}
+		return true;
+	}
+
+	/**
+	 * Runs statements in one transaction, committing them if they all succeed
+	 * and rolling them back otherwise, then returns the connection to
+	 * auto-commit.
+	 *
+	 * @param connection
+	 *            Connection returned by acquire, or null if the database could
+	 *            not be opened
+	 * @param work
+	 *            Work to run in the transaction
+	 * @return boolean true if the transaction was committed
+	 */
+	static boolean inTransaction(Connection connection, Work work) {
+		if (connection == null) {
+			return false;
+		}
+
+		// stores share the connection and load on separate threads at startup,
+		// so one transaction runs at a time
+		synchronized (connection) {
+			return runTransaction(connection, work);
+		}
+	}
+
+	private static boolean runTransaction(Connection connection, Work work) {
+		boolean committed = false;
+		try {
+			connection.setAutoCommit(false);
+			work.run(connection);
+			connection.commit();
+			committed = true;
+		} catch (SQLException e) {
+			e.printStackTrace();
+		} finally {
+			try {
+				if (!committed) {
+					connection.rollback();
+				}
+				connection.setAutoCommit(true);
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+		return committed;
+	}
+
+	/**
+	 * Statements run by inTransaction.
+	 */
+	interface Work {
+
+		/**
+		 * Runs the statements.
+		 *
+		 * @param connection
+		 *            Connection to run the statements on
+		 * @throws SQLException
+		 *             if a statement fails
+		 */
+		void run(Connection connection) throws SQLException;
+	}
+}
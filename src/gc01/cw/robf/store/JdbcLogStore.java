@@ -0,0 +1,155 @@
+package gc01.cw.robf.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import gc01.cw.robf.model.LogModel;
+import gc01.cw.robf.model.UserModel;
+import gc01.cw.robf.utility.PersistenceExecutor;
+import gc01.cw.robf.utility.XmlCustomLogger;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * LogStore which keeps the activity log in the log_lines table of a
+ * JdbcDatabase. Log lines of a user are read with the username index rather
+ * than by scanning the whole log. Log lines are inserted on the persistence
+ * thread. Converts an existing XML activity log the first time it is opened.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class JdbcLogStore implements LogStore {
+
+	private static final String INSERT_LOG_LINE = "INSERT INTO log_lines (log_id, username, date_time, message) "
+			+ "VALUES (?, ?, ?, ?)";
+
+	private JdbcDatabase database;
+	private String xmlLogFilePath;
+	private Connection connection;
+	private long nextLogId = 1;
+
+	/**
+	 * Constructor for JdbcLogStore objects.
+	 *
+	 * @param database
+	 *            JdbcDatabase holding the activity log
+	 * @param xmlLogFilePath
+	 *            Path of an XML activity log to convert on first use
+	 */
+	public JdbcLogStore(JdbcDatabase database, String xmlLogFilePath) {
+		this.database = database;
+		this.xmlLogFilePath = xmlLogFilePath;
+	}
+
+	@Override
+	public synchronized void open() {
+		try {
+			connection = database.acquire();
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		// one-shot conversion of the old XML activity log
+		JdbcDatabase.inTransaction(connection, c -> {
+			if (JdbcDatabase.startConversion(c, "log")) {
+				ObservableList<LogModel> logLines = XmlCustomLogger.readLogLines(xmlLogFilePath);
+				try (PreparedStatement insert = c.prepareStatement(INSERT_LOG_LINE)) {
+					for (LogModel logObject : logLines) {
+						setLogLine(insert, logObject);
+						insert.addBatch();
+					}
+					insert.executeBatch();
+				}
+			}
+		});
+
+		try (Statement statement = connection.createStatement();
+				ResultSet results = statement.executeQuery("SELECT MAX(log_id) FROM log_lines")) {
+			if (results.next()) {
+				nextLogId = results.getLong(1) + 1;
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void write(LogModel logObject) {
+		// log lines are not changed once made
+		PersistenceExecutor.submit("Log line", () -> insertLogLine(logObject));
+	}
+
+	@Override
+	public void flush() {
+		PersistenceExecutor.drain();
+	}
+
+	@Override
+	public ObservableList<LogModel> readLogLinesByUser(UserModel user) {
+		// read after any log line still waiting to be inserted, outside the
+		// lock which inserting takes
+		PersistenceExecutor.drain();
+		return queryLogLines(user);
+	}
+
+	@Override
+	public void close() {
+		PersistenceExecutor.drain();
+		synchronized (this) {
+			if (connection != null) {
+				connection = null;
+				database.release();
+			}
+		}
+	}
+
+	private synchronized boolean insertLogLine(LogModel logObject) {
+		if (connection == null) {
+			return true;
+		}
+
+		try (PreparedStatement insert = connection.prepareStatement(INSERT_LOG_LINE)) {
+			setLogLine(insert, logObject);
+			insert.executeUpdate();
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return false;
+		}
+		return true;
+	}
+
+	private synchronized ObservableList<LogModel> queryLogLines(UserModel user) {
+		ObservableList<LogModel> logLines = FXCollections.observableArrayList();
+		if (connection == null) {
+			return logLines;
+		}
+
+		try (PreparedStatement query = connection.prepareStatement(
+				"SELECT username, date_time, message FROM log_lines WHERE username = ? ORDER BY log_id")) {
+			query.setString(1, user.getUsername());
+			try (ResultSet results = query.executeQuery()) {
+				while (results.next()) {
+					LogModel logObject = new LogModel(results.getString(1), results.getString(3));
+					logObject.setDateTime(results.getString(2));
+					logLines.add(logObject);
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return logLines;
+	}
+
+	private void setLogLine(PreparedStatement insert, LogModel logObject) throws SQLException {
+		insert.setLong(1, nextLogId++);
+		insert.setString(2, logObject.getUsername());
+		insert.setString(3, logObject.getDateTime());
+		insert.setString(4, logObject.getMessage());
+	}
+}
@@ -0,0 +1,116 @@
+package gc01.cw.robf.store;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+
+import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.utility.FileXmlHandler;
+import gc01.cw.robf.utility.PersistenceExecutor;
+import javafx.collections.ObservableList;
+
+/**
+ * MenuStore which keeps menu items in the menu_items table of a JdbcDatabase,
+ * in menu order. Converts an existing menu items XML file the first time it
+ * is loaded.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class JdbcMenuStore implements MenuStore {
+
+	private JdbcDatabase database;
+	private String xmlMenuFilePath;
+
+	/**
+	 * Constructor for JdbcMenuStore objects.
+	 *
+	 * @param database
+	 *            JdbcDatabase holding the menu items
+	 * @param xmlMenuFilePath
+	 *            Path of a menu items XML file to convert on first use
+	 */
+	public JdbcMenuStore(JdbcDatabase database, String xmlMenuFilePath) {
+		this.database = database;
+		this.xmlMenuFilePath = xmlMenuFilePath;
+	}
+
+	@Override
+	public void load() {
+		// load after any save still waiting to be written
+		PersistenceExecutor.drain();
+		ObservableList<MenuItemModel> menuItemList = MenuItemModel.getMenu();
+
+		try {
+			Connection connection = database.acquire();
+			try {
+				// one-shot conversion of the old XML menu items file
+				JdbcDatabase.inTransaction(connection, c -> {
+					if (JdbcDatabase.startConversion(c, "menu")) {
+						File menuFile = new File(xmlMenuFilePath);
+						if (menuFile.exists() && menuFile.length() > 0) {
+							FileXmlHandler.loadMenuItems(xmlMenuFilePath, true);
+							insertMenuItems(c, menuItemList);
+						}
+					}
+				});
+
+				menuItemList.clear();
+				try (Statement statement = connection.createStatement();
+						ResultSet results = statement.executeQuery("SELECT item_id, name, description, price, item_type "
+								+ "FROM menu_items ORDER BY item_index")) {
+					while (results.next()) {
+						MenuItemModel menuItem = new MenuItemModel(results.getString(2), results.getString(3),
+								results.getDouble(4), MenuItemModel.ItemType.valueOf(results.getString(5)));
+						menuItem.setItemId(results.getLong(1));
+					}
+				}
+			} finally {
+				database.release();
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> save(ObservableList<MenuItemModel> menuItemList) {
+		// written on the persistence thread
+		return PersistenceExecutor.submit("Menu items", () -> {
+			Connection connection = database.acquire();
+			try {
+				return JdbcDatabase.inTransaction(connection, c -> {
+					try (Statement statement = c.createStatement()) {
+						statement.executeUpdate("DELETE FROM menu_items");
+					}
+					insertMenuItems(c, menuItemList);
+				});
+			} finally {
+				database.release();
+			}
+		});
+	}
+
+	private static void insertMenuItems(Connection connection, ObservableList<MenuItemModel> menuItemList)
+			throws SQLException {
+		try (PreparedStatement insert = connection.prepareStatement("INSERT INTO menu_items (item_index, item_id, "
+				+ "name, description, price, item_type) VALUES (?, ?, ?, ?, ?, ?)")) {
+			for (int i = 0; i < menuItemList.size(); i++) {
+				MenuItemModel menuItem = menuItemList.get(i);
+				insert.setInt(1, i);
+				insert.setLong(2, menuItem.getItemId());
+				insert.setString(3, menuItem.getName());
+				insert.setString(4, menuItem.getDescription());
+				insert.setDouble(5, menuItem.getPrice());
+				insert.setString(6, menuItem.getType().toString());
+				insert.addBatch();
+			}
+			insert.executeBatch();
+		}
+	}
+}
@@ -0,0 +1,414 @@
+package gc01.cw.robf.store;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.OrderRecord;
+import gc01.cw.robf.utility.FileXmlHandler;
+import gc01.cw.robf.utility.OrderArchive;
+import gc01.cw.robf.utility.PersistenceExecutor;
+import javafx.collections.ObservableList;
+
+/**
+ * OrderStore which keeps orders in the orders and order_lines tables of a
+ * JdbcDatabase. Each change updates only the rows of the changed order.
+ * Items saved in the order_items table before order lines are still read,
+ * counted into lines at the current menu price, and are moved to order_lines
+ * the next time the order's items change.
+ * Only open orders are loaded at startup, through the status index. Closed
+ * orders left in the database are read a page at a time when they are moved
+ * to the order archive, rather than loaded into the order list. Converts an
+ * existing orders XML file the first time it is opened.
+ * <p>
+ * Changes are copied as OrderRecord objects and written on the persistence
+ * thread, in the order they were made. Reads wait for pending writes first.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class JdbcOrderStore implements OrderStore {
+
+	private static final String INSERT_ORDER = "INSERT INTO orders (order_id, table_number, creating_user, "
+			+ "status, date_opened, date_closed, total_cost, comments, search_text) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	private static final String UPDATE_ORDER = "UPDATE orders SET status = ?, date_closed = ?, total_cost = ?, "
+			+ "comments = ?, search_text = ? WHERE order_id = ?";
+	private static final String INSERT_LINE = "INSERT INTO order_lines (order_id, line_index, item_id, item_name, "
+			+ "quantity, unit_price_pence) VALUES (?, ?, ?, ?, ?, ?)";
+
+	// closed orders moved to the archive per transaction
+	private static final int ARCHIVE_PAGE_SIZE = 500;
+
+	private JdbcDatabase database;
+	private String xmlOrderFilePath;
+	private Connection connection;
+
+	/**
+	 * Constructor for JdbcOrderStore objects.
+	 *
+	 * @param database
+	 *            JdbcDatabase holding the orders
+	 * @param xmlOrderFilePath
+	 *            Path of an orders XML file to convert on first use
+	 */
+	public JdbcOrderStore(JdbcDatabase database, String xmlOrderFilePath) {
+		this.database = database;
+		this.xmlOrderFilePath = xmlOrderFilePath;
+	}
+
+	@Override
+	public void open() {
+		try {
+			connection = database.acquire();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+
+		// one-shot conversion of the old XML orders file
+		JdbcDatabase.inTransaction(connection, c -> {
+			if (JdbcDatabase.startConversion(c, "orders")) {
+				File orderFile = new File(xmlOrderFilePath);
+				if (orderFile.exists() && orderFile.length() > 0) {
+					FileXmlHandler.loadOrders(xmlOrderFilePath, true);
+					for (OrderModel order : OrderModel.getOrderList()) {
+						insertOrder(OrderRecord.of(order));
+					}
+				}
+			}
+		});
+		load(false);
+	}
+
+	@Override
+	public void reload() {
+		load(true);
+	}
+
+	/**
+	 * {@inheritDoc} Closed orders still in the database are then read a page
+	 * at a time through the status index, added to the archive and deleted,
+	 * so that they are never loaded into the order list.
+	 */
+	@Override
+	public void archiveClosedOrders(OrderArchive archive) {
+		OrderStore.super.archiveClosedOrders(archive);
+		if (connection == null) {
+			return;
+		}
+		PersistenceExecutor.drain();
+
+		try {
+			long afterId = 0;
+			long lastId;
+			while ((lastId = lastIdOfPage(OrderModel.OrderStatus.CLOSED, afterId)) > afterId) {
+				List<OrderRecord> page = readOrders(OrderModel.OrderStatus.CLOSED, afterId, lastId);
+				if (!archive.add(page)) {
+					return;
+				}
+
+				JdbcDatabase.inTransaction(connection, c -> {
+					for (OrderRecord record : page) {
+						deleteOrder(record.getOrderId());
+					}
+				});
+				afterId = lastId;
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> orderOpened(OrderModel order) {
+		OrderRecord record = OrderRecord.of(order);
+		return submit(() -> JdbcDatabase.inTransaction(connection, c -> {
+			deleteOrder(record.getOrderId());
+			insertOrder(record);
+		}));
+	}
+
+	@Override
+	public CompletableFuture<Void> statusChanged(OrderModel order) {
+		return updateOrder(order, false);
+	}
+
+	@Override
+	public CompletableFuture<Void> itemsChanged(OrderModel order) {
+		return updateOrder(order, true);
+	}
+
+	@Override
+	public CompletableFuture<Void> commentsChanged(OrderModel order) {
+		return updateOrder(order, false);
+	}
+
+	@Override
+	public CompletableFuture<Void> orderDeleted(OrderModel order) {
+		long orderId = order.getOrderId();
+		return submit(() -> JdbcDatabase.inTransaction(connection, c -> deleteOrder(orderId)));
+	}
+
+	@Override
+	public CompletableFuture<Void> ordersArchived(List<OrderModel> orders) {
+		List<Long> orderIds = new ArrayList<>();
+		for (OrderModel order : orders) {
+			orderIds.add(order.getOrderId());
+		}
+		return submit(() -> JdbcDatabase.inTransaction(connection, c -> {
+			for (long orderId : orderIds) {
+				deleteOrder(orderId);
+			}
+		}));
+	}
+
+	@Override
+	public void close() {
+		PersistenceExecutor.drain();
+		if (connection != null) {
+			connection = null;
+			database.release();
+		}
+	}
+
+	/*
+	 * Replaces the order list with the orders in the database. Closed orders
+	 * are only loaded when asked for, i.e. orders closed since startup, as
+	 * older ones are moved to the archive at startup rather than loaded.
+	 */
+	private void load(boolean includeClosed) {
+		// load after any change still waiting to be written
+		PersistenceExecutor.drain();
+
+		ObservableList<OrderModel> orderList = OrderModel.getOrderList();
+		orderList.clear();
+		if (connection == null) {
+			return;
+		}
+
+		List<OrderModel> orders = new ArrayList<>();
+		try {
+			for (OrderRecord record : readOrders(includeClosed ? null : OrderModel.OrderStatus.OPEN, 0,
+					Long.MAX_VALUE)) {
+				orders.add(new OrderModel(record));
+			}
+
+			// new orders must not reuse the IDs of closed orders left unloaded
+			try (Statement statement = connection.createStatement();
+					ResultSet results = statement.executeQuery("SELECT MAX(order_id) FROM orders")) {
+				if (results.next()) {
+					OrderModel.reserveOrderIds(results.getLong(1));
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		orderList.setAll(orders);
+	}
+
+	/*
+	 * Returns the ID of the last order of the next page of orders with a
+	 * status after an order ID, or afterId if there are none.
+	 */
+	private long lastIdOfPage(OrderModel.OrderStatus status, long afterId) throws SQLException {
+		long lastId = afterId;
+		try (PreparedStatement query = connection
+				.prepareStatement("SELECT order_id FROM orders WHERE status = ? AND order_id > ? ORDER BY order_id")) {
+			query.setMaxRows(ARCHIVE_PAGE_SIZE);
+			query.setString(1, status.toString());
+			query.setLong(2, afterId);
+			try (ResultSet results = query.executeQuery()) {
+				while (results.next()) {
+					lastId = results.getLong(1);
+				}
+			}
+		}
+		return lastId;
+	}
+
+	/*
+	 * Reads the orders with a status, or of any status if null, whose IDs are
+	 * after afterId and up to lastId, as OrderRecord objects in order ID
+	 * order.
+	 */
+	private List<OrderRecord> readOrders(OrderModel.OrderStatus status, long afterId, long lastId)
+			throws SQLException {
+		String where = "WHERE order_id > ? AND order_id <= ?" + (status != null ? " AND status = ?" : "");
+		String inOrders = "WHERE order_id IN (SELECT order_id FROM orders " + where + ") ";
+
+		// collect lines first so that each order is built in one pass
+		Map<Long, List<OrderRecord.Line>> linesById = new HashMap<>();
+		try (PreparedStatement query = connection
+				.prepareStatement("SELECT order_id, item_name FROM order_items " + inOrders
+						+ "ORDER BY order_id, item_index")) {
+			setRange(query, status, afterId, lastId);
+			try (ResultSet results = query.executeQuery()) {
+				while (results.next()) {
+					// items saved before order lines, at the current price
+					MenuItemModel menuItem = MenuItemModel.getMenuItemByName(results.getString(2));
+					if (menuItem != null) {
+						addLegacyItem(linesOf(linesById, results.getLong(1)), menuItem);
+					}
+				}
+			}
+		}
+
+		try (PreparedStatement query = connection
+				.prepareStatement("SELECT order_id, item_id, item_name, quantity, unit_price_pence FROM order_lines "
+						+ inOrders + "ORDER BY order_id, line_index")) {
+			setRange(query, status, afterId, lastId);
+			try (ResultSet results = query.executeQuery()) {
+				while (results.next()) {
+					linesOf(linesById, results.getLong(1)).add(new OrderRecord.Line(results.getString(3),
+							results.getLong(2), results.getInt(4), results.getLong(5)));
+				}
+			}
+		}
+
+		List<OrderRecord> records = new ArrayList<>();
+		try (PreparedStatement query = connection.prepareStatement("SELECT order_id, table_number, creating_user, "
+				+ "status, date_opened, date_closed, total_cost, comments FROM orders " + where
+				+ " ORDER BY order_id")) {
+			setRange(query, status, afterId, lastId);
+			try (ResultSet results = query.executeQuery()) {
+				while (results.next()) {
+					List<OrderRecord.Line> lines = linesById.get(results.getLong(1));
+					records.add(new OrderRecord(results.getLong(1), results.getInt(2), results.getString(3),
+							OrderModel.OrderStatus.valueOf(results.getString(4)),
+							OrderModel.toEpochMillis(results.getString(5)),
+							OrderModel.toEpochMillis(results.getString(6)),
+							MenuItemModel.toPence(results.getDouble(7)), results.getString(8),
+							lines != null ? lines : new ArrayList<>()));
+				}
+			}
+		}
+		return records;
+	}
+
+	private static void setRange(PreparedStatement query, OrderModel.OrderStatus status, long afterId, long lastId)
+			throws SQLException {
+		query.setLong(1, afterId);
+		query.setLong(2, lastId);
+		if (status != null) {
+			query.setString(3, status.toString());
+		}
+	}
+
+	private CompletableFuture<Void> updateOrder(OrderModel order, boolean itemsChanged) {
+		OrderRecord record = OrderRecord.of(order);
+		return submit(() -> JdbcDatabase.inTransaction(connection, c -> {
+			try (PreparedStatement update = c.prepareStatement(UPDATE_ORDER)) {
+				update.setString(1, record.getStatus().toString());
+				update.setString(2, record.getDateClosed());
+				update.setDouble(3, record.getTotalCost());
+				update.setString(4, record.getComments());
+				update.setString(5, OrderStore.searchText(record));
+				update.setLong(6, record.getOrderId());
+
+				// an order the database has not seen is saved in full
+				if (update.executeUpdate() == 0) {
+					insertOrder(record);
+				} else if (itemsChanged) {
+					deleteItems(record.getOrderId());
+					insertItems(record);
+				}
+			}
+		}));
+	}
+
+	private void insertOrder(OrderRecord record) throws SQLException {
+		try (PreparedStatement insert = connection.prepareStatement(INSERT_ORDER)) {
+			insert.setLong(1, record.getOrderId());
+			insert.setInt(2, record.getTableNumber());
+			insert.setString(3, record.getCreatingUser());
+			insert.setString(4, record.getStatus().toString());
+			insert.setString(5, record.getDateOpened());
+			insert.setString(6, record.getDateClosed());
+			insert.setDouble(7, record.getTotalCost());
+			insert.setString(8, record.getComments());
+			insert.setString(9, OrderStore.searchText(record));
+			insert.executeUpdate();
+		}
+		insertItems(record);
+	}
+
+	private void insertItems(OrderRecord record) throws SQLException {
+		List<OrderRecord.Line> lines = record.getLines();
+		if (lines.isEmpty()) {
+			return;
+		}
+
+		try (PreparedStatement insert = connection.prepareStatement(INSERT_LINE)) {
+			for (int i = 0; i < lines.size(); i++) {
+				OrderRecord.Line line = lines.get(i);
+				insert.setLong(1, record.getOrderId());
+				insert.setInt(2, i);
+				insert.setLong(3, line.getItemId());
+				insert.setString(4, line.getName());
+				insert.setInt(5, line.getQuantity());
+				insert.setLong(6, line.getUnitPricePence());
+				insert.addBatch();
+			}
+			insert.executeBatch();
+		}
+	}
+
+	private void deleteOrder(long orderId) throws SQLException {
+		deleteItems(orderId);
+		try (PreparedStatement delete = connection.prepareStatement("DELETE FROM orders WHERE order_id = ?")) {
+			delete.setLong(1, orderId);
+			delete.executeUpdate();
+		}
+	}
+
+	private void deleteItems(long orderId) throws SQLException {
+		try (PreparedStatement delete = connection.prepareStatement("DELETE FROM order_items WHERE order_id = ?")) {
+			delete.setLong(1, orderId);
+			delete.executeUpdate();
+		}
+		try (PreparedStatement delete = connection.prepareStatement("DELETE FROM order_lines WHERE order_id = ?")) {
+			delete.setLong(1, orderId);
+			delete.executeUpdate();
+		}
+	}
+
+	private static List<OrderRecord.Line> linesOf(Map<Long, List<OrderRecord.Line>> linesById, long orderId) {
+		List<OrderRecord.Line> lines = linesById.get(orderId);
+		if (lines == null) {
+			lines = new ArrayList<>();
+			linesById.put(orderId, lines);
+		}
+		return lines;
+	}
+
+	/*
+	 * Adds an item of an old order_items row to the lines of an order.
+	 * Repeated items merge into one line.
+	 */
+	private static void addLegacyItem(List<OrderRecord.Line> lines, MenuItemModel menuItem) {
+		for (int i = 0; i < lines.size(); i++) {
+			OrderRecord.Line line = lines.get(i);
+			if (line.getItemId() == menuItem.getItemId()) {
+				lines.set(i, new OrderRecord.Line(line.getName(), line.getItemId(), line.getQuantity() + 1,
+						line.getUnitPricePence()));
+				return;
+			}
+		}
+		lines.add(new OrderRecord.Line(menuItem.getName(), menuItem.getItemId(), 1, menuItem.getPricePence()));
+	}
+
+	private static CompletableFuture<Void> submit(PersistenceExecutor.Work work) {
+		return PersistenceExecutor.submit("Order change", work);
+	}
+}
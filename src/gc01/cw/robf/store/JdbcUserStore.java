@@ -0,0 +1,113 @@
+package gc01.cw.robf.store;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+
+import gc01.cw.robf.model.UserModel;
+import gc01.cw.robf.utility.FileXmlHandler;
+import gc01.cw.robf.utility.PersistenceExecutor;
+import javafx.collections.ObservableList;
+
+/**
+ * UserStore which keeps users in the users table of a JdbcDatabase, in user
+ * list order. Converts an existing users XML file the first time it is
+ * loaded.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class JdbcUserStore implements UserStore {
+
+	private JdbcDatabase database;
+	private String xmlUserFilePath;
+
+	/**
+	 * Constructor for JdbcUserStore objects.
+	 *
+	 * @param database
+	 *            JdbcDatabase holding the users
+	 * @param xmlUserFilePath
+	 *            Path of a users XML file to convert on first use
+	 */
+	public JdbcUserStore(JdbcDatabase database, String xmlUserFilePath) {
+		this.database = database;
+		this.xmlUserFilePath = xmlUserFilePath;
+	}
+
+	@Override
+	public void load() {
+		// load after any save still waiting to be written
+		PersistenceExecutor.drain();
+		ObservableList<UserModel> userList = UserModel.getUserList();
+
+		try {
+			Connection connection = database.acquire();
+			try {
+				// one-shot conversion of the old XML users file
+				JdbcDatabase.inTransaction(connection, c -> {
+					if (JdbcDatabase.startConversion(c, "users")) {
+						File userFile = new File(xmlUserFilePath);
+						if (userFile.exists() && userFile.length() > 0) {
+							FileXmlHandler.loadUsers(xmlUserFilePath, true);
+							insertUsers(c, userList);
+						}
+					}
+				});
+
+				userList.clear();
+				try (Statement statement = connection.createStatement();
+						ResultSet results = statement.executeQuery(
+								"SELECT full_name, username, password, user_type FROM users ORDER BY user_index")) {
+					while (results.next()) {
+						new UserModel(results.getString(1), results.getString(2), results.getString(3),
+								UserModel.UserType.valueOf(results.getString(4)));
+					}
+				}
+			} finally {
+				database.release();
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> save(ObservableList<UserModel> userList) {
+		// written on the persistence thread
+		return PersistenceExecutor.submit("Users", () -> {
+			Connection connection = database.acquire();
+			try {
+				return JdbcDatabase.inTransaction(connection, c -> {
+					try (Statement statement = c.createStatement()) {
+						statement.executeUpdate("DELETE FROM users");
+					}
+					insertUsers(c, userList);
+				});
+			} finally {
+				database.release();
+			}
+		});
+	}
+
+	private static void insertUsers(Connection connection, ObservableList<UserModel> userList) throws SQLException {
+		try (PreparedStatement insert = connection.prepareStatement(
+				"INSERT INTO users (user_index, full_name, username, password, user_type) VALUES (?, ?, ?, ?, ?)")) {
+			for (int i = 0; i < userList.size(); i++) {
+				UserModel user = userList.get(i);
+				insert.setInt(1, i);
+				insert.setString(2, user.getFullName());
+				insert.setString(3, user.getUsername());
+				insert.setString(4, user.getPassword());
+				insert.setString(5, user.getType().toString());
+				insert.addBatch();
+			}
+			insert.executeBatch();
+		}
+	}
+}
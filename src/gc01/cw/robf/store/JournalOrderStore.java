@@ -0,0 +1,142 @@
+package gc01.cw.robf.store;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.OrderRecord;
+import gc01.cw.robf.utility.OrderArchive;
+import gc01.cw.robf.utility.OrderJournal;
+import gc01.cw.robf.utility.OrderSnapshot;
+
+/**
+ * OrderStore which appends each change to an OrderJournal and periodically
+ * folds the journal into an OrderSnapshot file. Only open orders are loaded
+ * from the snapshot; closed ones are archived straight from it. Converts an
+ * existing orders XML file to a snapshot the first time it is opened.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class JournalOrderStore implements OrderStore {
+
+	private String xmlOrderFilePath;
+	private String snapshotFilePath;
+	private String journalFilePath;
+	private long groupCommitWindowMillis;
+	private long compactIntervalSeconds;
+	private long compactThresholdBytes;
+
+	/**
+	 * Constructor for JournalOrderStore objects.
+	 *
+	 * @param xmlOrderFilePath
+	 *            Path of an orders XML file to convert on first use
+	 * @param snapshotFilePath
+	 *            Path of the order snapshot file
+	 * @param journalFilePath
+	 *            Path of the order journal file
+	 * @param groupCommitWindowMillis
+	 *            long group commit window in milliseconds, 0 to force every
+	 *            change to disk separately
+	 * @param compactIntervalSeconds
+	 *            long seconds between journal size checks
+	 * @param compactThresholdBytes
+	 *            long journal size in bytes at which it is compacted
+	 */
+	public JournalOrderStore(String xmlOrderFilePath, String snapshotFilePath, String journalFilePath,
+			long groupCommitWindowMillis, long compactIntervalSeconds, long compactThresholdBytes) {
+		this.xmlOrderFilePath = xmlOrderFilePath;
+		this.snapshotFilePath = snapshotFilePath;
+		this.journalFilePath = journalFilePath;
+		this.groupCommitWindowMillis = groupCommitWindowMillis;
+		this.compactIntervalSeconds = compactIntervalSeconds;
+		this.compactThresholdBytes = compactThresholdBytes;
+	}
+
+	@Override
+	public void open() {
+		// one-shot conversion of the old XML orders file
+		if (!new File(snapshotFilePath).exists()) {
+			OrderSnapshot.convertXmlOrders(xmlOrderFilePath, snapshotFilePath);
+		}
+
+		OrderJournal.open(snapshotFilePath, journalFilePath);
+		startWriters();
+	}
+
+	@Override
+	public void attach() {
+		// the boot image holds the orders in the snapshot and journal
+		OrderJournal.attach(snapshotFilePath, journalFilePath);
+		startWriters();
+	}
+
+	@Override
+	public void reload() {
+		OrderJournal.reload();
+	}
+
+	/**
+	 * {@inheritDoc} Closed orders which were left in the snapshot rather
+	 * than loaded are then archived from the snapshot.
+	 */
+	@Override
+	public void archiveClosedOrders(OrderArchive archive) {
+		OrderStore.super.archiveClosedOrders(archive);
+
+		List<OrderRecord> unloadedOrders = OrderJournal.getUnloadedOrders();
+		if (!unloadedOrders.isEmpty() && archive.add(unloadedOrders)) {
+			OrderJournal.recordUnloadedArchived().join();
+		}
+	}
+
+	@Override
+	public void beginEdit() {
+		OrderJournal.suspendCompaction();
+	}
+
+	@Override
+	public void endEdit() {
+		OrderJournal.resumeCompaction();
+	}
+
+	@Override
+	public CompletableFuture<Void> orderOpened(OrderModel order) {
+		return OrderJournal.recordOpen(order);
+	}
+
+	@Override
+	public CompletableFuture<Void> statusChanged(OrderModel order) {
+		return OrderJournal.recordStatus(order);
+	}
+
+	@Override
+	public CompletableFuture<Void> itemsChanged(OrderModel order) {
+		return OrderJournal.recordItems(order);
+	}
+
+	@Override
+	public CompletableFuture<Void> commentsChanged(OrderModel order) {
+		return OrderJournal.recordComments(order);
+	}
+
+	@Override
+	public CompletableFuture<Void> orderDeleted(OrderModel order) {
+		return OrderJournal.recordDelete(order);
+	}
+
+	@Override
+	public void close() {
+		OrderJournal.close();
+	}
+
+	private void startWriters() {
+		if (groupCommitWindowMillis > 0) {
+			OrderJournal.startGroupCommit(groupCommitWindowMillis);
+		}
+		OrderJournal.startCompactor(compactIntervalSeconds, compactThresholdBytes);
+	}
+}
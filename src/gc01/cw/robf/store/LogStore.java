@@ -0,0 +1,52 @@
+package gc01.cw.robf.store;
+
+import gc01.cw.robf.model.LogModel;
+import gc01.cw.robf.model.UserModel;
+import javafx.collections.ObservableList;
+
+/**
+ * Interface for storage engines which persist the activity log of LogModel
+ * items.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public interface LogStore {
+
+	/**
+	 * Prepares the store for writing. Called once at startup.
+	 */
+	void open();
+
+	/**
+	 * Adds a log line to the activity log. May return before the line is
+	 * saved.
+	 *
+	 * @param logObject
+	 *            LogModel object to log
+	 */
+	void write(LogModel logObject);
+
+	/**
+	 * Blocks until every log line written before the call has been saved.
+	 */
+	void flush();
+
+	/**
+	 * Retrieves the log lines of a user, including every log line written
+	 * before the call.
+	 *
+	 * @param user
+	 *            UserModel object of the user to search for
+	 * @return ObservableList of LogModel objects which were generated by the
+	 *         specified user
+	 */
+	ObservableList<LogModel> readLogLinesByUser(UserModel user);
+
+	/**
+	 * Saves any outstanding log lines and releases the store. Called on
+	 * application shutdown.
+	 */
+	void close();
+}
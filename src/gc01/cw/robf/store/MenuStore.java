@@ -0,0 +1,32 @@
+package gc01.cw.robf.store;
+
+import java.util.concurrent.CompletableFuture;
+
+import gc01.cw.robf.model.MenuItemModel;
+import javafx.collections.ObservableList;
+
+/**
+ * Interface for storage engines which persist MenuItemModel items.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public interface MenuStore {
+
+	/**
+	 * Loads saved menu items into the statically accessible menu, replacing
+	 * any menu items in memory.
+	 */
+	void load();
+
+	/**
+	 * Saves a list of menu items, replacing those saved before. The list must
+	 * not change until the save has completed.
+	 *
+	 * @param menuItemList
+	 *            ObservableList of MenuItemModel objects to save.
+	 * @return CompletableFuture which completes once the list is saved
+	 */
+	CompletableFuture<Void> save(ObservableList<MenuItemModel> menuItemList);
+}
@@ -0,0 +1,246 @@
+package gc01.cw.robf.store;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.OrderRecord;
+import gc01.cw.robf.utility.FileXmlHandler;
+import gc01.cw.robf.utility.OrderArchive;
+import javafx.collections.ObservableList;
+
+/**
+ * Interface for storage engines which persist OrderModel items. Orders are
+ * held in the statically accessible order list while the application runs;
+ * the store loads them at startup and is told about each change so that it
+ * can save it. Change methods return a future which completes once the
+ * change is saved.
+ * <p>
+ * Closed orders are moved out of the store and the order list into an
+ * OrderArchive at startup, so the store only holds open orders and orders
+ * closed since startup.
+ * <p>
+ * Importing and exporting orders always uses XML files, whichever store is
+ * used.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public interface OrderStore {
+
+	/**
+	 * Loads saved orders into the order list, replacing any orders in memory,
+	 * and prepares the store for changes. Requires menu items to have been
+	 * loaded.
+	 */
+	void open();
+
+	/**
+	 * Prepares the store for changes to orders already restored into the
+	 * order list from a BootImage written when the store was last closed. The
+	 * default implementation opens the store, loading its orders again.
+	 */
+	default void attach() {
+		open();
+	}
+
+	/**
+	 * Discards unsaved changes by loading saved orders into the order list
+	 * again.
+	 */
+	void reload();
+
+	/**
+	 * Saves a newly opened order, or every field of an existing order.
+	 *
+	 * @param order
+	 *            OrderModel object to save
+	 * @return CompletableFuture which completes once the order is saved
+	 */
+	CompletableFuture<Void> orderOpened(OrderModel order);
+
+	/**
+	 * Saves a change of order status, including closing an order.
+	 *
+	 * @param order
+	 *            OrderModel object to save
+	 * @return CompletableFuture which completes once the change is saved
+	 */
+	CompletableFuture<Void> statusChanged(OrderModel order);
+
+	/**
+	 * Saves a change to the menu items of an order.
+	 *
+	 * @param order
+	 *            OrderModel object to save
+	 * @return CompletableFuture which completes once the change is saved
+	 */
+	CompletableFuture<Void> itemsChanged(OrderModel order);
+
+	/**
+	 * Saves a change to the comments of an order.
+	 *
+	 * @param order
+	 *            OrderModel object to save
+	 * @return CompletableFuture which completes once the change is saved
+	 */
+	CompletableFuture<Void> commentsChanged(OrderModel order);
+
+	/**
+	 * Saves the deletion of an order which has been removed from the order
+	 * list.
+	 *
+	 * @param order
+	 *            OrderModel object which has been deleted
+	 * @return CompletableFuture which completes once the deletion is saved
+	 */
+	CompletableFuture<Void> orderDeleted(OrderModel order);
+
+	/**
+	 * Saves the removal of orders which have been moved from the order list
+	 * to the order archive. The default implementation saves each removal as
+	 * a deletion.
+	 *
+	 * @param orders
+	 *            List of OrderModel objects which have been archived
+	 * @return CompletableFuture which completes once the removals are saved
+	 */
+	default CompletableFuture<Void> ordersArchived(List<OrderModel> orders) {
+		List<CompletableFuture<Void>> removals = new ArrayList<>(orders.size());
+		for (OrderModel order : orders) {
+			removals.add(orderDeleted(order));
+		}
+		return CompletableFuture.allOf(removals.toArray(new CompletableFuture<?>[removals.size()]));
+	}
+
+	/**
+	 * Moves closed orders from the order list and the store to an archive.
+	 * Called once at startup after the store and archive are opened. Orders
+	 * are only removed from the store once the archive has saved them.
+	 *
+	 * @param archive
+	 *            OrderArchive to move closed orders to
+	 */
+	default void archiveClosedOrders(OrderArchive archive) {
+		ObservableList<OrderModel> orderList = OrderModel.getOrderList();
+		List<OrderModel> closedOrders = new ArrayList<>();
+		List<OrderModel> openOrders = new ArrayList<>();
+		for (OrderModel order : orderList) {
+			if (order.getStatus() == OrderModel.OrderStatus.CLOSED) {
+				closedOrders.add(order);
+			} else {
+				openOrders.add(order);
+			}
+		}
+
+		if (!closedOrders.isEmpty() && archive.add(OrderRecord.copyOf(closedOrders))) {
+			orderList.setAll(openOrders);
+			ordersArchived(closedOrders).join();
+		}
+	}
+
+	/**
+	 * Starts saving any changes the store is holding back to coalesce them,
+	 * e.g. on logout. The default implementation does nothing, for stores
+	 * which start saving each change straight away.
+	 */
+	default void flush() {
+	}
+
+	/**
+	 * Called before a view changes orders in memory ahead of saving them, as
+	 * the changes may yet be cancelled, e.g. Manage Orders. Stores which save
+	 * the orders in memory as a whole, rather than the changes they are told
+	 * about, hold back doing so until endEdit is called. The default
+	 * implementation does nothing.
+	 */
+	default void beginEdit() {
+	}
+
+	/**
+	 * Called once the view started by beginEdit is closed, whether its
+	 * changes were saved or cancelled. The default implementation does
+	 * nothing.
+	 */
+	default void endEdit() {
+	}
+
+	/**
+	 * Saves any outstanding changes and releases the store. Called on
+	 * application shutdown.
+	 */
+	void close();
+
+	/**
+	 * Finds the open orders on a table. The default implementation uses the
+	 * open order index of the order list.
+	 *
+	 * @param tableNumber
+	 *            int of table number
+	 * @return List of open OrderModel objects on the table, oldest opened
+	 *         first
+	 */
+	default List<OrderModel> findOpenOrders(int tableNumber) {
+		return OrderModel.getOpenOrders(tableNumber);
+	}
+
+	/**
+	 * Appends the orders in an XML file to the order list. Imported orders
+	 * are not saved until passed to orderOpened.
+	 *
+	 * @param xmlFilePath
+	 *            Path of the XML file
+	 * @return List of the imported OrderModel objects
+	 */
+	default List<OrderModel> importOrders(String xmlFilePath) {
+		// imported orders are appended to the end of the list
+		List<OrderModel> orderList = OrderModel.getOrderList();
+		int existingOrders = orderList.size();
+		FileXmlHandler.loadOrders(xmlFilePath, false);
+		return new ArrayList<>(orderList.subList(existingOrders, orderList.size()));
+	}
+
+	/**
+	 * Saves a list of orders, such as the order list and archived orders, to
+	 * an XML file.
+	 *
+	 * @param xmlFilePath
+	 *            Path of the XML file
+	 * @param orders
+	 *            ObservableList of OrderModel objects to save
+	 */
+	default void exportOrders(String xmlFilePath, ObservableList<OrderModel> orders) {
+		FileXmlHandler.saveOrders(xmlFilePath, orders);
+	}
+
+	/**
+	 * Builds the text searched by the Manage Orders filter: the lower case
+	 * table number, status, creating user, opened and closed date-times, total
+	 * cost and comments of an order, one per line.
+	 *
+	 * @param order
+	 *            OrderModel object to describe
+	 * @return String of lower case search text
+	 */
+	static String searchText(OrderModel order) {
+		return (order.getTableNumber() + "\n" + order.getStatus() + "\n" + order.getCreatingUser() + "\n"
+				+ order.getDateOpened() + "\n" + order.getDateClosed() + "\n" + order.getTotalCost() + "\n"
+				+ order.getComments()).toLowerCase();
+	}
+
+	/**
+	 * Builds the same search text as searchText(OrderModel) from a saved
+	 * OrderRecord, e.g. to search the order archive.
+	 *
+	 * @param record
+	 *            OrderRecord copy of an order to describe
+	 * @return String of lower case search text
+	 */
+	static String searchText(OrderRecord record) {
+		return (record.getTableNumber() + "\n" + record.getStatus() + "\n" + record.getCreatingUser() + "\n"
+				+ record.getDateOpened() + "\n" + record.getDateClosed() + "\n" + record.getTotalCost() + "\n"
+				+ record.getComments()).toLowerCase();
+	}
+}
@@ -0,0 +1,81 @@
+package gc01.cw.robf.store;
+
+import java.io.File;
+
+import gc01.cw.robf.model.LogModel;
+import gc01.cw.robf.model.UserModel;
+import gc01.cw.robf.utility.AsyncLogPipeline;
+import gc01.cw.robf.utility.SegmentFileLogger;
+import javafx.collections.ObservableList;
+
+/**
+ * LogStore which appends the activity log to an indexed segment file written
+ * by SegmentFileLogger, through the AsyncLogPipeline. Converts an existing
+ * XML activity log the first time it is opened.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class SegmentLogStore implements LogStore {
+
+	private String xmlLogFilePath;
+	private String logFilePath;
+	private int bufferCapacity;
+	private long flushIntervalMillis;
+	private AsyncLogPipeline.OverflowPolicy overflowPolicy;
+
+	/**
+	 * Constructor for SegmentLogStore objects.
+	 *
+	 * @param xmlLogFilePath
+	 *            Path of an XML activity log to convert on first use
+	 * @param logFilePath
+	 *            Path of the segment file
+	 * @param bufferCapacity
+	 *            int maximum number of log lines waiting to be written
+	 * @param flushIntervalMillis
+	 *            long maximum time a log line waits before being written
+	 * @param overflowPolicy
+	 *            AsyncLogPipeline.OverflowPolicy enum used when the buffer is
+	 *            full
+	 */
+	public SegmentLogStore(String xmlLogFilePath, String logFilePath, int bufferCapacity, long flushIntervalMillis,
+			AsyncLogPipeline.OverflowPolicy overflowPolicy) {
+		this.xmlLogFilePath = xmlLogFilePath;
+		this.logFilePath = logFilePath;
+		this.bufferCapacity = bufferCapacity;
+		this.flushIntervalMillis = flushIntervalMillis;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	@Override
+	public void open() {
+		// one-shot conversion of the old XML activity log
+		if (!new File(logFilePath).exists()) {
+			SegmentFileLogger.convertXmlLog(xmlLogFilePath, logFilePath);
+		}
+		AsyncLogPipeline.start(logFilePath, bufferCapacity, flushIntervalMillis, overflowPolicy);
+	}
+
+	@Override
+	public void write(LogModel logObject) {
+		AsyncLogPipeline.publish(logFilePath, logObject);
+	}
+
+	@Override
+	public void flush() {
+		AsyncLogPipeline.flush();
+	}
+
+	@Override
+	public ObservableList<LogModel> readLogLinesByUser(UserModel user) {
+		AsyncLogPipeline.flush();
+		return SegmentFileLogger.readLogLinesByUser(logFilePath, user);
+	}
+
+	@Override
+	public void close() {
+		AsyncLogPipeline.shutdown();
+	}
+}
@@ -0,0 +1,123 @@
+package gc01.cw.robf.store;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gc01.cw.robf.utility.BootImage;
+import gc01.cw.robf.utility.OrderArchive;
+
+/**
+ * Statically accessible loader which fills the models from the configured
+ * stores at startup without holding up the login view. Users, menu items and
+ * the activity log are loaded in parallel; orders start loading as soon as
+ * the menu, which they look their items up in, has loaded. Closed orders are
+ * then moved to the order archive.
+ * <p>
+ * If a current BootImage was written on the last clean shutdown, the menu,
+ * users and open orders are filled from it instead and the stores are only
+ * opened or attached for changes.
+ * <p>
+ * The login view only needs users and the activity log, so it waits for those
+ * while orders are still loading, and the main view waits for orders. The
+ * models are only read by the JavaFX application thread once the loads it
+ * waits for have completed.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class StartupLoader {
+
+	// set on the main thread and read on the JavaFX application thread
+	private static volatile CompletableFuture<Void> usersLoaded = CompletableFuture.completedFuture(null);
+	private static volatile CompletableFuture<Void> ordersLoaded = CompletableFuture.completedFuture(null);
+
+	/**
+	 * Static method to start loading every store on background threads.
+	 * Returns straight away.
+	 */
+	public static void start() {
+		ExecutorService loaders = createLoaders();
+		MenuStore menuStore = StoreRegistry.getMenuStore();
+		UserStore userStore = StoreRegistry.getUserStore();
+		LogStore logStore = StoreRegistry.getLogStore();
+		OrderStore orderStore = StoreRegistry.getOrderStore();
+		OrderArchive orderArchive = StoreRegistry.getOrderArchive();
+
+		String bootImageFilePath = StoreRegistry.getBootImageFilePath();
+		boolean booted = bootImageFilePath != null
+				&& BootImage.load(bootImageFilePath, StoreRegistry.getBootImageSources());
+
+		CompletableFuture<Void> menuLoaded = CompletableFuture.completedFuture(null);
+		CompletableFuture<Void> userLoad = CompletableFuture.completedFuture(null);
+		if (!booted) {
+			menuLoaded = CompletableFuture.runAsync(() -> menuStore.load(), loaders);
+			userLoad = CompletableFuture.runAsync(() -> userStore.load(), loaders);
+		}
+		CompletableFuture<Void> logOpened = CompletableFuture.runAsync(() -> logStore.open(), loaders);
+		usersLoaded = reported(CompletableFuture.allOf(userLoad, logOpened));
+
+		// orders look up their menu items by name and ID, so wait for the menu
+		ordersLoaded = reported(menuLoaded.thenRunAsync(() -> {
+			if (booted) {
+				orderStore.attach();
+			} else {
+				orderStore.open();
+			}
+
+			// only open orders and orders closed since startup are kept
+			// loaded
+			orderArchive.open();
+			orderStore.archiveClosedOrders(orderArchive);
+		}, loaders));
+
+		// the threads are not needed once loading is done
+		CompletableFuture.allOf(usersLoaded, ordersLoaded).whenComplete((result, error) -> loaders.shutdown());
+	}
+
+	/**
+	 * Static method which blocks until users have loaded and the activity log
+	 * is open, e.g. before checking a login.
+	 */
+	public static void awaitUsers() {
+		usersLoaded.join();
+	}
+
+	/**
+	 * @return CompletableFuture which completes once orders have loaded and
+	 *         closed orders have been archived, e.g. before showing the main
+	 *         view. It may complete on a loader thread.
+	 */
+	public static CompletableFuture<Void> getOrdersLoaded() {
+		return ordersLoaded;
+	}
+
+	/*
+	 * Reports a load which failed and completes normally anyway, as the load
+	 * has left its models empty or partly loaded as loading on the main
+	 * thread did.
+	 */
+	private static CompletableFuture<Void> reported(CompletableFuture<Void> loaded) {
+		return loaded.handle((result, error) -> {
+			if (error != null) {
+				error.printStackTrace();
+			}
+			return null;
+		});
+	}
+
+	private static ExecutorService createLoaders() {
+		AtomicInteger threadCount = new AtomicInteger();
+		return Executors.newFixedThreadPool(3, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "loader-" + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
@@ -0,0 +1,315 @@
+package gc01.cw.robf.store;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import gc01.cw.robf.utility.AsyncLogPipeline;
+import gc01.cw.robf.utility.FileXmlHandler;
+import gc01.cw.robf.utility.OrderArchive;
+
+/**
+ * Statically accessible registry of the OrderStore, OrderArchive, MenuStore,
+ * UserStore and LogStore used by the application. The storage engine and file
+ * paths for each store are read from a properties file once at startup;
+ * anything not set in the file keeps the default XML behaviour.
+ * <p>
+ * Recognised store types are xml, journal and jdbc for orders.store, xml and
+ * jdbc for menu.store and users.store and xml, segment and jdbc for
+ * log.store. The jdbc stores share one embedded database set by jdbc.url and
+ * need its JDBC driver on the classpath; without it they fall back to xml.
+ * <p>
+ * boot.imageFile names a BootImage written on clean shutdown and used at the
+ * next launch. It is only used when every store keeps its data in files, so
+ * that the image can be checked against them.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class StoreRegistry {
+
+	private static OrderStore orderStore = new XmlOrderStore("./data/orders.xml");
+	private static OrderArchive orderArchive = new OrderArchive("./data/archive");
+	private static MenuStore menuStore = new XmlMenuStore("./data/menuItems.xml");
+	private static UserStore userStore = new XmlUserStore("./data/users.xml");
+	private static LogStore logStore = new XmlLogStore("./data/activityLog.xml");
+	private static String bootImageFilePath;
+	// data files the boot image is checked against, null if a store is not
+	// kept in files
+	private static List<String> bootImageSources;
+
+	/**
+	 * Static method to create the stores described by a properties file. A
+	 * missing file leaves the default XML stores in place.
+	 *
+	 * @param propertiesFilePath
+	 *            Path of the properties file
+	 */
+	public static void configure(String propertiesFilePath) {
+		Properties properties = new Properties();
+
+		File propertiesFile = new File(propertiesFilePath);
+		if (propertiesFile.exists()) {
+			try (InputStream in = new BufferedInputStream(new FileInputStream(propertiesFile))) {
+				properties.load(in);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		configure(properties);
+	}
+
+	/**
+	 * Static method to create the stores described by a set of properties.
+	 *
+	 * @param properties
+	 *            Properties of store types, file paths and settings
+	 */
+	public static void configure(Properties properties) {
+		FileXmlHandler.setStreaming(Boolean.parseBoolean(properties.getProperty("xml.streaming", "false")));
+
+		JdbcDatabase database = new JdbcDatabase(properties.getProperty("jdbc.url", "jdbc:h2:./data/ordogrub"),
+				properties.getProperty("jdbc.user", "sa"), properties.getProperty("jdbc.password", ""));
+
+		List<String> sources = new ArrayList<>();
+
+		String xmlOrderFilePath = properties.getProperty("orders.xmlFile", "./data/orders.xml");
+		switch (storeType(properties, "orders.store", database)) {
+		case "journal":
+			String snapshotFilePath = properties.getProperty("orders.snapshotFile", "./data/orders.snapshot");
+			String journalFilePath = properties.getProperty("orders.journalFile", "./data/orders.journal");
+			sources.add(snapshotFilePath);
+			sources.add(journalFilePath);
+			orderStore = new JournalOrderStore(xmlOrderFilePath, snapshotFilePath, journalFilePath,
+					getLong(properties, "orders.groupCommitMillis", 2),
+					getLong(properties, "orders.compactIntervalSeconds", 60),
+					getLong(properties, "orders.compactThresholdBytes", 256 * 1024));
+			break;
+		case "jdbc":
+			orderStore = new JdbcOrderStore(database, xmlOrderFilePath);
+			sources = null;
+			break;
+		case "xml":
+			orderStore = new XmlOrderStore(xmlOrderFilePath, getLong(properties, "orders.autosaveIdleMillis", 0),
+					getLong(properties, "orders.autosaveMaxMillis", 0));
+			sources.add(xmlOrderFilePath);
+			break;
+		default:
+			unknownStore("orders.store", properties);
+			orderStore = new XmlOrderStore(xmlOrderFilePath, getLong(properties, "orders.autosaveIdleMillis", 0),
+					getLong(properties, "orders.autosaveMaxMillis", 0));
+			sources.add(xmlOrderFilePath);
+			break;
+		}
+
+		orderArchive = new OrderArchive(properties.getProperty("orders.archiveDirectory", "./data/archive"));
+
+		String menuFilePath = properties.getProperty("menu.file", "./data/menuItems.xml");
+		switch (storeType(properties, "menu.store", database)) {
+		case "jdbc":
+			menuStore = new JdbcMenuStore(database, menuFilePath);
+			sources = null;
+			break;
+		case "xml":
+			menuStore = new XmlMenuStore(menuFilePath);
+			addSource(sources, menuFilePath);
+			break;
+		default:
+			unknownStore("menu.store", properties);
+			menuStore = new XmlMenuStore(menuFilePath);
+			addSource(sources, menuFilePath);
+			break;
+		}
+
+		String userFilePath = properties.getProperty("users.file", "./data/users.xml");
+		switch (storeType(properties, "users.store", database)) {
+		case "jdbc":
+			userStore = new JdbcUserStore(database, userFilePath);
+			sources = null;
+			break;
+		case "xml":
+			userStore = new XmlUserStore(userFilePath);
+			addSource(sources, userFilePath);
+			break;
+		default:
+			unknownStore("users.store", properties);
+			userStore = new XmlUserStore(userFilePath);
+			addSource(sources, userFilePath);
+			break;
+		}
+
+		String imageFilePath = properties.getProperty("boot.imageFile", "").trim();
+		bootImageFilePath = imageFilePath.isEmpty() ? null : imageFilePath;
+		bootImageSources = sources;
+
+		String xmlLogFilePath = properties.getProperty("log.xmlFile", "./data/activityLog.xml");
+		switch (storeType(properties, "log.store", database)) {
+		case "segment":
+			logStore = new SegmentLogStore(xmlLogFilePath,
+					properties.getProperty("log.segmentFile", "./data/activityLog.seg"),
+					(int) getLong(properties, "log.bufferCapacity", 1024),
+					getLong(properties, "log.flushIntervalMillis", 200), getOverflowPolicy(properties));
+			break;
+		case "jdbc":
+			logStore = new JdbcLogStore(database, xmlLogFilePath);
+			break;
+		case "xml":
+			logStore = new XmlLogStore(xmlLogFilePath);
+			break;
+		default:
+			unknownStore("log.store", properties);
+			logStore = new XmlLogStore(xmlLogFilePath);
+			break;
+		}
+	}
+
+	/**
+	 * @return OrderStore used for orders.
+	 */
+	public static OrderStore getOrderStore() {
+		return orderStore;
+	}
+
+	/**
+	 * @param orderStore
+	 *            OrderStore to use for orders.
+	 */
+	public static void setOrderStore(OrderStore orderStore) {
+		StoreRegistry.orderStore = orderStore;
+	}
+
+	/**
+	 * @return OrderArchive used for closed orders.
+	 */
+	public static OrderArchive getOrderArchive() {
+		return orderArchive;
+	}
+
+	/**
+	 * @param orderArchive
+	 *            OrderArchive to use for closed orders.
+	 */
+	public static void setOrderArchive(OrderArchive orderArchive) {
+		StoreRegistry.orderArchive = orderArchive;
+	}
+
+	/**
+	 * @return MenuStore used for menu items.
+	 */
+	public static MenuStore getMenuStore() {
+		return menuStore;
+	}
+
+	/**
+	 * @param menuStore
+	 *            MenuStore to use for menu items.
+	 */
+	public static void setMenuStore(MenuStore menuStore) {
+		StoreRegistry.menuStore = menuStore;
+	}
+
+	/**
+	 * @return UserStore used for users.
+	 */
+	public static UserStore getUserStore() {
+		return userStore;
+	}
+
+	/**
+	 * @param userStore
+	 *            UserStore to use for users.
+	 */
+	public static void setUserStore(UserStore userStore) {
+		StoreRegistry.userStore = userStore;
+	}
+
+	/**
+	 * @return LogStore used for the activity log.
+	 */
+	public static LogStore getLogStore() {
+		return logStore;
+	}
+
+	/**
+	 * @param logStore
+	 *            LogStore to use for the activity log.
+	 */
+	public static void setLogStore(LogStore logStore) {
+		StoreRegistry.logStore = logStore;
+	}
+
+	/**
+	 * @return String path of the boot image file, or null if the stores can
+	 *         not use one.
+	 */
+	public static String getBootImageFilePath() {
+		return bootImageSources != null ? bootImageFilePath : null;
+	}
+
+	/**
+	 * @return List of paths of the data files the boot image is checked
+	 *         against.
+	 */
+	public static List<String> getBootImageSources() {
+		return bootImageSources;
+	}
+
+	private static void addSource(List<String> sources, String filePath) {
+		if (sources != null) {
+			sources.add(filePath);
+		}
+	}
+
+	private static long getLong(Properties properties, String key, long defaultValue) {
+		String value = properties.getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			System.err.println("Invalid value for " + key + ": " + value + ", using " + defaultValue);
+			return defaultValue;
+		}
+	}
+
+	private static AsyncLogPipeline.OverflowPolicy getOverflowPolicy(Properties properties) {
+		String value = properties.getProperty("log.overflowPolicy");
+		if (value == null) {
+			return AsyncLogPipeline.OverflowPolicy.BLOCK;
+		}
+
+		try {
+			return AsyncLogPipeline.OverflowPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			System.err.println("Invalid value for log.overflowPolicy: " + value + ", using BLOCK");
+			return AsyncLogPipeline.OverflowPolicy.BLOCK;
+		}
+	}
+
+	/*
+	 * Returns the store type set for a key, xml if none is set, or xml in
+	 * place of jdbc if no JDBC driver for the database is on the classpath.
+	 */
+	private static String storeType(Properties properties, String key, JdbcDatabase database) {
+		String type = properties.getProperty(key, "xml");
+		if (type.equals("jdbc") && !database.isDriverAvailable()) {
+			System.err.println("No JDBC driver for " + database.getUrl() + " found for " + key + ", using xml");
+			return "xml";
+		}
+		return type;
+	}
+
+	private static void unknownStore(String key, Properties properties) {
+		System.err.println("Unknown store type for " + key + ": " + properties.getProperty(key) + ", using xml");
+	}
+}
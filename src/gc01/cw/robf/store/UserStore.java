@@ -0,0 +1,32 @@
+package gc01.cw.robf.store;
+
+import java.util.concurrent.CompletableFuture;
+
+import gc01.cw.robf.model.UserModel;
+import javafx.collections.ObservableList;
+
+/**
+ * Interface for storage engines which persist UserModel items.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public interface UserStore {
+
+	/**
+	 * Loads saved users into the statically accessible user list, replacing
+	 * any users in memory.
+	 */
+	void load();
+
+	/**
+	 * Saves a list of users, replacing those saved before. The list must
+	 * not change until the save has completed.
+	 *
+	 * @param userList
+	 *            ObservableList of UserModel objects to save.
+	 * @return CompletableFuture which completes once the list is saved
+	 */
+	CompletableFuture<Void> save(ObservableList<UserModel> userList);
+}
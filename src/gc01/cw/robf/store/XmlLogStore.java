@@ -0,0 +1,62 @@
+package gc01.cw.robf.store;
+
+import gc01.cw.robf.model.LogModel;
+import gc01.cw.robf.model.UserModel;
+import gc01.cw.robf.utility.PersistenceExecutor;
+import gc01.cw.robf.utility.XmlCustomLogger;
+import javafx.collections.ObservableList;
+
+/**
+ * LogStore which keeps the activity log in an XML file written by
+ * XmlCustomLogger. Every log line rewrites the whole file on the persistence
+ * thread, in the order the lines were written.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class XmlLogStore implements LogStore {
+
+	private String logFilePath;
+
+	/**
+	 * Constructor for XmlLogStore objects.
+	 *
+	 * @param logFilePath
+	 *            Path of the activity log XML file
+	 */
+	public XmlLogStore(String logFilePath) {
+		this.logFilePath = logFilePath;
+	}
+
+	@Override
+	public void open() {
+		// nothing to prepare
+	}
+
+	@Override
+	public void write(LogModel logObject) {
+		// log lines are not changed once made
+		PersistenceExecutor.submit("Log line", () -> {
+			XmlCustomLogger.writeLogLine(logFilePath, logObject);
+			return true;
+		});
+	}
+
+	@Override
+	public void flush() {
+		PersistenceExecutor.drain();
+	}
+
+	@Override
+	public ObservableList<LogModel> readLogLinesByUser(UserModel user) {
+		// read after any log line still waiting to be written
+		PersistenceExecutor.drain();
+		return XmlCustomLogger.readLogLinesByUser(logFilePath, user);
+	}
+
+	@Override
+	public void close() {
+		PersistenceExecutor.drain();
+	}
+}
@@ -0,0 +1,45 @@
+package gc01.cw.robf.store;
+
+import java.util.concurrent.CompletableFuture;
+
+import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.utility.FileXmlHandler;
+import gc01.cw.robf.utility.PersistenceExecutor;
+import javafx.collections.ObservableList;
+
+/**
+ * MenuStore which keeps menu items in an XML file written by FileXmlHandler
+ * on the persistence thread.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class XmlMenuStore implements MenuStore {
+
+	private String menuFilePath;
+
+	/**
+	 * Constructor for XmlMenuStore objects.
+	 *
+	 * @param menuFilePath
+	 *            Path of the menu items XML file
+	 */
+	public XmlMenuStore(String menuFilePath) {
+		this.menuFilePath = menuFilePath;
+	}
+
+	@Override
+	public void load() {
+		// load after any save still waiting to be written
+		PersistenceExecutor.drain();
+		FileXmlHandler.loadMenuItems(menuFilePath, true);
+	}
+
+	@Override
+	public CompletableFuture<Void> save(ObservableList<MenuItemModel> menuItemList) {
+		// written on the persistence thread
+		return PersistenceExecutor.submit("Menu items",
+				() -> FileXmlHandler.saveMenuItems(menuFilePath, menuItemList));
+	}
+}
@@ -0,0 +1,138 @@
+package gc01.cw.robf.store;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.OrderRecord;
+import gc01.cw.robf.utility.AutosaveScheduler;
+import gc01.cw.robf.utility.FileXmlHandler;
+import gc01.cw.robf.utility.PersistenceExecutor;
+import gc01.cw.robf.utility.StaxXmlHandler;
+
+/**
+ * OrderStore which keeps every order in one XML file. Changed orders are
+ * marked dirty and bursts of changes, e.g. adding several items in turn, are
+ * coalesced into one save by an AutosaveScheduler. Each save copies the order
+ * list and rewrites the whole file from the copy on the persistence thread.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class XmlOrderStore implements OrderStore {
+
+	private String orderFilePath;
+	private AutosaveScheduler<OrderModel> autosave;
+
+	/**
+	 * Constructor for XmlOrderStore objects which save every change straight
+	 * away.
+	 *
+	 * @param orderFilePath
+	 *            Path of the orders XML file
+	 */
+	public XmlOrderStore(String orderFilePath) {
+		this(orderFilePath, 0, 0);
+	}
+
+	/**
+	 * Constructor for XmlOrderStore objects which coalesce changes.
+	 *
+	 * @param orderFilePath
+	 *            Path of the orders XML file
+	 * @param autosaveIdleMillis
+	 *            long time without changes before saving, or 0 to save every
+	 *            change straight away
+	 * @param autosaveMaxMillis
+	 *            long maximum time a change waits before being saved
+	 */
+	public XmlOrderStore(String orderFilePath, long autosaveIdleMillis, long autosaveMaxMillis) {
+		this.orderFilePath = orderFilePath;
+
+		// the whole order list is saved whichever orders are dirty
+		autosave = new AutosaveScheduler<>("Orders", autosaveIdleMillis, autosaveMaxMillis, dirtyOrders -> {
+			List<OrderRecord> orderRecords = OrderRecord.copyOf(OrderModel.getOrderList());
+			return () -> StaxXmlHandler.saveOrderRecords(orderFilePath, orderRecords);
+		});
+	}
+
+	@Override
+	public void open() {
+		reload();
+	}
+
+	@Override
+	public void attach() {
+		// the boot image holds the orders saved in the file
+	}
+
+	@Override
+	public void reload() {
+		// load after any save still waiting to be written
+		autosave.flush();
+		PersistenceExecutor.drain();
+
+		File orderFile = new File(orderFilePath);
+		if (orderFile.exists() && orderFile.length() > 0) {
+			FileXmlHandler.loadOrders(orderFilePath, true);
+		} else {
+			OrderModel.getOrderList().clear();
+		}
+	}
+
+	@Override
+	public CompletableFuture<Void> orderOpened(OrderModel order) {
+		return autosave.markDirty(order);
+	}
+
+	@Override
+	public CompletableFuture<Void> statusChanged(OrderModel order) {
+		return autosave.markDirty(order);
+	}
+
+	@Override
+	public CompletableFuture<Void> itemsChanged(OrderModel order) {
+		return autosave.markDirty(order);
+	}
+
+	@Override
+	public CompletableFuture<Void> commentsChanged(OrderModel order) {
+		return autosave.markDirty(order);
+	}
+
+	@Override
+	public CompletableFuture<Void> orderDeleted(OrderModel order) {
+		return autosave.markDirty(order);
+	}
+
+	@Override
+	public CompletableFuture<Void> ordersArchived(List<OrderModel> orders) {
+		for (OrderModel order : orders) {
+			autosave.markDirty(order);
+		}
+
+		// archiving at startup waits for the removal, so save it now
+		return autosave.flush();
+	}
+
+	@Override
+	public void flush() {
+		autosave.flush();
+	}
+
+	@Override
+	public void close() {
+		autosave.flush();
+		PersistenceExecutor.drain();
+	}
+
+	/**
+	 * @return AutosaveScheduler which coalesces changes, e.g. to report how
+	 *         many writes were saved.
+	 */
+	public AutosaveScheduler<OrderModel> getAutosave() {
+		return autosave;
+	}
+}
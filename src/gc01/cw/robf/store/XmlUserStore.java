@@ -0,0 +1,44 @@
+package gc01.cw.robf.store;
+
+import java.util.concurrent.CompletableFuture;
+
+import gc01.cw.robf.model.UserModel;
+import gc01.cw.robf.utility.FileXmlHandler;
+import gc01.cw.robf.utility.PersistenceExecutor;
+import javafx.collections.ObservableList;
+
+/**
+ * UserStore which keeps users in an XML file written by FileXmlHandler on the
+ * persistence thread.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class XmlUserStore implements UserStore {
+
+	private String userFilePath;
+
+	/**
+	 * Constructor for XmlUserStore objects.
+	 *
+	 * @param userFilePath
+	 *            Path of the users XML file
+	 */
+	public XmlUserStore(String userFilePath) {
+		this.userFilePath = userFilePath;
+	}
+
+	@Override
+	public void load() {
+		// load after any save still waiting to be written
+		PersistenceExecutor.drain();
+		FileXmlHandler.loadUsers(userFilePath, true);
+	}
+
+	@Override
+	public CompletableFuture<Void> save(ObservableList<UserModel> userList) {
+		// written on the persistence thread
+		return PersistenceExecutor.submit("Users", () -> FileXmlHandler.saveUsers(userFilePath, userList));
+	}
+}
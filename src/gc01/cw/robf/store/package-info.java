@@ -0,0 +1,10 @@
+/**
+ * 
+ */
+/**
+ * Package containing persistence interfaces and their storage engines.
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+package gc01.cw.robf.store;
\ No newline at end of file
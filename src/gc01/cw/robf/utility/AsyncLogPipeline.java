@@ -0,0 +1,278 @@
+package gc01.cw.robf.utility;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import gc01.cw.robf.model.LogModel;
+
+/**
+ * Utility class providing an asynchronous logging mode for SegmentFileLogger.
+ * Callers publish LogModel objects into a bounded, lock-free ring buffer and
+ * return immediately. A single background writer thread drains the buffer in
+ * batches every flush interval and appends each batch to the segment file
+ * with one write.
+ * <p>
+ * When the buffer is full the configured OverflowPolicy decides whether the
+ * publishing thread waits for space (BLOCK) or the log line is discarded and
+ * counted (DROP). If the pipeline has not been started, or has been shut down,
+ * log lines are written synchronously so nothing is lost.
+ * <p>
+ * Ring buffer slot sequencing adapted from Dmitry Vyukov's bounded MPMC queue
+ * http://www.1024cores.net/home/lock-free-algorithms/queues/bounded-mpmc-queue
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class AsyncLogPipeline {
+
+	/**
+	 * Simple enum for the behaviour when the ring buffer is full.
+	 *
+	 * @author Rob Farthing
+	 * @version 1.0.0
+	 *
+	 */
+	public enum OverflowPolicy {
+		BLOCK, DROP;
+	}
+
+	private static final int MAX_BATCH_SIZE = 512;
+
+	private static String filePath;
+	private static OverflowPolicy overflowPolicy;
+	private static long flushIntervalNanos;
+	private static int mask;
+	private static AtomicReferenceArray<LogModel> slots;
+	private static AtomicLongArray sequences;
+
+	// next sequence to be claimed by a publisher
+	private static final AtomicLong head = new AtomicLong();
+	// next sequence to be taken by the writer, only written by the writer
+	private static volatile long tail;
+	// every sequence below this value has been written to file
+	private static volatile long written;
+	private static final AtomicLong dropped = new AtomicLong();
+
+	private static volatile boolean running;
+	private static Thread writerThread;
+	private static final Object flushLock = new Object();
+
+	/**
+	 * Static method to start the background writer. Capacity is rounded up to
+	 * the next power of two.
+	 *
+	 * @param logFilePath
+	 *            Path of the segment file the pipeline writes to
+	 * @param capacity
+	 *            int maximum number of log lines waiting to be written
+	 * @param flushIntervalMillis
+	 *            long maximum time a log line waits before being written
+	 * @param policy
+	 *            AsyncLogPipeline.OverflowPolicy enum used when the buffer is
+	 *            full
+	 */
+	public static synchronized void start(String logFilePath, int capacity, long flushIntervalMillis,
+			OverflowPolicy policy) {
+		if (running) {
+			return;
+		}
+
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		filePath = logFilePath;
+		overflowPolicy = policy;
+		flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+		mask = size - 1;
+		slots = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+		head.set(0);
+		tail = 0;
+		written = 0;
+		dropped.set(0);
+
+		running = true;
+		writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drainLoop();
+			}
+		}, "log-writer");
+		writerThread.setDaemon(true);
+		writerThread.start();
+	}
+
+	/**
+	 * Static method to publish a LogModel object for writing to the specified
+	 * segment file. Returns without waiting for the write unless the buffer is
+	 * full and the overflow policy is BLOCK.
+	 *
+	 * @param logFilePath
+	 *            Path of the segment file
+	 * @param logObject
+	 *            LogModel object to log
+	 * @return boolean true if the log line was accepted, false if it was
+	 *         dropped
+	 */
+	public static boolean publish(String logFilePath, LogModel logObject) {
+		if (!running || !logFilePath.equals(filePath)) {
+			SegmentFileLogger.writeLogLine(logFilePath, logObject);
+			return true;
+		}
+
+		while (true) {
+			long position = head.get();
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+
+			if (difference == 0) {
+				if (head.compareAndSet(position, position + 1)) {
+					slots.set(index, logObject);
+					sequences.set(index, position + 1);
+					return true;
+				}
+			} else if (difference < 0) {
+				// buffer full
+				if (overflowPolicy == OverflowPolicy.DROP) {
+					dropped.incrementAndGet();
+					return false;
+				}
+				if (!running) {
+					SegmentFileLogger.writeLogLine(logFilePath, logObject);
+					return true;
+				}
+				LockSupport.unpark(writerThread);
+				LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+			}
+		}
+	}
+
+	/**
+	 * Static method which blocks until every log line published before the
+	 * call has been written to file. Called on logout and before reading the
+	 * log back.
+	 */
+	public static void flush() {
+		if (!running) {
+			return;
+		}
+
+		long target = head.get();
+		LockSupport.unpark(writerThread);
+
+		synchronized (flushLock) {
+			while (running && written < target) {
+				try {
+					flushLock.wait(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 1);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				LockSupport.unpark(writerThread);
+			}
+		}
+	}
+
+	/**
+	 * Static method to stop the background writer after writing every log
+	 * line still in the buffer. Called on application shutdown. Later log
+	 * lines are written synchronously. If the writer does not stop within
+	 * five seconds, e.g. as the disk is not responding, the lines it has not
+	 * taken from the buffer are not written.
+	 */
+	public static synchronized void shutdown() {
+		if (!running) {
+			return;
+		}
+
+		flush();
+		running = false;
+		LockSupport.unpark(writerThread);
+		try {
+			writerThread.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (writerThread.isAlive()) {
+			// the buffer still belongs to the writer
+			System.err.println("Log writer did not stop, log lines still in the buffer are not written");
+			return;
+		}
+
+		// anything published while stopping
+		ArrayList<LogModel> batch;
+		while (!(batch = takeBatch()).isEmpty()) {
+			writeBatch(batch);
+		}
+	}
+
+	/**
+	 * @return long number of log lines discarded by the DROP overflow policy
+	 *         since the pipeline was started.
+	 */
+	public static long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/*
+	 * Writer thread loop. Sleeps for the flush interval (or until woken by a
+	 * flush or a blocked publisher) and then writes everything in the buffer.
+	 */
+	private static void drainLoop() {
+		while (running) {
+			ArrayList<LogModel> batch = takeBatch();
+			if (batch.isEmpty()) {
+				LockSupport.parkNanos(flushIntervalNanos);
+			} else {
+				writeBatch(batch);
+			}
+		}
+	}
+
+	/*
+	 * Takes up to MAX_BATCH_SIZE published log lines from the buffer. Only
+	 * called by the writer thread, or after it has stopped.
+	 */
+	private static ArrayList<LogModel> takeBatch() {
+		ArrayList<LogModel> batch = new ArrayList<>();
+		long position = tail;
+
+		while (batch.size() < MAX_BATCH_SIZE) {
+			int index = (int) position & mask;
+			if (sequences.get(index) != position + 1) {
+				// empty, or claimed but not yet published
+				break;
+			}
+			batch.add(slots.get(index));
+			slots.set(index, null);
+			sequences.set(index, position + mask + 1);
+			position++;
+		}
+
+		tail = position;
+		return batch;
+	}
+
+	/*
+	 * Writes a batch to file and wakes any threads waiting in flush.
+	 */
+	private static void writeBatch(ArrayList<LogModel> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		SegmentFileLogger.writeLogLines(filePath, batch);
+
+		synchronized (flushLock) {
+			written = tail;
+			flushLock.notifyAll();
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package gc01.cw.robf.utility;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces bursts of changes into one save. Changed items are marked dirty
+ * and saved together once no change has been made for the idle time, or once
+ * the oldest unsaved change has waited for the maximum latency, whichever
+ * comes first. The save itself runs on the persistence thread.
+ * <p>
+ * Items are marked dirty and flushed on the JavaFX application thread, which
+ * is where the models change; a timer thread only decides when a save is
+ * due. With an idle time of zero every change is saved straight away.
+ * <p>
+ * Counts of changes and of writes are kept so that the number of writes
+ * saved by coalescing can be reported.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ * @param <T>
+ *            type of item marked dirty, e.g. OrderModel
+ */
+public class AutosaveScheduler<T> {
+
+	/**
+	 * Copies what is to be saved, on the JavaFX application thread, and
+	 * returns the save to run on the persistence thread.
+	 *
+	 * @param <T>
+	 *            type of item marked dirty
+	 */
+	public interface Snapshot<T> {
+
+		/**
+		 * @param dirtyItems
+		 *            List of items changed since the last save, in the order
+		 *            they were first changed
+		 * @return PersistenceExecutor.Work which saves the copy
+		 */
+		PersistenceExecutor.Work take(List<T> dirtyItems);
+	}
+
+	private static final ScheduledExecutorService timer = createTimer();
+
+	private String description;
+	private long idleNanos;
+	private long maxLatencyNanos;
+	private Snapshot<T> snapshot;
+
+	private Set<T> dirtyItems = new LinkedHashSet<>();
+	// completes once the dirty items are saved, null if nothing is dirty
+	private CompletableFuture<Void> pendingSave;
+	private long firstDirtyNanos;
+	private long lastDirtyNanos;
+	private boolean checkScheduled;
+	private long changeCount;
+	private long pendingChangeCount;
+	private long writeCount;
+
+	/**
+	 * Constructor for AutosaveScheduler objects.
+	 *
+	 * @param description
+	 *            String describing what is saved, shown if a save fails
+	 * @param idleMillis
+	 *            long time without changes before saving, or 0 to save every
+	 *            change straight away
+	 * @param maxLatencyMillis
+	 *            long maximum time a change waits before being saved
+	 * @param snapshot
+	 *            AutosaveScheduler.Snapshot which copies what is saved
+	 */
+	public AutosaveScheduler(String description, long idleMillis, long maxLatencyMillis, Snapshot<T> snapshot) {
+		this.description = description;
+		this.idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(idleMillis, 0));
+		this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(maxLatencyMillis, idleMillis));
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * Marks an item as changed and schedules a save.
+	 *
+	 * @param item
+	 *            item which has changed
+	 * @return CompletableFuture which completes once the save including the
+	 *         change has run
+	 */
+	public synchronized CompletableFuture<Void> markDirty(T item) {
+		long now = System.nanoTime();
+		changeCount++;
+		pendingChangeCount++;
+		if (pendingSave == null) {
+			pendingSave = new CompletableFuture<>();
+			firstDirtyNanos = now;
+		}
+		dirtyItems.add(item);
+		lastDirtyNanos = now;
+
+		CompletableFuture<Void> saved = pendingSave;
+		if (idleNanos == 0) {
+			flush();
+		} else if (!checkScheduled) {
+			checkScheduled = true;
+			schedule(idleNanos);
+		}
+		return saved;
+	}
+
+	/**
+	 * Saves the dirty items straight away, e.g. on logout or shutdown.
+	 *
+	 * @return CompletableFuture which completes once the save has run, or
+	 *         straight away if nothing is dirty
+	 */
+	public synchronized CompletableFuture<Void> flush() {
+		if (pendingSave == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		CompletableFuture<Void> saved = pendingSave;
+		List<T> savedItems = new ArrayList<>(dirtyItems);
+		pendingSave = null;
+		dirtyItems.clear();
+		pendingChangeCount = 0;
+		writeCount++;
+
+		PersistenceExecutor.submit(description, snapshot.take(savedItems)).whenComplete((result, error) -> {
+			if (error == null) {
+				saved.complete(null);
+			} else {
+				saved.completeExceptionally(error);
+			}
+		});
+		return saved;
+	}
+
+	/**
+	 * @return long number of changes marked dirty.
+	 */
+	public synchronized long getChangeCount() {
+		return changeCount;
+	}
+
+	/**
+	 * @return long number of writes run for those changes.
+	 */
+	public synchronized long getWriteCount() {
+		return writeCount;
+	}
+
+	/**
+	 * @return long number of writes saved by coalescing changes, not counting
+	 *         changes still waiting to be saved.
+	 */
+	public synchronized long getWritesSaved() {
+		return changeCount - pendingChangeCount - writeCount;
+	}
+
+	/*
+	 * Runs on the timer thread. Saves on the JavaFX application thread if
+	 * the save is due, otherwise waits until it is.
+	 */
+	private void check() {
+		synchronized (this) {
+			checkScheduled = false;
+			if (pendingSave == null) {
+				return;
+			}
+
+			long now = System.nanoTime();
+			long due = Math.min(lastDirtyNanos + idleNanos, firstDirtyNanos + maxLatencyNanos);
+			if (due - now > 0) {
+				checkScheduled = true;
+				schedule(due - now);
+				return;
+			}
+		}
+
+		PersistenceExecutor.runOnFxThread(() -> flush());
+	}
+
+	private void schedule(long delayNanos) {
+		timer.schedule(() -> check(), delayNanos, TimeUnit.NANOSECONDS);
+	}
+
+	private static ScheduledExecutorService createTimer() {
+		return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "autosave");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
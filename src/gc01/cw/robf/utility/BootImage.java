@@ -0,0 +1,328 @@
+package gc01.cw.robf.utility;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.OrderRecord;
+import gc01.cw.robf.model.UserModel;
+
+/**
+ * Utility class for the boot image: a compact binary copy of the menu, the
+ * users and the open orders written on clean shutdown, so that the next
+ * launch can fill the models without parsing the data files.
+ * <p>
+ * The image records the length and last modified time of each data file it
+ * was written after. It is only used if every file is unchanged and the
+ * checksum of its contents matches; otherwise the stores load as usual. The
+ * image is deleted once used, as the data files change as soon as anything
+ * is saved, so it is never used after a launch which did not shut down
+ * cleanly.
+ * <p>
+ * File layout: a 16 byte header (magic number, format version, contents
+ * length and CRC32 of the contents), then the contents: the data file
+ * fingerprints, the menu items, the users and the open orders. Strings are
+ * length-prefixed UTF-8, date-times epoch milliseconds and prices whole pence,
+ * as in OrderSnapshot.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class BootImage {
+
+	/**
+	 * Magic number at the start of every boot image file ("OGBI").
+	 */
+	public static final int FILE_MAGIC = 0x4F474249;
+
+	/**
+	 * Current version of the boot image file format.
+	 */
+	public static final short FILE_VERSION = 1;
+
+	/**
+	 * Length in bytes of the boot image file header.
+	 */
+	public static final int FILE_HEADER_LENGTH = 16;
+
+	/**
+	 * Static method to write the menu, the users and the open orders to a
+	 * boot image. Called on clean shutdown, once closed orders have been
+	 * archived and the stores have saved and closed, so that the data files
+	 * are in their final state. No image is written while a closed order is
+	 * still in the order list, e.g. if the archive could not save it, as the
+	 * image would not hold every order in the order store.
+	 *
+	 * @param filePath
+	 *            Path of the boot image file
+	 * @param sourceFilePaths
+	 *            List of paths of the data files the models were saved to
+	 * @return boolean true if the image was saved
+	 */
+	public static boolean save(String filePath, List<String> sourceFilePaths) {
+		List<OrderRecord> openOrders = new ArrayList<>();
+		for (OrderModel order : OrderModel.getOrderList()) {
+			if (order.getStatus() == OrderModel.OrderStatus.CLOSED) {
+				return false;
+			}
+			openOrders.add(OrderRecord.of(order));
+		}
+
+		ByteArrayOutputStream contents = new ByteArrayOutputStream(64 * 1024);
+		Path tempPath = null;
+		try {
+			DataOutputStream out = new DataOutputStream(contents);
+
+			out.writeInt(sourceFilePaths.size());
+			for (String sourceFilePath : sourceFilePaths) {
+				File sourceFile = new File(sourceFilePath);
+				writeString(out, sourceFilePath);
+				out.writeLong(sourceFile.exists() ? sourceFile.length() : -1);
+				out.writeLong(sourceFile.lastModified());
+			}
+
+			List<MenuItemModel> menu = MenuItemModel.getMenu();
+			out.writeInt(menu.size());
+			for (MenuItemModel menuItem : menu) {
+				out.writeLong(menuItem.getItemId());
+				writeString(out, menuItem.getName());
+				writeString(out, menuItem.getDescription());
+				out.writeLong(menuItem.getPricePence());
+				out.writeByte(menuItem.getType().ordinal());
+			}
+
+			List<UserModel> users = UserModel.getUserList();
+			out.writeInt(users.size());
+			for (UserModel user : users) {
+				writeString(out, user.getFullName());
+				writeString(out, user.getUsername());
+				writeString(out, user.getPassword());
+				out.writeByte(user.getType().ordinal());
+			}
+
+			out.writeInt(openOrders.size());
+			for (OrderRecord order : openOrders) {
+				out.writeLong(order.getOrderId());
+				out.writeInt(order.getTableNumber());
+				writeString(out, order.getCreatingUser());
+				out.writeByte(order.getStatus().ordinal());
+				out.writeLong(order.getOpenedMillis());
+				out.writeLong(order.getClosedMillis());
+				out.writeLong(order.getTotalPence());
+				writeString(out, order.getComments());
+				out.writeInt(order.getLines().size());
+				for (OrderRecord.Line line : order.getLines()) {
+					writeString(out, line.getName());
+					out.writeLong(line.getItemId());
+					out.writeInt(line.getQuantity());
+					out.writeLong(line.getUnitPricePence());
+				}
+			}
+			out.flush();
+
+			CRC32 checksum = new CRC32();
+			checksum.update(contents.toByteArray());
+
+			tempPath = StaxXmlHandler.createTempFile(filePath);
+			try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				DataOutputStream file = new DataOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+				file.writeInt(FILE_MAGIC);
+				file.writeShort(FILE_VERSION);
+				file.writeShort(0);
+				file.writeInt(contents.size());
+				file.writeInt((int) checksum.getValue());
+				contents.writeTo(file);
+				file.flush();
+				channel.force(true);
+			}
+
+			StaxXmlHandler.replace(tempPath, filePath);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			StaxXmlHandler.deleteTempFile(tempPath);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Static method to fill the menu, the users and the order list from a boot
+	 * image, replacing anything in memory, and delete the image. Nothing is
+	 * changed if the image is missing, damaged or older than any of the data
+	 * files.
+	 *
+	 * @param filePath
+	 *            Path of the boot image file
+	 * @param sourceFilePaths
+	 *            List of paths of the data files the models are saved to
+	 * @return boolean true if the models were loaded from the image
+	 */
+	public static boolean load(String filePath, List<String> sourceFilePaths) {
+		File imageFile = new File(filePath);
+		if (!imageFile.exists()) {
+			return false;
+		}
+
+		boolean loaded = false;
+		try {
+			// read rather than mapped, as a mapped file can not be deleted
+			// on Windows while the mapping is reachable
+			ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(imageFile.toPath()));
+			loaded = isCurrent(buffer, sourceFilePaths) && read(buffer);
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+			e.printStackTrace();
+		}
+
+		// used once only, see class comment
+		try {
+			Files.deleteIfExists(Paths.get(filePath));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return loaded;
+	}
+
+	/*
+	 * Checks the header, the checksum and the data file fingerprints, leaving
+	 * the buffer positioned at the menu items.
+	 */
+	private static boolean isCurrent(ByteBuffer buffer, List<String> sourceFilePaths) {
+		if (buffer.limit() < FILE_HEADER_LENGTH || buffer.getInt(0) != FILE_MAGIC
+				|| buffer.getShort(4) != FILE_VERSION) {
+			return false;
+		}
+
+		int contentsLength = buffer.getInt(8);
+		if (contentsLength < 0 || contentsLength != buffer.limit() - FILE_HEADER_LENGTH) {
+			return false;
+		}
+
+		ByteBuffer contents = buffer.duplicate();
+		contents.position(FILE_HEADER_LENGTH);
+		CRC32 checksum = new CRC32();
+		checksum.update(contents);
+		if ((int) checksum.getValue() != buffer.getInt(12)) {
+			return false;
+		}
+
+		buffer.position(FILE_HEADER_LENGTH);
+		int sourceCount = buffer.getInt();
+		if (sourceCount != sourceFilePaths.size()) {
+			return false;
+		}
+		for (int i = 0; i < sourceCount; i++) {
+			File sourceFile = new File(sourceFilePaths.get(i));
+			if (!readString(buffer).equals(sourceFilePaths.get(i))
+					|| buffer.getLong() != (sourceFile.exists() ? sourceFile.length() : -1)
+					|| buffer.getLong() != sourceFile.lastModified()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Decodes everything before changing any model, so that a damaged image
+	 * leaves the models for the stores to load.
+	 */
+	private static boolean read(ByteBuffer buffer) {
+		MenuItemModel.ItemType[] itemTypes = MenuItemModel.ItemType.values();
+		UserModel.UserType[] userTypes = UserModel.UserType.values();
+		OrderModel.OrderStatus[] statuses = OrderModel.OrderStatus.values();
+
+		int menuCount = buffer.getInt();
+		long[] itemIds = new long[menuCount];
+		String[] names = new String[menuCount];
+		String[] descriptions = new String[menuCount];
+		long[] prices = new long[menuCount];
+		MenuItemModel.ItemType[] types = new MenuItemModel.ItemType[menuCount];
+		for (int i = 0; i < menuCount; i++) {
+			itemIds[i] = buffer.getLong();
+			names[i] = readString(buffer);
+			descriptions[i] = readString(buffer);
+			prices[i] = buffer.getLong();
+			types[i] = itemTypes[buffer.get()];
+		}
+
+		int userCount = buffer.getInt();
+		String[][] userFields = new String[userCount][];
+		UserModel.UserType[] roles = new UserModel.UserType[userCount];
+		for (int i = 0; i < userCount; i++) {
+			userFields[i] = new String[] { readString(buffer), readString(buffer), readString(buffer) };
+			roles[i] = userTypes[buffer.get()];
+		}
+
+		int orderCount = buffer.getInt();
+		List<OrderRecord> orderRecords = new ArrayList<>(orderCount);
+		for (int i = 0; i < orderCount; i++) {
+			long orderId = buffer.getLong();
+			int tableNumber = buffer.getInt();
+			String creatingUser = readString(buffer);
+			OrderModel.OrderStatus status = statuses[buffer.get()];
+			long dateOpened = buffer.getLong();
+			long dateClosed = buffer.getLong();
+			long totalPence = buffer.getLong();
+			String comments = readString(buffer);
+			int lineCount = buffer.getInt();
+			List<OrderRecord.Line> lines = new ArrayList<>(lineCount);
+			for (int j = 0; j < lineCount; j++) {
+				lines.add(new OrderRecord.Line(readString(buffer), buffer.getLong(), buffer.getInt(),
+						buffer.getLong()));
+			}
+			orderRecords.add(new OrderRecord(orderId, tableNumber, creatingUser, status, dateOpened, dateClosed,
+					totalPence, comments, lines));
+		}
+
+		// menu items add themselves to the menu and its indexes
+		MenuItemModel.getMenu().clear();
+		for (int i = 0; i < menuCount; i++) {
+			MenuItemModel menuItem = new MenuItemModel(names[i], descriptions[i], prices[i] / 100.0, types[i]);
+			menuItem.setItemId(itemIds[i]);
+		}
+
+		UserModel.getUserList().clear();
+		for (int i = 0; i < userCount; i++) {
+			new UserModel(userFields[i][0], userFields[i][1], userFields[i][2], roles[i]);
+		}
+
+		// orders look up their menu items, so are built after the menu
+		List<OrderModel> orders = new ArrayList<>(orderCount);
+		for (OrderRecord orderRecord : orderRecords) {
+			orders.add(new OrderModel(orderRecord));
+		}
+		OrderModel.getOrderList().setAll(orders);
+		return true;
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -4,12 +4,10 @@ import java.io.File;
 import java.io.IOException;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -20,6 +18,7 @@ import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.model.OrderLineModel;
 import gc01.cw.robf.model.OrderModel;
 import gc01.cw.robf.model.UserModel;
 import javafx.collections.ObservableList;
@@ -27,7 +26,9 @@ import javafx.collections.ObservableList;
 /**
  * Utility class for working with XML files for OrderModel, UserModel and
  * MenuItemModel items. Defines functions to save and load respective XML data
- * file for each type.
+ * file for each type. Uses a DOM document by default; streaming can be
+ * enabled to delegate loading and saving to StaxXmlHandler, which reads and
+ * writes the same files in one pass without building a document.
  * <p>
  * Working with XML adapted from
  * https://www.tutorialspoint.com/java_xml/java_dom_create_document.htm
@@ -38,6 +39,25 @@ import javafx.collections.ObservableList;
  */
 public class FileXmlHandler {
 
+	private static boolean streaming = false;
+
+	/**
+	 * @return boolean true if files are loaded and saved with the streaming
+	 *         parser and writer.
+	 */
+	public static boolean isStreaming() {
+		return streaming;
+	}
+
+	/**
+	 * @param streaming
+	 *            boolean true to load and save files with the streaming (StAX)
+	 *            parser and writer, false to use a DOM document.
+	 */
+	public static void setStreaming(boolean streaming) {
+		FileXmlHandler.streaming = streaming;
+	}
+
 	/**
 	 * Static method which parses the specified XML file and loads the stored
 	 * nodes as UserModel objects. Loaded file requires structure created by
@@ -50,6 +70,10 @@ public class FileXmlHandler {
 	 *            in memory or append only.
 	 */
 	public static void loadUsers(String filePath, boolean overwrite) {
+		if (streaming) {
+			StaxXmlHandler.loadUsers(filePath, overwrite);
+			return;
+		}
 
 		// allows the loader to completely clear or just append to the list
 		if (overwrite) {
@@ -60,9 +84,8 @@ public class FileXmlHandler {
 
 		try {
 			File inputFile = new File(filePath);
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
 			DocumentBuilder dBuilder;
-			dBuilder = dbFactory.newDocumentBuilder();
+			dBuilder = XmlCodecs.newDocumentBuilder();
 			Document doc;
 			doc = dBuilder.parse(inputFile);
 			doc.getDocumentElement().normalize();
@@ -99,12 +122,15 @@ public class FileXmlHandler {
 	 *            Path of the XML file
 	 * @param userList
 	 *            ObservableList of UserModel objects to save.
+	 * @return boolean true if the file was saved
 	 */
-	public static void saveUsers(String filePath, ObservableList<UserModel> userList) {
+	public static boolean saveUsers(String filePath, ObservableList<UserModel> userList) {
+		if (streaming) {
+			return StaxXmlHandler.saveUsers(filePath, userList);
+		}
 
 		try {
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+			DocumentBuilder dBuilder = XmlCodecs.newDocumentBuilder();
 			Document doc = dBuilder.newDocument();
 			// root users element
 			Element rootElement = doc.createElement("users");
@@ -132,16 +158,16 @@ public class FileXmlHandler {
 
 				// user type element
 				Element userType = doc.createElement("userType");
-				userType.appendChild(doc.createTextNode(user.getType()));
+				userType.appendChild(doc.createTextNode(user.getType().toString()));
 				userElement.appendChild(userType);
 			}
 
 			// write the content into xml file
-			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			Transformer transformer = transformerFactory.newTransformer();
+			Transformer transformer = XmlCodecs.newTransformer();
 			DOMSource source = new DOMSource(doc);
 			StreamResult result = new StreamResult(new File(filePath));
 			transformer.transform(source, result);
+			return true;
 		} catch (ParserConfigurationException e) {
 			e.printStackTrace();
 		} catch (TransformerConfigurationException e) {
@@ -150,14 +176,17 @@ public class FileXmlHandler {
 			e.printStackTrace();
 		}
 
+		return false;
 	}
 
 	/**
 	 * Static method which parses the specified XML file and loads the stored
 	 * nodes as OrderModel objects. Loaded file requires structure created by
-	 * saveOrders method. Uses name of menu items contained within orders to
-	 * lookup MenuItemModel objects. This requires that a MenuItemObject exists
-	 * for such orders.
+	 * saveOrders method. Uses name and item ID of the menu items contained
+	 * within orders to lookup MenuItemModel objects. This requires that a
+	 * MenuItemObject exists for such orders. Files saved before order lines
+	 * hold one menuItem element for each item ordered with no quantity or unit
+	 * price; these are counted into lines at the current menu price.
 	 * 
 	 * @param filePath
 	 *            Path of the XML file
@@ -166,7 +195,10 @@ public class FileXmlHandler {
 	 *            orders in memory or append only.
 	 */
 	public static void loadOrders(String filePath, boolean overwrite) {
-		ObservableList<MenuItemModel> menuItemList = MenuItemModel.getMenu();
+		if (streaming) {
+			StaxXmlHandler.loadOrders(filePath, overwrite);
+			return;
+		}
 
 		// allows the loader to completely clear or just append to the list
 		if (overwrite) {
@@ -176,8 +208,7 @@ public class FileXmlHandler {
 
 		try {
 			File inputFile = new File(filePath);
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+			DocumentBuilder dBuilder = XmlCodecs.newDocumentBuilder();
 			Document doc = dBuilder.parse(inputFile);
 			doc.getDocumentElement().normalize();
 
@@ -196,35 +227,54 @@ public class FileXmlHandler {
 							.valueOf(eElement.getElementsByTagName("totalCost").item(0).getTextContent());
 					String comments = eElement.getElementsByTagName("comments").item(0).getTextContent();
 
-					OrderModel order = new OrderModel(tableNumber);
+					OrderModel order = new OrderModel(tableNumber, creatingUser);
 					// override defaults
-					order.setCreatingUser(creatingUser);
 					order.setStatus(OrderModel.OrderStatus.valueOf(status));
 					order.setDateOpened(dateOpened);
 					order.setDateClosed(dateClosed);
-					order.setTotalCost(totalCost);
 					order.setComments(comments);
 
-					// look up menu item objects from saved name and add to
-					// order
-					ObservableList<MenuItemModel> orderMenuItems = order.getItemList();
+					// keep saved order IDs unless appending, where they could
+					// clash with orders already loaded
+					NodeList orderId = eElement.getElementsByTagName("orderId");
+					if (overwrite && orderId.getLength() > 0) {
+						order.setOrderId(Long.valueOf(orderId.item(0).getTextContent()));
+					}
 
+					// look up menu item objects from saved name and add lines
+					// to order
 					NodeList menuItem = eElement.getElementsByTagName("menuItem");
 					for (int j = 0; j < menuItem.getLength(); j++) {
 						Node menuItemNode = menuItem.item(j);
 						if (menuItemNode.getNodeType() == Node.ELEMENT_NODE) {
 							Element menuItemElement = (Element) menuItemNode;
 							String itemName = menuItemElement.getElementsByTagName("name").item(0).getTextContent();
-
-							for (MenuItemModel mItem : menuItemList) {
-								if (mItem.getName().equals(itemName)) {
-									orderMenuItems.add(mItem);
-									break;
+							NodeList itemId = menuItemElement.getElementsByTagName("itemId");
+							NodeList quantity = menuItemElement.getElementsByTagName("quantity");
+							NodeList unitPrice = menuItemElement.getElementsByTagName("unitPrice");
+
+							MenuItemModel mItem = MenuItemModel.getMenuItem(itemName,
+									itemId.getLength() > 0 ? Long.valueOf(itemId.item(0).getTextContent()) : 0);
+							if (mItem != null) {
+								// older files hold one menuItem for each item
+								// ordered at its current price
+								int itemQuantity = 1;
+								if (quantity.getLength() > 0) {
+									itemQuantity = Integer.valueOf(quantity.item(0).getTextContent());
+								}
+								long unitPricePence = mItem.getPricePence();
+								if (unitPrice.getLength() > 0) {
+									unitPricePence = MenuItemModel
+											.toPence(Double.valueOf(unitPrice.item(0).getTextContent()));
 								}
+								order.addItem(mItem, itemQuantity, unitPricePence);
 							}
 						}
 					}
 
+					// saved total replaces the running total of the items
+					order.setTotalCost(totalCost);
+
 				}
 			}
 		} catch (ParserConfigurationException e) {
@@ -247,10 +297,13 @@ public class FileXmlHandler {
 	 *            ObservableList of OrderModel objects to save.
 	 */
 	public static void saveOrders(String filePath, ObservableList<OrderModel> orderList) {
+		if (streaming) {
+			StaxXmlHandler.saveOrders(filePath, orderList);
+			return;
+		}
 
 		try {
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+			DocumentBuilder dBuilder = XmlCodecs.newDocumentBuilder();
 			Document doc = dBuilder.newDocument();
 			// root users element
 			Element rootElement = doc.createElement("orders");
@@ -270,7 +323,7 @@ public class FileXmlHandler {
 				orderElement.appendChild(creatingUser);
 
 				Element status = doc.createElement("status");
-				status.appendChild(doc.createTextNode(order.getStatus()));
+				status.appendChild(doc.createTextNode(order.getStatus().toString()));
 				orderElement.appendChild(status);
 
 				Element dateOpened = doc.createElement("dateOpened");
@@ -282,29 +335,44 @@ public class FileXmlHandler {
 				orderElement.appendChild(dateClosed);
 
 				Element totalCost = doc.createElement("totalCost");
-				totalCost.appendChild(doc.createTextNode(order.getTotalCost().toString()));
+				totalCost.appendChild(doc.createTextNode(Double.toString(order.getTotalCost())));
 				orderElement.appendChild(totalCost);
 
 				Element comments = doc.createElement("comments");
 				comments.appendChild(doc.createTextNode(order.getComments()));
 				orderElement.appendChild(comments);
 
-				// write the items within the order using the name. Name field
+				Element orderId = doc.createElement("orderId");
+				orderId.appendChild(doc.createTextNode(Long.toString(order.getOrderId())));
+				orderElement.appendChild(orderId);
+
+				// write the lines within the order using the name. Name field
 				// is assumed unique
-				for (MenuItemModel menuItem : order.getItemList()) {
+				for (OrderLineModel line : order.getLines()) {
 					Element menuItemElement = doc.createElement("menuItem");
 					orderElement.appendChild(menuItemElement);
 
 					Element name = doc.createElement("name");
-					name.appendChild(doc.createTextNode(menuItem.getName()));
+					name.appendChild(doc.createTextNode(line.getName()));
 					menuItemElement.appendChild(name);
+
+					Element itemId = doc.createElement("itemId");
+					itemId.appendChild(doc.createTextNode(Long.toString(line.getMenuItem().getItemId())));
+					menuItemElement.appendChild(itemId);
+
+					Element quantity = doc.createElement("quantity");
+					quantity.appendChild(doc.createTextNode(Integer.toString(line.getQuantity())));
+					menuItemElement.appendChild(quantity);
+
+					Element unitPrice = doc.createElement("unitPrice");
+					unitPrice.appendChild(doc.createTextNode(Double.toString(line.getUnitPrice())));
+					menuItemElement.appendChild(unitPrice);
 				}
 
 			}
 
 			// write the content into xml file
-			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			Transformer transformer = transformerFactory.newTransformer();
+			Transformer transformer = XmlCodecs.newTransformer();
 			DOMSource source = new DOMSource(doc);
 			StreamResult result = new StreamResult(new File(filePath));
 			transformer.transform(source, result);
@@ -330,6 +398,10 @@ public class FileXmlHandler {
 	 *            menu items in memory or append only.
 	 */
 	public static void loadMenuItems(String filePath, boolean overwrite) {
+		if (streaming) {
+			StaxXmlHandler.loadMenuItems(filePath, overwrite);
+			return;
+		}
 
 		// allows the loader to completely clear or just append to the list
 		if (overwrite) {
@@ -339,8 +411,7 @@ public class FileXmlHandler {
 
 		try {
 			File inputFile = new File(filePath);
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+			DocumentBuilder dBuilder = XmlCodecs.newDocumentBuilder();
 			Document doc = dBuilder.parse(inputFile);
 			doc.getDocumentElement().normalize();
 
@@ -354,7 +425,15 @@ public class FileXmlHandler {
 					Double price = Double.valueOf(eElement.getElementsByTagName("price").item(0).getTextContent());
 					String type = eElement.getElementsByTagName("type").item(0).getTextContent();
 
-					new MenuItemModel(name, description, price, MenuItemModel.ItemType.valueOf(type));
+					MenuItemModel menuItem = new MenuItemModel(name, description, price,
+							MenuItemModel.ItemType.valueOf(type));
+
+					// keep saved item IDs unless appending, where they could
+					// clash with menu items already loaded
+					NodeList itemId = eElement.getElementsByTagName("itemId");
+					if (overwrite && itemId.getLength() > 0) {
+						menuItem.setItemId(Long.valueOf(itemId.item(0).getTextContent()));
+					}
 				}
 			}
 		} catch (ParserConfigurationException e) {
@@ -375,12 +454,15 @@ public class FileXmlHandler {
 	 *            Path of the XML file
 	 * @param menuItemList
 	 *            ObservableList of MenuItemModel objects to save.
+	 * @return boolean true if the file was saved
 	 */
-	public static void saveMenuItems(String filePath, ObservableList<MenuItemModel> menuItemList) {
+	public static boolean saveMenuItems(String filePath, ObservableList<MenuItemModel> menuItemList) {
+		if (streaming) {
+			return StaxXmlHandler.saveMenuItems(filePath, menuItemList);
+		}
 
 		try {
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+			DocumentBuilder dBuilder = XmlCodecs.newDocumentBuilder();
 			Document doc = dBuilder.newDocument();
 			// root users element
 			Element rootElement = doc.createElement("menuItems");
@@ -399,21 +481,25 @@ public class FileXmlHandler {
 				menuItemElement.appendChild(description);
 
 				Element price = doc.createElement("price");
-				price.appendChild(doc.createTextNode(menuItem.getPrice().toString()));
+				price.appendChild(doc.createTextNode(Double.toString(menuItem.getPrice())));
 				menuItemElement.appendChild(price);
 
 				Element type = doc.createElement("type");
-				type.appendChild(doc.createTextNode(menuItem.getType()));
+				type.appendChild(doc.createTextNode(menuItem.getType().toString()));
 				menuItemElement.appendChild(type);
 
+				Element itemId = doc.createElement("itemId");
+				itemId.appendChild(doc.createTextNode(Long.toString(menuItem.getItemId())));
+				menuItemElement.appendChild(itemId);
+
 			}
 
 			// write the content into xml file
-			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			Transformer transformer = transformerFactory.newTransformer();
+			Transformer transformer = XmlCodecs.newTransformer();
 			DOMSource source = new DOMSource(doc);
 			StreamResult result = new StreamResult(new File(filePath));
 			transformer.transform(source, result);
+			return true;
 		} catch (ParserConfigurationException e) {
 			e.printStackTrace();
 		} catch (TransformerConfigurationException e) {
@@ -422,6 +508,7 @@ public class FileXmlHandler {
 			e.printStackTrace();
 		}
 
+		return false;
 	}
 
 	/*
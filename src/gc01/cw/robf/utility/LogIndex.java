@@ -0,0 +1,533 @@
+package gc01.cw.robf.utility;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import gc01.cw.robf.model.LogModel;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Persistent secondary index over a SegmentFileLogger segment file. Maps each
+ * username to the offsets and times of that user's records and keeps a coarse
+ * index of the first record in every hour, so that a user's log, or a
+ * date-time window of it, is read with positional reads proportional to the
+ * size of the result rather than the size of the log.
+ * <p>
+ * The index is stored in a sidecar file next to the segment file (segment
+ * path plus ".idx") which is itself append-only: a file header followed by
+ * user entries ('U' and the username, numbered in order of appearance) and
+ * record entries ('E', user number, record offset, record length and epoch
+ * seconds). On first use the sidecar is read into memory and any records
+ * appended to the segment file after the last indexed record are indexed. A
+ * partially written record at the end of the segment file is truncated at
+ * this point so later appends remain readable.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class LogIndex {
+
+	/**
+	 * Magic number at the start of every index file ("OGLI").
+	 */
+	public static final int FILE_MAGIC = 0x4F474C49;
+
+	/**
+	 * Current version of the index file format.
+	 */
+	public static final short FILE_VERSION = 1;
+
+	/**
+	 * Width in seconds of the coarse time buckets.
+	 */
+	public static final long BUCKET_SECONDS = 3600;
+
+	private static final byte USER_ENTRY = 'U';
+	private static final byte RECORD_ENTRY = 'E';
+
+	private static Map<String, LogIndex> indexes = new HashMap<>();
+
+	private final Path segmentPath;
+	private final Path indexPath;
+
+	private final Map<String, Postings> postingsByUser = new HashMap<>();
+	private final ArrayList<Postings> postingsById = new ArrayList<>();
+	// bucket start (epoch seconds) to offset of the first record in the bucket
+	private final TreeMap<Long, Long> buckets = new TreeMap<>();
+	// number of bytes of the segment file which have been indexed
+	private long indexedLength = SegmentFileLogger.FILE_HEADER_LENGTH;
+	private long lastSeconds = Long.MIN_VALUE;
+
+	// index entries not yet appended to the sidecar file
+	private ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream();
+	private DataOutputStream pending = new DataOutputStream(pendingBytes);
+
+	/*
+	 * Offsets and times of one user's records, in the order they were written.
+	 */
+	private static class Postings {
+		private final int userId;
+		private long[] offsets = new long[16];
+		private long[] seconds = new long[16];
+		private int size;
+		private boolean ordered = true;
+
+		private Postings(int userId) {
+			this.userId = userId;
+		}
+
+		private void add(long offset, long epochSeconds) {
+			if (size == offsets.length) {
+				offsets = Arrays.copyOf(offsets, size * 2);
+				seconds = Arrays.copyOf(seconds, size * 2);
+			}
+			if (size > 0 && epochSeconds < seconds[size - 1]) {
+				ordered = false;
+			}
+			offsets[size] = offset;
+			seconds[size] = epochSeconds;
+			size++;
+		}
+	}
+
+	private LogIndex(String filePath) {
+		this.segmentPath = Paths.get(filePath);
+		this.indexPath = Paths.get(filePath + ".idx");
+	}
+
+	/**
+	 * Static method returning the index for the specified segment file,
+	 * loading it (and indexing any new records) on first use.
+	 *
+	 * @param filePath
+	 *            Path of the segment file
+	 * @return LogIndex for the file
+	 */
+	public static synchronized LogIndex getIndex(String filePath) {
+		LogIndex index = indexes.get(filePath);
+		if (index == null) {
+			index = new LogIndex(filePath);
+			synchronized (index) {
+				index.load();
+			}
+			indexes.put(filePath, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Retrieves all LogModel objects written by the specified user.
+	 *
+	 * @param username
+	 *            String of username to search for
+	 * @return ObservableList of the user's LogModel objects in the order they
+	 *         were written
+	 */
+	public synchronized ObservableList<LogModel> readLogLinesByUser(String username) {
+		Postings postings = postingsByUser.get(username);
+		if (postings == null) {
+			return FXCollections.observableArrayList();
+		}
+		return readRecords(postings.offsets, 0, postings.size);
+	}
+
+	/**
+	 * Retrieves the LogModel objects written by the specified user between two
+	 * date-times (inclusive).
+	 *
+	 * @param username
+	 *            String of username to search for
+	 * @param from
+	 *            LocalDateTime of the start of the window
+	 * @param to
+	 *            LocalDateTime of the end of the window
+	 * @return ObservableList of matching LogModel objects in the order they
+	 *         were written
+	 */
+	public synchronized ObservableList<LogModel> readLogLinesByUser(String username, LocalDateTime from,
+			LocalDateTime to) {
+		Postings postings = postingsByUser.get(username);
+		if (postings == null) {
+			return FXCollections.observableArrayList();
+		}
+
+		long fromSeconds = from.toEpochSecond(ZoneOffset.UTC);
+		long toSeconds = to.toEpochSecond(ZoneOffset.UTC);
+
+		if (postings.ordered) {
+			int start = lowerBound(postings.seconds, postings.size, fromSeconds);
+			int end = lowerBound(postings.seconds, postings.size, toSeconds + 1);
+			return readRecords(postings.offsets, start, end);
+		}
+
+		// times written out of order, so check each of the user's records
+		long[] matches = new long[postings.size];
+		int count = 0;
+		for (int i = 0; i < postings.size; i++) {
+			if (postings.seconds[i] >= fromSeconds && postings.seconds[i] <= toSeconds) {
+				matches[count++] = postings.offsets[i];
+			}
+		}
+		return readRecords(matches, 0, count);
+	}
+
+	/**
+	 * Retrieves the LogModel objects of all users written between two
+	 * date-times (inclusive). Starts reading at the first record of the
+	 * bucket containing the start of the window and assumes records are
+	 * appended in date-time order.
+	 *
+	 * @param from
+	 *            LocalDateTime of the start of the window
+	 * @param to
+	 *            LocalDateTime of the end of the window
+	 * @return ObservableList of matching LogModel objects in the order they
+	 *         were written
+	 */
+	public synchronized ObservableList<LogModel> readLogLines(LocalDateTime from, LocalDateTime to) {
+		ObservableList<LogModel> logLines = FXCollections.observableArrayList();
+
+		long fromSeconds = from.toEpochSecond(ZoneOffset.UTC);
+		long toSeconds = to.toEpochSecond(ZoneOffset.UTC);
+		Map.Entry<Long, Long> firstBucket = buckets.ceilingEntry(bucketOf(fromSeconds));
+		if (firstBucket == null || firstBucket.getKey() > toSeconds) {
+			return logLines;
+		}
+
+		try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+			channel.position(firstBucket.getValue());
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+			byte[] payload = new byte[256];
+			long position = firstBucket.getValue();
+			while (position < indexedLength) {
+				int length = in.readInt();
+				in.readInt();
+				long epochSeconds = in.readLong();
+				if (payload.length < length) {
+					payload = new byte[length];
+				}
+				in.readFully(payload, 0, length);
+				position += SegmentFileLogger.RECORD_HEADER_LENGTH + length;
+
+				if (epochSeconds > toSeconds) {
+					break;
+				}
+				if (epochSeconds >= fromSeconds) {
+					logLines.add(SegmentFileLogger.decodePayload(payload, length));
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return logLines;
+	}
+
+	/*
+	 * Adds a record which has just been appended to the segment file. Must be
+	 * called while holding the lock on this index, in file order, followed by
+	 * persist.
+	 */
+	void appended(long offset, int length, String username, long epochSeconds) {
+		Postings postings = postingsByUser.get(username);
+
+		try {
+			if (postings == null) {
+				postings = new Postings(postingsById.size());
+				postingsById.add(postings);
+				postingsByUser.put(username, postings);
+				pending.writeByte(USER_ENTRY);
+				pending.writeUTF(username);
+			}
+
+			pending.writeByte(RECORD_ENTRY);
+			pending.writeInt(postings.userId);
+			pending.writeLong(offset);
+			pending.writeInt(length);
+			pending.writeLong(epochSeconds);
+		} catch (IOException e) {
+			// writing to memory
+			e.printStackTrace();
+		}
+
+		add(postings, offset, length, epochSeconds);
+	}
+
+	/*
+	 * Appends index entries added since the last call to the sidecar file.
+	 */
+	void persist() {
+		if (pendingBytes.size() == 0) {
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND)) {
+			if (channel.size() == 0) {
+				SegmentFileLogger.writeFully(channel, fileHeader());
+			}
+			SegmentFileLogger.writeFully(channel, ByteBuffer.wrap(pendingBytes.toByteArray()));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		pendingBytes.reset();
+	}
+
+	/*
+	 * Updates the in-memory structures for one record.
+	 */
+	private void add(Postings postings, long offset, int length, long epochSeconds) {
+		postings.add(offset, epochSeconds);
+
+		long bucket = bucketOf(epochSeconds);
+		if (epochSeconds > lastSeconds && !buckets.containsKey(bucket)) {
+			buckets.put(bucket, offset);
+		}
+		lastSeconds = Math.max(lastSeconds, epochSeconds);
+		indexedLength = Math.max(indexedLength, offset + SegmentFileLogger.RECORD_HEADER_LENGTH + length);
+	}
+
+	/*
+	 * Reads the sidecar file into memory, then indexes any records in the
+	 * segment file beyond the last indexed record.
+	 */
+	private void load() {
+		try {
+			long segmentLength = Files.exists(segmentPath) ? Files.size(segmentPath) : 0;
+
+			if (!readSidecar(segmentLength)) {
+				// missing, damaged or out of step with the segment file
+				clear();
+				Files.deleteIfExists(indexPath);
+			}
+
+			if (segmentLength > indexedLength) {
+				indexTail(segmentLength);
+				persist();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/*
+	 * Reads the sidecar file. Returns false if it should be rebuilt.
+	 */
+	private boolean readSidecar(long segmentLength) throws IOException {
+		if (!Files.exists(indexPath)) {
+			return false;
+		}
+
+		long validLength = 0;
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(indexPath)))) {
+			if (in.readInt() != FILE_MAGIC || in.readShort() != FILE_VERSION) {
+				return false;
+			}
+			in.readShort();
+			validLength = 8;
+
+			while (true) {
+				byte type;
+				try {
+					type = in.readByte();
+				} catch (EOFException e) {
+					break;
+				}
+
+				if (type == USER_ENTRY) {
+					String username = in.readUTF();
+					Postings postings = new Postings(postingsById.size());
+					postingsById.add(postings);
+					postingsByUser.put(username, postings);
+					validLength += 3 + utfLength(username);
+				} else if (type == RECORD_ENTRY) {
+					int userId = in.readInt();
+					long offset = in.readLong();
+					int length = in.readInt();
+					long epochSeconds = in.readLong();
+					if (userId >= postingsById.size()
+							|| offset + SegmentFileLogger.RECORD_HEADER_LENGTH + length > segmentLength) {
+						return false;
+					}
+					add(postingsById.get(userId), offset, length, epochSeconds);
+					validLength += 25;
+				} else {
+					return false;
+				}
+			}
+		} catch (EOFException e) {
+			// torn entry at the end of the sidecar, drop it below
+		}
+
+		try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+			if (channel.size() > validLength) {
+				channel.truncate(validLength);
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Indexes records from indexedLength to the end of the segment file,
+	 * truncating the file at the first damaged or partial record.
+	 */
+	private void indexTail(long segmentLength) throws IOException {
+		try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			long position = indexedLength;
+			channel.position(position);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+
+			byte[] payload = new byte[256];
+			while (position < segmentLength) {
+				try {
+					int length = in.readInt();
+					int checksum = in.readInt();
+					long epochSeconds = in.readLong();
+					if (length < 0 || position + SegmentFileLogger.RECORD_HEADER_LENGTH + length > segmentLength) {
+						break;
+					}
+					if (payload.length < length) {
+						payload = new byte[length];
+					}
+					in.readFully(payload, 0, length);
+					if (SegmentFileLogger.checksum(payload, length) != checksum) {
+						break;
+					}
+
+					String username = SegmentFileLogger.decodePayload(payload, length).getUsername();
+					appended(position, length, username, epochSeconds);
+					position += SegmentFileLogger.RECORD_HEADER_LENGTH + length;
+				} catch (EOFException e) {
+					break;
+				}
+			}
+
+			if (position < segmentLength) {
+				channel.truncate(position);
+			}
+		}
+	}
+
+	/*
+	 * Reads the records at the given offsets.
+	 */
+	private ObservableList<LogModel> readRecords(long[] offsets, int start, int end) {
+		ObservableList<LogModel> logLines = FXCollections.observableArrayList();
+		if (start >= end) {
+			return logLines;
+		}
+
+		try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(SegmentFileLogger.RECORD_HEADER_LENGTH);
+			byte[] payload = new byte[256];
+
+			for (int i = start; i < end; i++) {
+				header.clear();
+				readFully(channel, header, offsets[i]);
+				header.flip();
+				int length = header.getInt();
+
+				if (payload.length < length) {
+					payload = new byte[length];
+				}
+				ByteBuffer payloadBuffer = ByteBuffer.wrap(payload, 0, length);
+				readFully(channel, payloadBuffer, offsets[i] + SegmentFileLogger.RECORD_HEADER_LENGTH);
+				logLines.add(SegmentFileLogger.decodePayload(payload, length));
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return logLines;
+	}
+
+	private void clear() {
+		postingsByUser.clear();
+		postingsById.clear();
+		buckets.clear();
+		indexedLength = SegmentFileLogger.FILE_HEADER_LENGTH;
+		lastSeconds = Long.MIN_VALUE;
+	}
+
+	private static ByteBuffer fileHeader() {
+		ByteBuffer header = ByteBuffer.allocate(8);
+		header.putInt(FILE_MAGIC);
+		header.putShort(FILE_VERSION);
+		header.putShort((short) 0);
+		header.flip();
+		return header;
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position + buffer.position());
+			if (read < 0) {
+				throw new EOFException();
+			}
+		}
+	}
+
+	/*
+	 * Returns the number of bytes writeUTF uses for the string, excluding the
+	 * two byte length prefix.
+	 */
+	private static int utfLength(String value) {
+		int length = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c >= 0x0001 && c <= 0x007F) {
+				length += 1;
+			} else if (c > 0x07FF) {
+				length += 3;
+			} else {
+				length += 2;
+			}
+		}
+		return length;
+	}
+
+	private static long bucketOf(long epochSeconds) {
+		return Math.floorDiv(epochSeconds, BUCKET_SECONDS) * BUCKET_SECONDS;
+	}
+
+	/*
+	 * Returns the first index in the sorted array whose value is not less than
+	 * the key.
+	 */
+	private static int lowerBound(long[] values, int size, long key) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (values[middle] < key) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,498 @@
+package gc01.cw.robf.utility;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.OrderRecord;
+
+/**
+ * Archive of closed orders kept on disk, outside the statically accessible
+ * order list. Closed orders are moved into the archive at startup so that
+ * only open orders and orders closed since startup are held in memory.
+ * Archived orders are read on demand, newest first, as OrderModel objects
+ * which are not added to the order list.
+ * <p>
+ * The archive is a directory of partitions, one OrderSnapshot file per month
+ * in which orders were closed, each sorted by order ID. A manifest file lists every partition with its order
+ * count, revenue and range of order IDs, so that opening the archive reads no
+ * partitions and only the partitions holding changed orders are rewritten.
+ * Partitions are read into memory the first time orders are read from them.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class OrderArchive {
+
+	private static final String MANIFEST_FILE = "manifest.txt";
+	private static final String PARTITION_PREFIX = "orders-";
+	private static final String PARTITION_SUFFIX = ".snapshot";
+	// partition of orders without a readable date, sorted before all others
+	private static final String UNDATED = "0000-00";
+
+	private String directoryPath;
+	private boolean opened;
+	// partitions by name, which sorts oldest first
+	private TreeMap<String, Partition> partitions = new TreeMap<>();
+
+	/**
+	 * Constructor for OrderArchive objects. Does not read the archive.
+	 *
+	 * @param directoryPath
+	 *            Path of the archive directory
+	 */
+	public OrderArchive(String directoryPath) {
+		this.directoryPath = directoryPath;
+	}
+
+	/**
+	 * Reads the manifest and makes sure that new orders are not given the ID
+	 * of an archived order. A missing directory gives an empty archive.
+	 * Partitions missing from the manifest or changed since it was written,
+	 * e.g. after a crash between saving a partition and the manifest, are read
+	 * to bring the manifest up to date. If the archive can not be read it
+	 * stays closed: it appears empty and refuses changes, so that no partition
+	 * is overwritten.
+	 */
+	public void open() {
+		opened = false;
+		partitions.clear();
+
+		File directory = new File(directoryPath);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			System.err.println("Could not create order archive directory: " + directoryPath);
+			return;
+		}
+
+		readManifest();
+		boolean changed = false;
+
+		// drop partitions which no longer exist
+		Iterator<Partition> iterator = partitions.values().iterator();
+		while (iterator.hasNext()) {
+			if (!partitionFile(iterator.next().name).exists()) {
+				iterator.remove();
+				changed = true;
+			}
+		}
+
+		File[] files = directory.listFiles();
+		if (files == null) {
+			System.err.println("Could not read order archive directory: " + directoryPath);
+			partitions.clear();
+			return;
+		}
+		for (File file : files) {
+			String name = file.getName();
+			if (!name.startsWith(PARTITION_PREFIX) || !name.endsWith(PARTITION_SUFFIX)) {
+				continue;
+			}
+			name = name.substring(PARTITION_PREFIX.length(), name.length() - PARTITION_SUFFIX.length());
+
+			Partition partition = partitions.get(name);
+			if (partition == null || partition.fileLength != file.length()) {
+				partition = new Partition(name);
+				try {
+					List<OrderRecord> records = new ArrayList<>();
+					OrderSnapshot snapshot = readPartition(partition);
+					for (int i = 0; i < snapshot.size(); i++) {
+						records.add(snapshot.getRecord(i));
+					}
+					partition.summarise(records, file.length());
+				} catch (IOException e) {
+					e.printStackTrace();
+					partitions.clear();
+					return;
+				}
+				partitions.put(name, partition);
+				changed = true;
+			}
+		}
+
+		if (changed && !writeManifest()) {
+			partitions.clear();
+			return;
+		}
+
+		long lastOrderId = 0;
+		for (Partition partition : partitions.values()) {
+			lastOrderId = Math.max(lastOrderId, partition.lastOrderId);
+		}
+		if (lastOrderId > 0) {
+			OrderModel.reserveOrderIds(lastOrderId);
+		}
+		opened = true;
+	}
+
+	/**
+	 * @return int number of archived orders.
+	 */
+	public int size() {
+		int size = 0;
+		for (Partition partition : partitions.values()) {
+			size += partition.orderCount;
+		}
+		return size;
+	}
+
+	/**
+	 * @return double total cost of all archived orders.
+	 */
+	public double getRevenue() {
+		long revenuePence = 0;
+		for (Partition partition : partitions.values()) {
+			revenuePence += partition.revenuePence;
+		}
+		return revenuePence / 100.0;
+	}
+
+	/**
+	 * Adds orders to the partitions of the months in which they were closed.
+	 * Orders whose ID is already archived are skipped, so adding the same
+	 * orders again after a failure is harmless.
+	 *
+	 * @param orderRecords
+	 *            List of OrderRecord copies of closed orders
+	 * @return boolean true if the archive was saved
+	 */
+	public boolean add(List<OrderRecord> orderRecords) {
+		if (!opened) {
+			return false;
+		}
+
+		Map<String, List<OrderRecord>> recordsByPartition = new TreeMap<>();
+		for (OrderRecord record : orderRecords) {
+			recordsByPartition.computeIfAbsent(partitionOf(record), name -> new ArrayList<>()).add(record);
+		}
+
+		boolean saved = true;
+		for (Map.Entry<String, List<OrderRecord>> entry : recordsByPartition.entrySet()) {
+			Partition partition = partitions.get(entry.getKey());
+			List<OrderRecord> archivedRecords = new ArrayList<>();
+			OrderSnapshot snapshot = null;
+
+			if (partition == null) {
+				partition = new Partition(entry.getKey());
+			} else {
+				try {
+					snapshot = readPartition(partition);
+				} catch (IOException e) {
+					e.printStackTrace();
+					saved = false;
+					continue;
+				}
+				for (int i = 0; i < snapshot.size(); i++) {
+					archivedRecords.add(snapshot.getRecord(i));
+				}
+			}
+
+			int archivedCount = archivedRecords.size();
+			for (OrderRecord record : entry.getValue()) {
+				if (snapshot == null || indexOf(snapshot, record.getOrderId()) < 0) {
+					archivedRecords.add(record);
+				}
+			}
+			if (archivedRecords.size() > archivedCount) {
+				saved &= savePartition(partition, archivedRecords);
+			}
+		}
+
+		return writeManifest() && saved;
+	}
+
+	/**
+	 * Removes orders from the archive, e.g. when they are deleted or opened
+	 * again. Only partitions whose range of order IDs includes one of the
+	 * orders are read.
+	 *
+	 * @param orderIds
+	 *            Set of Long IDs of the orders to remove
+	 * @return boolean true if the archive was saved
+	 */
+	public boolean remove(Set<Long> orderIds) {
+		if (!opened) {
+			return false;
+		}
+
+		boolean saved = true;
+		for (Partition partition : new ArrayList<>(partitions.values())) {
+			boolean inRange = false;
+			for (long orderId : orderIds) {
+				if (orderId >= partition.firstOrderId && orderId <= partition.lastOrderId) {
+					inRange = true;
+					break;
+				}
+			}
+			if (!inRange) {
+				continue;
+			}
+
+			OrderSnapshot snapshot;
+			try {
+				snapshot = readPartition(partition);
+			} catch (IOException e) {
+				e.printStackTrace();
+				saved = false;
+				continue;
+			}
+
+			List<OrderRecord> archivedRecords = new ArrayList<>(snapshot.size());
+			for (int i = 0; i < snapshot.size(); i++) {
+				if (!orderIds.contains(snapshot.getOrderId(i))) {
+					archivedRecords.add(snapshot.getRecord(i));
+				}
+			}
+			if (archivedRecords.size() < snapshot.size()) {
+				saved &= savePartition(partition, archivedRecords);
+			}
+		}
+
+		return writeManifest() && saved;
+	}
+
+	/**
+	 * Reads archived orders, newest partition first and newest order first
+	 * within each partition, as OrderModel objects which are not added to the
+	 * order list. Partitions are only read until enough orders are found.
+	 *
+	 * @param filter
+	 *            Predicate which archived OrderRecord copies must match
+	 * @param excludedOrderIds
+	 *            Set of Long IDs of orders to skip, such as those already read
+	 * @param limit
+	 *            int maximum number of orders to read
+	 * @return List of matching OrderModel objects
+	 */
+	public List<OrderModel> load(Predicate<OrderRecord> filter, Set<Long> excludedOrderIds, int limit) {
+		List<OrderModel> orders = new ArrayList<>();
+
+		for (Partition partition : partitions.descendingMap().values()) {
+			if (orders.size() >= limit) {
+				break;
+			}
+
+			OrderSnapshot snapshot;
+			try {
+				snapshot = readPartition(partition);
+			} catch (IOException e) {
+				e.printStackTrace();
+				continue;
+			}
+
+			for (int i = snapshot.size() - 1; i >= 0 && orders.size() < limit; i--) {
+				if (excludedOrderIds.contains(snapshot.getOrderId(i))) {
+					continue;
+				}
+
+				OrderRecord record = snapshot.getRecord(i);
+				if (filter.test(record)) {
+					orders.add(new OrderModel(record));
+				}
+			}
+		}
+		return orders;
+	}
+
+	/*
+	 * Binary search of the order IDs in a partition.
+	 */
+	private static int indexOf(OrderSnapshot snapshot, long orderId) {
+		int low = 0;
+		int high = snapshot.size() - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long middleId = snapshot.getOrderId(middle);
+			if (middleId < orderId) {
+				low = middle + 1;
+			} else if (middleId > orderId) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Names the partition of an order from the month it was closed, or opened
+	 * if it has no closing date.
+	 */
+	private static String partitionOf(OrderRecord record) {
+		long dateTime = record.getClosedMillis() != OrderModel.NO_DATE ? record.getClosedMillis()
+				: record.getOpenedMillis();
+		if (dateTime == OrderModel.NO_DATE) {
+			return UNDATED;
+		}
+		// epoch milliseconds of date-times are read as UTC
+		return YearMonth.from(Instant.ofEpochMilli(dateTime).atOffset(ZoneOffset.UTC)).toString();
+	}
+
+	private File partitionFile(String name) {
+		return new File(directoryPath, PARTITION_PREFIX + name + PARTITION_SUFFIX);
+	}
+
+	private OrderSnapshot readPartition(Partition partition) throws IOException {
+		if (partition.snapshot == null) {
+			partition.snapshot = OrderSnapshot.read(partitionFile(partition.name).getPath());
+		}
+		return partition.snapshot;
+	}
+
+	/*
+	 * Rewrites one partition, deleting it if it no longer holds any orders.
+	 * The manifest must be written afterwards.
+	 */
+	private boolean savePartition(Partition partition, List<OrderRecord> archivedRecords) {
+		File file = partitionFile(partition.name);
+
+		if (archivedRecords.isEmpty()) {
+			partition.snapshot = null;
+			partitions.remove(partition.name);
+			return !file.exists() || file.delete();
+		}
+
+		archivedRecords.sort(Comparator.comparingLong(record -> record.getOrderId()));
+
+		if (!OrderSnapshot.saveOrderRecords(file.getPath(), archivedRecords)) {
+			return false;
+		}
+
+		partition.snapshot = null;
+		partition.summarise(archivedRecords, file.length());
+		partitions.put(partition.name, partition);
+		return true;
+	}
+
+	/*
+	 * Reads the manifest into the partition map. Lines which can not be read
+	 * are skipped, so their partitions are read again by open.
+	 */
+	private void readManifest() {
+		File manifestFile = new File(directoryPath, MANIFEST_FILE);
+		if (!manifestFile.exists()) {
+			return;
+		}
+
+		try (BufferedReader in = new BufferedReader(
+				new InputStreamReader(new FileInputStream(manifestFile), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				String[] fields = line.split("\t");
+				if (fields.length != 6) {
+					continue;
+				}
+				try {
+					Partition partition = new Partition(fields[0]);
+					partition.orderCount = Integer.parseInt(fields[1]);
+					partition.revenuePence = Long.parseLong(fields[2]);
+					partition.firstOrderId = Long.parseLong(fields[3]);
+					partition.lastOrderId = Long.parseLong(fields[4]);
+					partition.fileLength = Long.parseLong(fields[5]);
+					partitions.put(partition.name, partition);
+				} catch (NumberFormatException e) {
+					// read from the partition instead
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			partitions.clear();
+		}
+	}
+
+	/*
+	 * Writes the manifest to a temporary file, forces it to disk and
+	 * atomically renames it over the old manifest.
+	 */
+	private boolean writeManifest() {
+		String manifestPath = new File(directoryPath, MANIFEST_FILE).getPath();
+
+		Path tempPath = null;
+		try {
+			tempPath = StaxXmlHandler.createTempFile(manifestPath);
+
+			try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				Writer out = new BufferedWriter(
+						new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+
+				out.write("# partition\torders\trevenuePence\tfirstOrderId\tlastOrderId\tfileLength\n");
+				for (Partition partition : partitions.values()) {
+					out.write(partition.name + "\t" + partition.orderCount + "\t" + partition.revenuePence + "\t"
+							+ partition.firstOrderId + "\t" + partition.lastOrderId + "\t" + partition.fileLength
+							+ "\n");
+				}
+
+				out.flush();
+				channel.force(true);
+			}
+
+			StaxXmlHandler.replace(tempPath, manifestPath);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			StaxXmlHandler.deleteTempFile(tempPath);
+		}
+
+		return false;
+	}
+
+	/*
+	 * Manifest entry of one partition, with its snapshot once read.
+	 */
+	private static class Partition {
+
+		private String name;
+		private int orderCount;
+		private long revenuePence;
+		private long firstOrderId;
+		private long lastOrderId;
+		private long fileLength;
+		private OrderSnapshot snapshot;
+
+		private Partition(String name) {
+			this.name = name;
+		}
+
+		/*
+		 * Sets the manifest entry from the orders of the partition, sorted by
+		 * order ID.
+		 */
+		private void summarise(List<OrderRecord> records, long fileLength) {
+			orderCount = records.size();
+			revenuePence = 0;
+			for (OrderRecord record : records) {
+				revenuePence += record.getTotalPence();
+			}
+			firstOrderId = records.isEmpty() ? 0 : records.get(0).getOrderId();
+			lastOrderId = records.isEmpty() ? 0 : records.get(records.size() - 1).getOrderId();
+			this.fileLength = fileLength;
+		}
+	}
+}
@@ -0,0 +1,1052 @@
+package gc01.cw.robf.utility;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.model.OrderLineModel;
+import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.OrderRecord;
+import javafx.application.Platform;
+
+/**
+ * Utility class providing a write-ahead journal for OrderModel items. Instead
+ * of rewriting the whole orders file on every change, each change (opening an
+ * order, a status change, new items, new comments or a deletion) is appended
+ * to the journal file as one small record and forced to disk, so the cost of
+ * saving a change does not depend on the number of orders. With group commit
+ * started, changes made within a few milliseconds of each other share one
+ * force to disk.
+ * <p>
+ * Orders are kept in an OrderSnapshot file. On startup the open orders in the
+ * snapshot are loaded and the journal replayed on top of them. Closed orders
+ * are left in the snapshot in memory and only materialised if a record changes
+ * them; they are copied into each new snapshot until they are archived. A
+ * background compactor periodically folds the journal into a new snapshot: the
+ * current orders are copied on the JavaFX application thread while the journal
+ * is moved aside, the copy is written as the new snapshot and the old journal
+ * is then deleted. Compaction waits while a view changes orders which may yet
+ * be cancelled. Every record holds the new value of the fields it changes, so
+ * replaying a record which is already part of the snapshot has no effect.
+ * <p>
+ * A journal file starts with an 8 byte file header (magic number and format
+ * version) followed by records of payload length, CRC32 of the payload and
+ * the payload itself. A partially written record at the end of the file fails
+ * its length or checksum test and is discarded when the journal is opened.
+ * A journal whose header is damaged, or which can not be read, is never
+ * truncated: it is moved aside with a ".corrupt" suffix for recovery and a
+ * new journal is started.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class OrderJournal {
+
+	/**
+	 * Magic number at the start of every journal file ("OGJN").
+	 */
+	public static final int FILE_MAGIC = 0x4F474A4E;
+
+	/**
+	 * Current version of the journal file format.
+	 */
+	public static final short FILE_VERSION = 1;
+
+	/**
+	 * Length in bytes of the journal file header.
+	 */
+	public static final int FILE_HEADER_LENGTH = 8;
+
+	/**
+	 * Length in bytes of the fixed header preceding every record payload.
+	 */
+	public static final int RECORD_HEADER_LENGTH = 8;
+
+	// record types
+	private static final byte OPEN = 1;
+	private static final byte STATUS = 2;
+	private static final byte ITEMS = 3;
+	private static final byte COMMENTS = 4;
+	private static final byte DELETE = 5;
+	// open and items records holding quantity-based order lines; OPEN and
+	// ITEMS records of older journals are still replayed
+	private static final byte OPEN_LINES = 6;
+	private static final byte LINES = 7;
+
+	// guards against reading garbage lengths from a damaged file
+	private static final int MAX_PAYLOAD_LENGTH = 16 * 1024 * 1024;
+
+	// suffix of a journal moved aside for compaction
+	private static final String OLD_SUFFIX = ".old";
+
+	// suffix of a journal moved aside as it could not be read
+	private static final String CORRUPT_SUFFIX = ".corrupt";
+
+	private static String snapshotPath;
+	private static String journalPath;
+	// closed orders left in the snapshot, by order ID. Guarded by
+	// journalLock, as they are archived on a startup loader thread
+	private static OrderSnapshot snapshot;
+	private static Map<Long, Integer> unloadedOrders = new LinkedHashMap<>();
+	private static FileChannel channel;
+	private static final Object journalLock = new Object();
+
+	// group commit queue
+	private static final Object queueLock = new Object();
+	private static ArrayList<PendingRecord> pending = new ArrayList<>();
+	private static CompletableFuture<Void> lastCommit = CompletableFuture.completedFuture(null);
+	private static long groupCommitWindowNanos;
+	private static boolean committing;
+	private static Thread committerThread;
+
+	private static ScheduledExecutorService compactor;
+	private static long compactThresholdBytes;
+	private static volatile boolean compacting;
+	// views changing orders in memory which may yet be cancelled. Only used
+	// on the JavaFX application thread
+	private static int compactionSuspensions;
+
+	/**
+	 * Static method to load open orders from the snapshot file, replay the
+	 * journal on top of them and open the journal for writing. Replaces any orders
+	 * currently in memory. Requires menu items to have been loaded.
+	 *
+	 * @param snapshotFilePath
+	 *            Path of the order snapshot file
+	 * @param journalFilePath
+	 *            Path of the journal file
+	 */
+	public static void open(String snapshotFilePath, String journalFilePath) {
+		synchronized (journalLock) {
+			snapshotPath = snapshotFilePath;
+			journalPath = journalFilePath;
+
+			long validLength = replay(true);
+			if (validLength < 0) {
+				// leave the journal for recovery; changes are saved to the
+				// snapshot while the journal is closed
+				System.err.println("Order journal " + journalPath + " could not be read, not opened");
+				return;
+			}
+
+			try {
+				// drop a torn record left at the end by a crash. Only reached
+				// once the header has been read, as unreadable journals have
+				// been moved aside
+				Path path = Paths.get(journalPath);
+				if (Files.exists(path) && Files.size(path) > validLength) {
+					try (FileChannel truncator = FileChannel.open(path, StandardOpenOption.WRITE)) {
+						truncator.truncate(validLength);
+					}
+				}
+
+				channel = openForAppend(journalPath);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Static method to open the journal for writing without loading orders,
+	 * for an order list already restored from a BootImage written after the
+	 * journal was last closed. The image holds every change in the snapshot
+	 * and journal, so neither is read; only the closed orders left in the
+	 * snapshot are indexed, as on open.
+	 *
+	 * @param snapshotFilePath
+	 *            Path of the order snapshot file
+	 * @param journalFilePath
+	 *            Path of the journal file
+	 */
+	public static void attach(String snapshotFilePath, String journalFilePath) {
+		synchronized (journalLock) {
+			snapshotPath = snapshotFilePath;
+			journalPath = journalFilePath;
+
+			try {
+				snapshot = OrderSnapshot.read(snapshotPath);
+				indexUnloadedOrders();
+				channel = openForAppend(journalPath);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Static method to discard unsaved changes to orders in memory by loading
+	 * the snapshot and replaying the journal again.
+	 */
+	public static void reload() {
+		awaitCommitted();
+		synchronized (journalLock) {
+			replay(false);
+		}
+	}
+
+	/**
+	 * Static method returning the closed orders which were left in the
+	 * snapshot when it was loaded and have not been changed since, e.g. to
+	 * move them to the order archive.
+	 *
+	 * @return List of OrderRecord copies of the unloaded closed orders
+	 */
+	public static List<OrderRecord> getUnloadedOrders() {
+		synchronized (journalLock) {
+			List<OrderRecord> orderRecords = new ArrayList<>(unloadedOrders.size());
+			for (int index : unloadedOrders.values()) {
+				orderRecords.add(snapshot.getRecord(index));
+			}
+			return orderRecords;
+		}
+	}
+
+	/**
+	 * Static method to record the removal of the unloaded closed orders once
+	 * they have been archived, so that they are left out of later snapshots.
+	 *
+	 * @return CompletableFuture which completes once the records are on disk
+	 */
+	public static CompletableFuture<Void> recordUnloadedArchived() {
+		List<CompletableFuture<Void>> removals;
+		synchronized (journalLock) {
+			removals = new ArrayList<>(unloadedOrders.size());
+			for (long orderId : unloadedOrders.keySet()) {
+				try {
+					removals.add(append(startRecord(DELETE, orderId)));
+				} catch (IOException e) {
+					e.printStackTrace();
+					removals.add(failed(e));
+				}
+			}
+			unloadedOrders.clear();
+		}
+		return CompletableFuture.allOf(removals.toArray(new CompletableFuture<?>[removals.size()]));
+	}
+
+	/**
+	 * Static method to start the background compactor. Every interval the
+	 * compactor checks the size of the journal and folds it into the
+	 * snapshot once it reaches the threshold.
+	 *
+	 * @param intervalSeconds
+	 *            long seconds between journal size checks
+	 * @param thresholdBytes
+	 *            long journal size in bytes at which it is compacted
+	 */
+	public static synchronized void startCompactor(long intervalSeconds, long thresholdBytes) {
+		if (compactor != null) {
+			return;
+		}
+
+		compactThresholdBytes = thresholdBytes;
+		compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "order-compactor");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		compactor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				if (!compacting && journalLength() >= compactThresholdBytes) {
+					compacting = true;
+					// orders are only modified on the application thread
+					Platform.runLater(new Runnable() {
+						@Override
+						public void run() {
+							beginCompaction();
+						}
+					});
+				}
+			}
+		}, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Static method to hold back compaction, and folding the journal into the
+	 * snapshot on close, while a view changes orders in memory which may yet
+	 * be cancelled, as both copy the orders in memory rather than the
+	 * journal. Called on the JavaFX application thread, once for each later
+	 * call to resumeCompaction.
+	 */
+	public static void suspendCompaction() {
+		compactionSuspensions++;
+	}
+
+	/**
+	 * Static method to allow compaction again once the view which suspended
+	 * it is closed. The journal is compacted on the next check of the
+	 * compactor if it has reached the threshold meanwhile.
+	 */
+	public static void resumeCompaction() {
+		if (compactionSuspensions > 0) {
+			compactionSuspensions--;
+		}
+	}
+
+	/**
+	 * Static method to start group commit. Records are then queued and
+	 * written by a committer thread which waits the group commit window after
+	 * the first queued record, so that changes made at nearly the same time
+	 * share one write and one force to disk. The futures returned by the
+	 * record methods complete once their record is on disk.
+	 *
+	 * @param windowMillis
+	 *            long time in milliseconds a record may wait for others to
+	 *            join its group
+	 */
+	public static synchronized void startGroupCommit(long windowMillis) {
+		synchronized (queueLock) {
+			if (committing) {
+				return;
+			}
+			committing = true;
+		}
+
+		groupCommitWindowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+		committerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				commitLoop();
+			}
+		}, "order-journal-committer");
+		committerThread.setDaemon(true);
+		committerThread.start();
+	}
+
+	/**
+	 * Static method to stop the compactor and the committer, fold the whole
+	 * journal into the snapshot and close the journal. Called on application
+	 * shutdown from the JavaFX application thread. While compaction is
+	 * suspended the journal is not folded in, but left to be replayed on the
+	 * next start. Later changes are saved by rewriting the snapshot.
+	 */
+	public static void close() {
+		synchronized (OrderJournal.class) {
+			if (compactor != null) {
+				compactor.shutdown();
+				try {
+					compactor.awaitTermination(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				compactor = null;
+			}
+
+			// the committer writes anything still queued before stopping
+			synchronized (queueLock) {
+				committing = false;
+				queueLock.notifyAll();
+			}
+			if (committerThread != null) {
+				try {
+					committerThread.join(TimeUnit.SECONDS.toMillis(5));
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				committerThread = null;
+			}
+		}
+
+		synchronized (journalLock) {
+			if (channel == null) {
+				return;
+			}
+
+			if (compactionSuspensions > 0) {
+				// orders in memory hold changes which were never confirmed,
+				// leave the journal to be replayed on the next start
+				try {
+					channel.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				channel = null;
+				return;
+			}
+
+			List<OrderRecord> orderRecords = copyOrders();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			channel = null;
+
+			if (OrderSnapshot.saveOrderRecords(snapshotPath, orderRecords)) {
+				deleteFile(journalPath + OLD_SUFFIX);
+				deleteFile(journalPath);
+			}
+		}
+	}
+
+	/**
+	 * Static method to record a newly opened order, or every saved field of an
+	 * existing order (e.g. one imported from file).
+	 *
+	 * @param order
+	 *            OrderModel object to record
+	 * @return CompletableFuture which completes once the record is on disk
+	 */
+	public static CompletableFuture<Void> recordOpen(OrderModel order) {
+		try {
+			RecordOutput out = startRecord(OPEN_LINES, order);
+			out.writeInt(order.getTableNumber());
+			out.writeUTF(order.getCreatingUser());
+			out.writeUTF(order.getDateOpened());
+			writeStatus(out, order);
+			out.writeUTF(order.getComments());
+			writeLines(out, order);
+			return append(out);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return failed(e);
+		}
+	}
+
+	/**
+	 * Static method to record a change of order status, including closing an
+	 * order. The closed date-time is recorded with the status.
+	 *
+	 * @param order
+	 *            OrderModel object to record
+	 * @return CompletableFuture which completes once the record is on disk
+	 */
+	public static CompletableFuture<Void> recordStatus(OrderModel order) {
+		try {
+			RecordOutput out = startRecord(STATUS, order);
+			writeStatus(out, order);
+			return append(out);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return failed(e);
+		}
+	}
+
+	/**
+	 * Static method to record the order lines and total cost of an order after
+	 * items have been added or removed.
+	 *
+	 * @param order
+	 *            OrderModel object to record
+	 * @return CompletableFuture which completes once the record is on disk
+	 */
+	public static CompletableFuture<Void> recordItems(OrderModel order) {
+		try {
+			RecordOutput out = startRecord(LINES, order);
+			writeLines(out, order);
+			return append(out);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return failed(e);
+		}
+	}
+
+	/**
+	 * Static method to record a change to order comments.
+	 *
+	 * @param order
+	 *            OrderModel object to record
+	 * @return CompletableFuture which completes once the record is on disk
+	 */
+	public static CompletableFuture<Void> recordComments(OrderModel order) {
+		try {
+			RecordOutput out = startRecord(COMMENTS, order);
+			out.writeUTF(order.getComments());
+			return append(out);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return failed(e);
+		}
+	}
+
+	/**
+	 * Static method to record the deletion of an order.
+	 *
+	 * @param order
+	 *            OrderModel object which has been deleted
+	 * @return CompletableFuture which completes once the record is on disk
+	 */
+	public static CompletableFuture<Void> recordDelete(OrderModel order) {
+		try {
+			return append(startRecord(DELETE, order));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return failed(e);
+		}
+	}
+
+	/*
+	 * Loads the snapshot and replays any journal moved aside for compaction
+	 * followed by the live journal. Returns the length of the valid part of
+	 * the live journal, or -1 if it could not be read and is still in place.
+	 * On opening, while the journal is not being written, journals which could
+	 * not be read are moved aside.
+	 */
+	private static long replay(boolean opening) {
+		snapshot = OrderSnapshot.loadOpenOrders(snapshotPath);
+		indexUnloadedOrders();
+
+		Map<Long, OrderModel> orders = new HashMap<>();
+		for (OrderModel order : OrderModel.getOrderList()) {
+			orders.put(order.getOrderId(), order);
+		}
+
+		// compaction deletes the old journal once the snapshot is saved, so
+		// an unreadable one must be moved aside too
+		if (replayJournal(journalPath + OLD_SUFFIX, orders) < 0 && opening) {
+			moveAside(journalPath + OLD_SUFFIX);
+		}
+
+		long validLength = replayJournal(journalPath, orders);
+		if (validLength < 0 && opening && moveAside(journalPath)) {
+			return 0;
+		}
+		return validLength;
+	}
+
+	/*
+	 * Indexes the closed orders of the snapshot, which are not loaded, and
+	 * keeps their IDs from new orders.
+	 */
+	private static void indexUnloadedOrders() {
+		unloadedOrders.clear();
+		for (int i = 0; snapshot != null && i < snapshot.size(); i++) {
+			if (snapshot.getStatus(i) == OrderModel.OrderStatus.CLOSED) {
+				unloadedOrders.put(snapshot.getOrderId(i), i);
+				OrderModel.reserveOrderIds(snapshot.getOrderId(i));
+			}
+		}
+	}
+
+	/*
+	 * Applies every valid record in a journal file to the orders in memory.
+	 * Returns the length of the valid part of the file, 0 if there is no
+	 * file, or -1 if its header is damaged or it could not be read.
+	 */
+	private static long replayJournal(String filePath, Map<Long, OrderModel> orders) {
+		File journalFile = new File(filePath);
+		if (!journalFile.exists()) {
+			return 0;
+		}
+
+		long validLength = 0;
+		try (FileChannel readChannel = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ);
+				DataInputStream in = new DataInputStream(
+						new BufferedInputStream(Channels.newInputStream(readChannel)))) {
+
+			if (readChannel.size() == 0) {
+				return 0;
+			}
+			try {
+				if (in.readInt() != FILE_MAGIC || in.readShort() != FILE_VERSION) {
+					return -1;
+				}
+				in.readShort();
+			} catch (EOFException e) {
+				return -1;
+			}
+			validLength = FILE_HEADER_LENGTH;
+
+			byte[] payload = new byte[256];
+			while (true) {
+				int length;
+				int checksum;
+				try {
+					length = in.readInt();
+					checksum = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+
+				if (length < 0 || length > MAX_PAYLOAD_LENGTH) {
+					break;
+				}
+				if (payload.length < length) {
+					payload = new byte[length];
+				}
+				try {
+					in.readFully(payload, 0, length);
+				} catch (EOFException e) {
+					break;
+				}
+				if (SegmentFileLogger.checksum(payload, length) != checksum) {
+					break;
+				}
+
+				apply(new DataInputStream(new ByteArrayInputStream(payload, 0, length)), orders);
+				validLength += RECORD_HEADER_LENGTH + length;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return -1;
+		}
+
+		return validLength;
+	}
+
+	/*
+	 * Moves a journal which could not be read aside, keeping any journal
+	 * moved aside before. Returns true if the journal was moved.
+	 */
+	private static boolean moveAside(String filePath) {
+		Path corrupt = Paths.get(filePath + CORRUPT_SUFFIX);
+		if (Files.exists(corrupt)) {
+			corrupt = Paths.get(filePath + CORRUPT_SUFFIX + "." + System.currentTimeMillis());
+		}
+
+		try {
+			Files.move(Paths.get(filePath), corrupt);
+			System.err.println("Order journal " + filePath + " could not be read and was moved to " + corrupt);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return false;
+	}
+
+	/*
+	 * Applies one record payload to the orders in memory, materialising an
+	 * unloaded closed order first. Records for orders which no longer exist
+	 * are ignored.
+	 */
+	private static void apply(DataInputStream in, Map<Long, OrderModel> orders) throws IOException {
+		byte type = in.readByte();
+		long orderId = in.readLong();
+		OrderModel order = orders.get(orderId);
+
+		Integer unloadedIndex = unloadedOrders.remove(orderId);
+		if (unloadedIndex != null) {
+			if (type == DELETE) {
+				return;
+			}
+			order = snapshot.materialise(unloadedIndex);
+			orders.put(orderId, order);
+		}
+
+		if (type == OPEN || type == OPEN_LINES) {
+			int tableNumber = in.readInt();
+			String creatingUser = in.readUTF();
+			if (order == null) {
+				order = new OrderModel(tableNumber, creatingUser);
+				order.setOrderId(orderId);
+				orders.put(orderId, order);
+			} else {
+				order.setTableNumber(tableNumber);
+				order.setCreatingUser(creatingUser);
+			}
+			order.setDateOpened(in.readUTF());
+			readStatus(in, order);
+			order.setComments(in.readUTF());
+			if (type == OPEN) {
+				readItems(in, order);
+			} else {
+				readLines(in, order);
+			}
+			return;
+		}
+
+		if (order == null) {
+			return;
+		}
+
+		switch (type) {
+		case STATUS:
+			readStatus(in, order);
+			break;
+		case ITEMS:
+			readItems(in, order);
+			break;
+		case LINES:
+			readLines(in, order);
+			break;
+		case COMMENTS:
+			order.setComments(in.readUTF());
+			break;
+		case DELETE:
+			OrderModel.getOrderList().remove(order);
+			orders.remove(orderId);
+			break;
+		default:
+			break;
+		}
+	}
+
+	private static void writeStatus(DataOutputStream out, OrderModel order) throws IOException {
+		out.writeUTF(order.getStatus().toString());
+		out.writeUTF(order.getDateClosed());
+	}
+
+	private static void readStatus(DataInputStream in, OrderModel order) throws IOException {
+		String status = in.readUTF();
+		String dateClosed = in.readUTF();
+
+		// setting status to closed also sets the closed date-time to now
+		order.setStatus(OrderModel.OrderStatus.valueOf(status));
+		order.setDateClosed(dateClosed);
+	}
+
+	private static void writeLines(DataOutputStream out, OrderModel order) throws IOException {
+		out.writeLong(order.getTotalPence());
+		out.writeInt(order.getLines().size());
+		for (OrderLineModel line : order.getLines()) {
+			out.writeUTF(line.getName());
+			out.writeLong(line.getMenuItem().getItemId());
+			out.writeInt(line.getQuantity());
+			out.writeLong(line.getUnitPricePence());
+		}
+	}
+
+	private static void readLines(DataInputStream in, OrderModel order) throws IOException {
+		long totalPence = in.readLong();
+		int count = in.readInt();
+
+		// look up menu item objects from saved name and item ID
+		List<OrderLineModel> lines = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String name = in.readUTF();
+			long itemId = in.readLong();
+			int quantity = in.readInt();
+			long unitPricePence = in.readLong();
+
+			MenuItemModel menuItem = MenuItemModel.getMenuItem(name, itemId);
+			if (menuItem != null) {
+				lines.add(new OrderLineModel(menuItem, quantity, unitPricePence));
+			}
+		}
+		order.setLines(lines);
+		order.setTotalCost(totalPence / 100.0);
+	}
+
+	/*
+	 * Reads the item names of an OPEN or ITEMS record written before order
+	 * lines, counting repeated items into lines at the current menu price.
+	 */
+	private static void readItems(DataInputStream in, OrderModel order) throws IOException {
+		double totalCost = in.readDouble();
+		int count = in.readInt();
+
+		// look up menu item objects from saved name
+		order.setLines(Collections.<OrderLineModel> emptyList());
+		for (int i = 0; i < count; i++) {
+			MenuItemModel menuItem = MenuItemModel.getMenuItemByName(in.readUTF());
+			if (menuItem != null) {
+				order.addItem(menuItem);
+			}
+		}
+		order.setTotalCost(totalCost);
+	}
+
+	/*
+	 * Starts a record payload with its type and order ID.
+	 */
+	private static RecordOutput startRecord(byte type, OrderModel order) throws IOException {
+		return startRecord(type, order.getOrderId());
+	}
+
+	private static RecordOutput startRecord(byte type, long orderId) throws IOException {
+		RecordOutput out = new RecordOutput();
+		out.writeByte(type);
+		out.writeLong(orderId);
+		return out;
+	}
+
+	/*
+	 * Frames a finished payload as a record and appends it to the journal.
+	 * With group commit running the record is queued for the committer,
+	 * otherwise it is written and forced to disk straight away.
+	 */
+	private static CompletableFuture<Void> append(RecordOutput out) throws IOException {
+		byte[] payload = out.toByteArray();
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + payload.length);
+		record.putInt(payload.length);
+		record.putInt(SegmentFileLogger.checksum(payload, payload.length));
+		record.put(payload);
+		record.flip();
+
+		synchronized (queueLock) {
+			if (committing) {
+				CompletableFuture<Void> future = new CompletableFuture<>();
+				pending.add(new PendingRecord(record, future));
+				lastCommit = future;
+				queueLock.notifyAll();
+				return future;
+			}
+		}
+
+		synchronized (journalLock) {
+			if (channel == null) {
+				// journal closed, save the whole snapshot instead
+				if (snapshotPath != null) {
+					OrderSnapshot.saveOrderRecords(snapshotPath, copyOrders());
+				}
+				return CompletableFuture.completedFuture(null);
+			}
+			SegmentFileLogger.writeFully(channel, record);
+			channel.force(false);
+		}
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/*
+	 * Committer thread loop. Waits for a record, then waits the group commit
+	 * window for more to arrive and commits everything queued together.
+	 */
+	private static void commitLoop() {
+		while (true) {
+			synchronized (queueLock) {
+				while (committing && pending.isEmpty()) {
+					try {
+						queueLock.wait();
+					} catch (InterruptedException e) {
+						// stopping
+					}
+				}
+				if (pending.isEmpty()) {
+					return;
+				}
+			}
+
+			// let records from other changes join this group
+			LockSupport.parkNanos(groupCommitWindowNanos);
+
+			ArrayList<PendingRecord> group;
+			synchronized (queueLock) {
+				group = pending;
+				pending = new ArrayList<>();
+			}
+			commit(group);
+		}
+	}
+
+	/*
+	 * Writes a group of records with one gathering write and one force, then
+	 * completes their futures.
+	 */
+	private static void commit(ArrayList<PendingRecord> group) {
+		ByteBuffer[] records = new ByteBuffer[group.size()];
+		long remaining = 0;
+		for (int i = 0; i < records.length; i++) {
+			records[i] = group.get(i).record;
+			remaining += records[i].remaining();
+		}
+
+		try {
+			synchronized (journalLock) {
+				if (channel == null) {
+					throw new IOException("Order journal is closed");
+				}
+				while (remaining > 0) {
+					remaining -= channel.write(records);
+				}
+				channel.force(false);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			for (PendingRecord pendingRecord : group) {
+				pendingRecord.future.completeExceptionally(e);
+			}
+			return;
+		}
+
+		for (PendingRecord pendingRecord : group) {
+			pendingRecord.future.complete(null);
+		}
+	}
+
+	/*
+	 * Waits until every record queued so far has been committed.
+	 */
+	private static void awaitCommitted() {
+		CompletableFuture<Void> last;
+		synchronized (queueLock) {
+			last = lastCommit;
+		}
+		try {
+			last.join();
+		} catch (RuntimeException e) {
+			// failure already reported to the caller of the record method
+		}
+	}
+
+	private static CompletableFuture<Void> failed(Throwable cause) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		future.completeExceptionally(cause);
+		return future;
+	}
+
+	/*
+	 * First half of compaction, run on the JavaFX application thread. Copies
+	 * the current orders and moves the journal aside so that new records go
+	 * to a fresh journal, then hands the copy to the compactor thread.
+	 */
+	private static void beginCompaction() {
+		final List<OrderRecord> orderRecords;
+
+		synchronized (journalLock) {
+			// tried again on the next check while orders are being edited
+			if (channel == null || compactionSuspensions > 0) {
+				compacting = false;
+				return;
+			}
+
+			orderRecords = copyOrders();
+			try {
+				channel.close();
+				Path live = Paths.get(journalPath);
+				Path old = Paths.get(journalPath + OLD_SUFFIX);
+				if (Files.exists(old)) {
+					// an earlier snapshot failed, keep its records
+					appendRecords(live, old);
+					Files.delete(live);
+				} else {
+					Files.move(live, old);
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+
+			try {
+				channel = openForAppend(journalPath);
+			} catch (IOException e) {
+				e.printStackTrace();
+				channel = null;
+			}
+		}
+
+		try {
+			compactor.execute(new Runnable() {
+				@Override
+				public void run() {
+					if (OrderSnapshot.saveOrderRecords(snapshotPath, orderRecords)) {
+						deleteFile(journalPath + OLD_SUFFIX);
+					}
+					compacting = false;
+				}
+			});
+		} catch (RuntimeException e) {
+			// compactor stopped, the journal is folded in on close
+			compacting = false;
+		}
+	}
+
+	/*
+	 * Copies the unloaded closed orders and the orders in memory, to save as
+	 * a new snapshot. Called with journalLock held.
+	 */
+	private static List<OrderRecord> copyOrders() {
+		List<OrderRecord> orderRecords = getUnloadedOrders();
+		orderRecords.addAll(OrderRecord.copyOf(OrderModel.getOrderList()));
+		return orderRecords;
+	}
+
+	/*
+	 * Copies the records (not the file header) of one journal file onto the
+	 * end of another.
+	 */
+	private static void appendRecords(Path from, Path to) throws IOException {
+		try (FileChannel source = FileChannel.open(from, StandardOpenOption.READ);
+				FileChannel target = FileChannel.open(to, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+			long position = FILE_HEADER_LENGTH;
+			long size = source.size();
+			while (position < size) {
+				position += source.transferTo(position, size - position, target);
+			}
+			target.force(false);
+		}
+	}
+
+	/*
+	 * Opens the journal file for appending, writing the file header first if
+	 * the file is new or empty.
+	 */
+	private static FileChannel openForAppend(String filePath) throws IOException {
+		FileChannel journalChannel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+		if (journalChannel.size() == 0) {
+			ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+			header.putInt(FILE_MAGIC);
+			header.putShort(FILE_VERSION);
+			header.putShort((short) 0);
+			header.flip();
+			SegmentFileLogger.writeFully(journalChannel, header);
+			journalChannel.force(false);
+		}
+
+		return journalChannel;
+	}
+
+	private static long journalLength() {
+		File journalFile = new File(journalPath);
+		return journalFile.length();
+	}
+
+	private static void deleteFile(String filePath) {
+		try {
+			Files.deleteIfExists(Paths.get(filePath));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/*
+	 * Record payload being built in memory.
+	 */
+	private static final class RecordOutput extends DataOutputStream {
+
+		RecordOutput() {
+			super(new ByteArrayOutputStream(128));
+		}
+
+		byte[] toByteArray() throws IOException {
+			flush();
+			return ((ByteArrayOutputStream) out).toByteArray();
+		}
+	}
+
+	/*
+	 * Record waiting for the committer and the future to complete once it is
+	 * on disk.
+	 */
+	private static final class PendingRecord {
+
+		private final ByteBuffer record;
+		private final CompletableFuture<Void> future;
+
+		PendingRecord(ByteBuffer record, CompletableFuture<Void> future) {
+			this.record = record;
+			this.future = future;
+		}
+	}
+}
@@ -0,0 +1,421 @@
+package gc01.cw.robf.utility;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.OrderRecord;
+
+/**
+ * Utility class for the binary order snapshot file used by OrderJournal in
+ * place of the orders XML file. Menu item names and creating users are stored
+ * once in a string table and referred to by index, date-times are stored as
+ * epoch milliseconds and total costs as whole pence.
+ * <p>
+ * The file is read into memory in one go rather than mapped, so that it can
+ * be replaced or deleted while the snapshot is in use, which an open mapping
+ * prevents on Windows. Reading a snapshot only decodes the file header and
+ * string table; each order is decoded when it is asked for, either as an
+ * OrderRecord or materialised as an OrderModel.
+ * <p>
+ * File layout: a 16 byte header (magic number, format version, string count
+ * and order count), the string table (length-prefixed UTF-8 strings), an index
+ * of the file offset of each order and the orders themselves. Each order has a
+ * fixed 45 byte part (order ID, table number, creating user index, status,
+ * opened and closed epoch milliseconds, total cost in pence and line count)
+ * followed by a 24 byte entry for each order line (item name index, item ID,
+ * quantity and unit price in pence) and its comments. Date-times are stored
+ * as held by OrderModel, so the N/A closed date-time of an open order is
+ * stored as OrderModel.NO_DATE.
+ * <p>
+ * Version 1 files, which hold one item name index for each item ordered, are
+ * still read. Their items are counted into lines priced at the current menu
+ * price.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class OrderSnapshot {
+
+	/**
+	 * Magic number at the start of every snapshot file ("OGOS").
+	 */
+	public static final int FILE_MAGIC = 0x4F474F53;
+
+	/**
+	 * Current version of the snapshot file format.
+	 */
+	public static final short FILE_VERSION = 2;
+
+	/**
+	 * Length in bytes of the snapshot file header.
+	 */
+	public static final int FILE_HEADER_LENGTH = 16;
+
+	// fixed part of each order
+	private static final int ORDER_ID = 0;
+	private static final int TABLE_NUMBER = 8;
+	private static final int CREATING_USER = 12;
+	private static final int STATUS = 16;
+	private static final int DATE_OPENED = 17;
+	private static final int DATE_CLOSED = 25;
+	private static final int TOTAL_PENCE = 33;
+	private static final int ITEM_COUNT = 41;
+	private static final int FIXED_LENGTH = 45;
+	private static final int LINE_LENGTH = 24;
+	private static final int V1_ITEM_LENGTH = 4;
+
+	private final ByteBuffer buffer;
+	private final short version;
+	private final String[] strings;
+	private final int orderCount;
+	private final int indexOffset;
+
+	/*
+	 * Reads the header and string table of a snapshot.
+	 */
+	private OrderSnapshot(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+
+		if (buffer.limit() < FILE_HEADER_LENGTH || buffer.getInt(0) != FILE_MAGIC) {
+			throw new IOException("Not an order snapshot file");
+		}
+		version = buffer.getShort(4);
+		if (version != 1 && version != FILE_VERSION) {
+			throw new IOException("Unsupported order snapshot version " + version);
+		}
+
+		int stringCount = buffer.getInt(8);
+		orderCount = buffer.getInt(12);
+		if (stringCount < 0 || orderCount < 0) {
+			throw new IOException("Damaged order snapshot file");
+		}
+
+		strings = new String[stringCount];
+		int position = FILE_HEADER_LENGTH;
+		for (int i = 0; i < stringCount; i++) {
+			int length = buffer.getInt(position);
+			strings[i] = readString(position + 4, length);
+			position += 4 + length;
+		}
+
+		indexOffset = position;
+		if ((long) indexOffset + 4L * orderCount > buffer.limit()) {
+			throw new IOException("Damaged order snapshot file");
+		}
+	}
+
+	/**
+	 * Static method to read a snapshot file. A missing or empty file gives an
+	 * empty snapshot.
+	 *
+	 * @param filePath
+	 *            Path of the snapshot file
+	 * @return OrderSnapshot view of the file
+	 * @throws IOException
+	 *             if the file can not be read or is not a snapshot file
+	 */
+	public static OrderSnapshot read(String filePath) throws IOException {
+		File snapshotFile = new File(filePath);
+		if (!snapshotFile.exists() || snapshotFile.length() == 0) {
+			ByteBuffer empty = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+			empty.putInt(0, FILE_MAGIC);
+			empty.putShort(4, FILE_VERSION);
+			return new OrderSnapshot(empty);
+		}
+
+		return new OrderSnapshot(ByteBuffer.wrap(Files.readAllBytes(snapshotFile.toPath())));
+	}
+
+	/**
+	 * Static method to load the open orders in a snapshot file into the
+	 * statically accessible order list, replacing the orders in it. Closed
+	 * orders are left in the returned snapshot, to be read as OrderRecord
+	 * objects or materialised when they are needed, and their IDs are not
+	 * given to new orders. Uses name and item ID of the lines contained within
+	 * orders to lookup MenuItemModel objects.
+	 *
+	 * @param filePath
+	 *            Path of the snapshot file
+	 * @return OrderSnapshot view of the file, or null if it could not
+	 *         be read
+	 */
+	public static OrderSnapshot loadOpenOrders(String filePath) {
+		OrderModel.getOrderList().clear();
+
+		OrderSnapshot snapshot;
+		try {
+			snapshot = read(filePath);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+
+		for (int i = 0; i < snapshot.size(); i++) {
+			if (snapshot.getStatus(i) == OrderModel.OrderStatus.OPEN) {
+				snapshot.materialise(i);
+			} else {
+				OrderModel.reserveOrderIds(snapshot.getOrderId(i));
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Static method to write a list of OrderRecord copies of orders to the
+	 * specified snapshot file. The file is written to a temporary file, forced
+	 * to disk and atomically renamed over the target.
+	 *
+	 * @param filePath
+	 *            Path of the snapshot file
+	 * @param orderRecords
+	 *            List of OrderRecord objects to save.
+	 * @return boolean true if the file was saved
+	 */
+	public static boolean saveOrderRecords(String filePath, List<OrderRecord> orderRecords) {
+		// first pass builds the string table and works out where each order
+		// will be written
+		Map<String, Integer> stringIndex = new LinkedHashMap<>();
+		List<byte[]> comments = new ArrayList<>(orderRecords.size());
+		int[] offsets = new int[orderRecords.size()];
+
+		for (OrderRecord order : orderRecords) {
+			stringIndex.putIfAbsent(order.getCreatingUser(), stringIndex.size());
+			for (OrderRecord.Line line : order.getLines()) {
+				stringIndex.putIfAbsent(line.getName(), stringIndex.size());
+			}
+			comments.add(order.getComments().getBytes(StandardCharsets.UTF_8));
+		}
+
+		List<byte[]> strings = new ArrayList<>(stringIndex.size());
+		long position = FILE_HEADER_LENGTH;
+		for (String string : stringIndex.keySet()) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			strings.add(bytes);
+			position += 4 + bytes.length;
+		}
+		position += 4L * orderRecords.size();
+		for (int i = 0; i < offsets.length; i++) {
+			offsets[i] = (int) position;
+			position += FIXED_LENGTH + LINE_LENGTH * orderRecords.get(i).getLines().size() + 4
+					+ comments.get(i).length;
+			if (position > Integer.MAX_VALUE) {
+				System.err.println("Order snapshot too large to save: " + filePath);
+				return false;
+			}
+		}
+
+		Path tempPath = null;
+		try {
+			tempPath = StaxXmlHandler.createTempFile(filePath);
+
+			try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+
+				out.writeInt(FILE_MAGIC);
+				out.writeShort(FILE_VERSION);
+				out.writeShort(0);
+				out.writeInt(strings.size());
+				out.writeInt(orderRecords.size());
+
+				for (byte[] bytes : strings) {
+					out.writeInt(bytes.length);
+					out.write(bytes);
+				}
+				for (int offset : offsets) {
+					out.writeInt(offset);
+				}
+
+				for (int i = 0; i < offsets.length; i++) {
+					OrderRecord order = orderRecords.get(i);
+					out.writeLong(order.getOrderId());
+					out.writeInt(order.getTableNumber());
+					out.writeInt(stringIndex.get(order.getCreatingUser()));
+					out.writeByte((byte) order.getStatus().ordinal());
+					out.writeLong(order.getOpenedMillis());
+					out.writeLong(order.getClosedMillis());
+					out.writeLong(order.getTotalPence());
+					out.writeInt(order.getLines().size());
+					for (OrderRecord.Line line : order.getLines()) {
+						out.writeInt(stringIndex.get(line.getName()));
+						out.writeLong(line.getItemId());
+						out.writeInt(line.getQuantity());
+						out.writeLong(line.getUnitPricePence());
+					}
+					out.writeInt(comments.get(i).length);
+					out.write(comments.get(i));
+				}
+
+				out.flush();
+				channel.force(true);
+			}
+
+			StaxXmlHandler.replace(tempPath, filePath);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			StaxXmlHandler.deleteTempFile(tempPath);
+		}
+
+		return false;
+	}
+
+	/**
+	 * One-shot converter which loads the orders in an orders XML file and
+	 * saves them as the specified snapshot file.
+	 *
+	 * @param xmlFilePath
+	 *            Path of the existing orders XML file
+	 * @param filePath
+	 *            Path of the snapshot file to create
+	 * @return int number of orders converted
+	 */
+	public static int convertXmlOrders(String xmlFilePath, String filePath) {
+		File xmlFile = new File(xmlFilePath);
+		if (!xmlFile.exists() || xmlFile.length() == 0) {
+			return 0;
+		}
+
+		FileXmlHandler.loadOrders(xmlFilePath, true);
+		List<OrderRecord> orderRecords = OrderRecord.copyOf(OrderModel.getOrderList());
+		saveOrderRecords(filePath, orderRecords);
+		return orderRecords.size();
+	}
+
+	/**
+	 * @return int number of orders in the snapshot.
+	 */
+	public int size() {
+		return orderCount;
+	}
+
+	/**
+	 * Reads the order ID of an order without decoding the rest of it.
+	 *
+	 * @param index
+	 *            int position of the order in the snapshot
+	 * @return long value of order ID.
+	 */
+	public long getOrderId(int index) {
+		return buffer.getLong(orderOffset(index) + ORDER_ID);
+	}
+
+	/**
+	 * Reads the status of an order without decoding the rest of it.
+	 *
+	 * @param index
+	 *            int position of the order in the snapshot
+	 * @return OrderModel.OrderStatus enum of order status.
+	 */
+	public OrderModel.OrderStatus getStatus(int index) {
+		return statusOf(buffer.get(orderOffset(index) + STATUS));
+	}
+
+	/**
+	 * Decodes an order as an immutable OrderRecord. The items of a version 1
+	 * order are counted into lines priced at the current menu price, which
+	 * requires menu items to have been loaded.
+	 *
+	 * @param index
+	 *            int position of the order in the snapshot
+	 * @return OrderRecord of the saved order
+	 */
+	public OrderRecord getRecord(int index) {
+		int offset = orderOffset(index);
+		int itemCount = buffer.getInt(offset + ITEM_COUNT);
+
+		List<OrderRecord.Line> lines;
+		int position = offset + FIXED_LENGTH;
+		if (version == 1) {
+			lines = readItemNames(position, itemCount);
+			position += V1_ITEM_LENGTH * itemCount;
+		} else {
+			lines = new ArrayList<>(itemCount);
+			for (int i = 0; i < itemCount; i++) {
+				lines.add(new OrderRecord.Line(strings[buffer.getInt(position)], buffer.getLong(position + 4),
+						buffer.getInt(position + 12), buffer.getLong(position + 16)));
+				position += LINE_LENGTH;
+			}
+		}
+		String comments = readString(position + 4, buffer.getInt(position));
+
+		return new OrderRecord(buffer.getLong(offset + ORDER_ID), buffer.getInt(offset + TABLE_NUMBER),
+				strings[buffer.getInt(offset + CREATING_USER)], statusOf(buffer.get(offset + STATUS)),
+				buffer.getLong(offset + DATE_OPENED), buffer.getLong(offset + DATE_CLOSED),
+				buffer.getLong(offset + TOTAL_PENCE), comments, lines);
+	}
+
+	/**
+	 * Decodes an order as a new OrderModel object, which keeps its saved order
+	 * ID and is added to the statically accessible order list. Requires menu
+	 * items to have been loaded.
+	 *
+	 * @param index
+	 *            int position of the order in the snapshot
+	 * @return OrderModel object of the saved order
+	 */
+	public OrderModel materialise(int index) {
+		OrderModel order = new OrderModel(getRecord(index));
+		OrderModel.getOrderList().add(order);
+		return order;
+	}
+
+	private int orderOffset(int index) {
+		if (index < 0 || index >= orderCount) {
+			throw new IndexOutOfBoundsException("Order " + index + " of " + orderCount);
+		}
+		return buffer.getInt(indexOffset + 4 * index);
+	}
+
+	/*
+	 * Counts the item names of a version 1 order into lines, in the order
+	 * each item was first added. Items no longer on the menu are kept at no
+	 * price so that they are dropped when the order is materialised.
+	 */
+	private List<OrderRecord.Line> readItemNames(int position, int itemCount) {
+		Map<String, Integer> quantities = new LinkedHashMap<>();
+		for (int i = 0; i < itemCount; i++) {
+			String itemName = strings[buffer.getInt(position + V1_ITEM_LENGTH * i)];
+			Integer quantity = quantities.get(itemName);
+			quantities.put(itemName, quantity != null ? quantity + 1 : 1);
+		}
+
+		List<OrderRecord.Line> lines = new ArrayList<>(quantities.size());
+		for (Map.Entry<String, Integer> quantity : quantities.entrySet()) {
+			MenuItemModel menuItem = MenuItemModel.getMenuItemByName(quantity.getKey());
+			lines.add(new OrderRecord.Line(quantity.getKey(), menuItem != null ? menuItem.getItemId() : 0,
+					quantity.getValue(), menuItem != null ? menuItem.getPricePence() : 0));
+		}
+		return lines;
+	}
+
+	private String readString(int position, int length) {
+		byte[] bytes = new byte[length];
+		ByteBuffer view = buffer.duplicate();
+		view.position(position);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static OrderModel.OrderStatus statusOf(byte code) {
+		OrderModel.OrderStatus[] values = OrderModel.OrderStatus.values();
+		return code >= 0 && code < values.length ? values[code] : OrderModel.OrderStatus.OPEN;
+	}
+}
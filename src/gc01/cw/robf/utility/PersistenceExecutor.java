@@ -0,0 +1,186 @@
+package gc01.cw.robf.utility;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+
+/**
+ * Utility class which runs file and database writes on a single background
+ * persistence thread so that a slow disk does not freeze the JavaFX
+ * application thread. Saves run one at a time in the order they were
+ * submitted, so later changes are always applied after earlier ones.
+ * <p>
+ * Work submitted from the JavaFX application thread must not read models
+ * which can change before it runs; stores copy what they save, e.g. as
+ * OrderRecord objects, before submitting it. The number of pending saves and
+ * the last failed save are published as read only properties for views to
+ * show.
+ * <p>
+ * If the executor has been shut down, work runs straight away on the calling
+ * thread so nothing is lost.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class PersistenceExecutor {
+
+	/**
+	 * A save run on the persistence thread.
+	 */
+	public interface Work {
+
+		/**
+		 * Runs the save.
+		 *
+		 * @return boolean true if the save succeeded
+		 * @throws Exception
+		 *             if the save fails
+		 */
+		boolean save() throws Exception;
+	}
+
+	private static final String THREAD_NAME = "persistence";
+
+	private static final ExecutorService executor = createExecutor();
+	private static final AtomicInteger pendingCount = new AtomicInteger();
+	private static final ReadOnlyIntegerWrapper pending = new ReadOnlyIntegerWrapper(0);
+	private static final ReadOnlyStringWrapper failure = new ReadOnlyStringWrapper();
+
+	/**
+	 * Static method to queue a save behind every save submitted before it.
+	 *
+	 * @param description
+	 *            String describing what is saved, e.g. "orders", shown if the
+	 *            save fails
+	 * @param work
+	 *            PersistenceExecutor.Work to run
+	 * @return CompletableFuture which completes once the save has run, or
+	 *         completes exceptionally if it failed
+	 */
+	public static CompletableFuture<Void> submit(String description, Work work) {
+		CompletableFuture<Void> saved = new CompletableFuture<>();
+		pendingCount.incrementAndGet();
+		publishPending();
+
+		Runnable task = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					if (work.save()) {
+						saved.complete(null);
+					} else {
+						saved.completeExceptionally(new IllegalStateException(description + " could not be saved"));
+					}
+				} catch (Exception e) {
+					e.printStackTrace();
+					saved.completeExceptionally(e);
+				} finally {
+					pendingCount.decrementAndGet();
+					publishPending();
+				}
+
+				if (saved.isCompletedExceptionally()) {
+					publishFailure(description + " could not be saved");
+				}
+			}
+		};
+
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+		return saved;
+	}
+
+	/**
+	 * Static method which blocks until every save submitted before the call
+	 * has run, e.g. before reading back what was saved. Returns straight away
+	 * if nothing is pending or if called on the persistence thread.
+	 */
+	public static void drain() {
+		if (pendingCount.get() == 0 || Thread.currentThread().getName().equals(THREAD_NAME)) {
+			return;
+		}
+
+		// saves run in order, so this one runs after every earlier one
+		submit("nothing", () -> true).handle((result, error) -> null).join();
+	}
+
+	/**
+	 * Static method to run every pending save and stop the persistence
+	 * thread. Called on application shutdown before the stores are closed.
+	 * Later saves run on the calling thread.
+	 */
+	public static void shutdown() {
+		drain();
+		executor.shutdown();
+	}
+
+	/**
+	 * @return ReadOnlyIntegerProperty of the number of saves waiting to run,
+	 *         updated on the JavaFX application thread.
+	 */
+	public static ReadOnlyIntegerProperty pendingProperty() {
+		return pending.getReadOnlyProperty();
+	}
+
+	/**
+	 * @return ReadOnlyStringProperty describing the last save which failed,
+	 *         updated on the JavaFX application thread.
+	 */
+	public static ReadOnlyStringProperty failureProperty() {
+		return failure.getReadOnlyProperty();
+	}
+
+	private static void publishPending() {
+		runOnFxThread(() -> pending.set(pendingCount.get()));
+	}
+
+	private static void publishFailure(String message) {
+		// set to null first so that the same failure twice is still seen
+		runOnFxThread(() -> {
+			failure.set(null);
+			failure.set(message);
+		});
+	}
+
+	/*
+	 * Runs an update on the JavaFX application thread. Before the toolkit has
+	 * started, e.g. while loading at startup, nothing else is changing the
+	 * models or bound to the properties so it runs straight away.
+	 */
+	static void runOnFxThread(Runnable update) {
+		if (Platform.isFxApplicationThread()) {
+			update.run();
+			return;
+		}
+
+		try {
+			Platform.runLater(update);
+		} catch (IllegalStateException e) {
+			update.run();
+		}
+	}
+
+	private static ExecutorService createExecutor() {
+		return Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, THREAD_NAME);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+}
@@ -0,0 +1,224 @@
+package gc01.cw.robf.utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import javafx.animation.PauseTransition;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.util.Duration;
+
+/**
+ * Filters the rows of a table view on search text typed into a filter field.
+ * The lower case search text of each row is built once and cached until the
+ * row is edited, rather than lower-casing every field of every row on every
+ * keystroke. Keystrokes are debounced, so the rows are only filtered once
+ * typing pauses.
+ * <p>
+ * Search text is built on the JavaFX application thread, where the models
+ * change. Matching a large list against the filter text runs in parallel on
+ * background threads, and the result is applied on the JavaFX application
+ * thread unless the filter text has changed since.
+ * <p>
+ * Views call invalidate when a row is edited in the view and invalidateAll
+ * when rows may have changed elsewhere, e.g. each time the view is shown.
+ * Rows removed from the list are dropped from the cache.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ * @param <T>
+ *            type of row, e.g. OrderModel
+ */
+public class SearchFilter<T> {
+
+	/**
+	 * Time to wait after a keystroke for the next one before filtering.
+	 */
+	public static final long DEBOUNCE_MILLIS = 150;
+
+	/**
+	 * Number of rows from which the list is matched on background threads.
+	 */
+	public static final int PARALLEL_THRESHOLD = 2000;
+
+	private ObservableList<T> items;
+	private FilteredList<T> filteredItems;
+	private Function<T, String> searchText;
+
+	// rows are cached by identity as rows may be equal to each other
+	private IdentityHashMap<T, String> searchKeys = new IdentityHashMap<>();
+	private PauseTransition debounce = new PauseTransition(Duration.millis(DEBOUNCE_MILLIS));
+	private String filterText = "";
+	// incremented whenever the filter text changes, so that a match which
+	// has been overtaken is not applied
+	private long generation;
+
+	/**
+	 * Constructor for SearchFilter objects.
+	 *
+	 * @param items
+	 *            ObservableList of rows to filter
+	 * @param searchText
+	 *            Function returning the text of a row to search, in any case
+	 */
+	public SearchFilter(ObservableList<T> items, Function<T, String> searchText) {
+		this.items = items;
+		this.filteredItems = new FilteredList<>(items, null);
+		this.searchText = searchText;
+
+		debounce.setOnFinished(new EventHandler<ActionEvent>() {
+			@Override
+			public void handle(ActionEvent event) {
+				filter();
+			}
+		});
+
+		items.addListener(new ListChangeListener<T>() {
+			@Override
+			public void onChanged(Change<? extends T> change) {
+				boolean added = false;
+				while (change.next()) {
+					for (T item : change.getRemoved()) {
+						searchKeys.remove(item);
+					}
+					added |= change.wasAdded();
+				}
+
+				// added rows are not in the last match, so match again
+				if (added && !filterText.isEmpty()) {
+					debounce.playFromStart();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Filters the rows whenever the filter text changes, once typing pauses.
+	 * Clearing the filter text shows every row straight away.
+	 *
+	 * @param filterTextProperty
+	 *            ObservableValue of the filter text, e.g. the text property of
+	 *            a TextField
+	 */
+	public void bind(ObservableValue<String> filterTextProperty) {
+		filterTextProperty.addListener(new ChangeListener<String>() {
+			@Override
+			public void changed(ObservableValue<? extends String> observable, String oldValue, String newValue) {
+				filterText = newValue == null ? "" : newValue.toLowerCase();
+				generation++;
+
+				if (filterText.isEmpty()) {
+					debounce.stop();
+					filteredItems.setPredicate(null);
+				} else {
+					debounce.playFromStart();
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return FilteredList of the rows matching the filter text, to wrap in a
+	 *         SortedList for the table view.
+	 */
+	public FilteredList<T> getFilteredList() {
+		return filteredItems;
+	}
+
+	/**
+	 * Drops the cached search text of a row, e.g. after it has been edited in
+	 * the table view.
+	 *
+	 * @param item
+	 *            row which has changed
+	 */
+	public void invalidate(T item) {
+		searchKeys.remove(item);
+	}
+
+	/**
+	 * Drops the cached search text of every row, e.g. when the view is shown
+	 * again after the rows may have changed elsewhere.
+	 */
+	public void invalidateAll() {
+		searchKeys.clear();
+	}
+
+	/*
+	 * Matches every row against the filter text. Runs on the JavaFX
+	 * application thread.
+	 */
+	private void filter() {
+		if (filterText.isEmpty()) {
+			return;
+		}
+
+		// copy the rows and their search text for matching on other threads
+		List<T> rows = new ArrayList<>(items);
+		String[] keys = new String[rows.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = searchKey(rows.get(i));
+		}
+
+		String matchText = filterText;
+		long matchGeneration = generation;
+
+		if (keys.length < PARALLEL_THRESHOLD) {
+			apply(rows, match(keys, matchText, false));
+			return;
+		}
+
+		CompletableFuture.supplyAsync(() -> match(keys, matchText, true)).whenComplete((matched, error) -> {
+			if (error != null) {
+				error.printStackTrace();
+				return;
+			}
+
+			PersistenceExecutor.runOnFxThread(() -> {
+				// typing may have carried on while matching
+				if (matchGeneration == generation) {
+					apply(rows, matched);
+				}
+			});
+		});
+	}
+
+	private void apply(List<T> rows, int[] matched) {
+		Set<T> matchingRows = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int i : matched) {
+			matchingRows.add(rows.get(i));
+		}
+
+		filteredItems.setPredicate(item -> matchingRows.contains(item));
+	}
+
+	private String searchKey(T item) {
+		String key = searchKeys.get(item);
+		if (key == null) {
+			key = searchText.apply(item).toLowerCase();
+			searchKeys.put(item, key);
+		}
+		return key;
+	}
+
+	private static int[] match(String[] keys, String matchText, boolean parallel) {
+		IntStream indexes = IntStream.range(0, keys.length);
+		if (parallel) {
+			indexes = indexes.parallel();
+		}
+
+		return indexes.filter(i -> keys[i].contains(matchText)).toArray();
+	}
+}
@@ -0,0 +1,352 @@
+package gc01.cw.robf.utility;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import gc01.cw.robf.model.LogModel;
+import gc01.cw.robf.model.UserModel;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Utility class for working with append-only segment files of LogModel items.
+ * Replaces the parse-and-rewrite approach of XmlCustomLogger: each log line is
+ * framed as a single record and appended to the end of the segment file, so
+ * the cost of writing a line does not depend on the size of the log.
+ * <p>
+ * A segment file starts with an 8 byte file header (magic number and format
+ * version) followed by any number of records. Each record has a fixed 16 byte
+ * header (payload length, CRC32 of the payload and the log date-time as epoch
+ * seconds) followed by the payload of username, date-time and message strings
+ * in modified UTF-8. A partially written record at the end of the file (e.g.
+ * after a crash) fails its length or checksum test and is ignored.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class SegmentFileLogger {
+
+	/**
+	 * Magic number at the start of every segment file ("OGLG").
+	 */
+	public static final int FILE_MAGIC = 0x4F474C47;
+
+	/**
+	 * Current version of the segment file format.
+	 */
+	public static final short FILE_VERSION = 1;
+
+	/**
+	 * Length in bytes of the segment file header.
+	 */
+	public static final int FILE_HEADER_LENGTH = 8;
+
+	/**
+	 * Length in bytes of the fixed header preceding every record payload.
+	 */
+	public static final int RECORD_HEADER_LENGTH = 16;
+
+	// guards against reading garbage lengths from a damaged file
+	private static final int MAX_PAYLOAD_LENGTH = 3 * 65535 + 6;
+
+	private static DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss");
+
+	/**
+	 * Static method to append a passed LogModel object to the specified
+	 * segment file. Creates the file (with its header) if it does not exist.
+	 *
+	 * @param filePath
+	 *            Path of the segment file
+	 * @param logObject
+	 *            LogModel object to log
+	 */
+	public static void writeLogLine(String filePath, LogModel logObject) {
+		writeLogLines(filePath, Collections.singletonList(logObject));
+	}
+
+	/**
+	 * Static method to append a batch of LogModel objects to the specified
+	 * segment file with a single gathering write.
+	 *
+	 * @param filePath
+	 *            Path of the segment file
+	 * @param logObjects
+	 *            List of LogModel objects to log, in order
+	 */
+	public static void writeLogLines(String filePath, List<LogModel> logObjects) {
+		if (logObjects.isEmpty()) {
+			return;
+		}
+
+		// the index lock also serialises writers to the same file
+		LogIndex index = LogIndex.getIndex(filePath);
+		synchronized (index) {
+			try (FileChannel channel = openForAppend(filePath)) {
+				long offset = channel.size();
+				ByteBuffer[] records = new ByteBuffer[logObjects.size()];
+				long remaining = 0;
+				for (int i = 0; i < records.length; i++) {
+					records[i] = encodeRecord(logObjects.get(i));
+					remaining += records[i].remaining();
+				}
+
+				while (remaining > 0) {
+					remaining -= channel.write(records);
+				}
+
+				for (int i = 0; i < records.length; i++) {
+					int length = records[i].limit() - RECORD_HEADER_LENGTH;
+					LogModel logObject = logObjects.get(i);
+					index.appended(offset, length, logObject.getUsername(), toEpochSeconds(logObject.getDateTime()));
+					offset += records[i].limit();
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			index.persist();
+		}
+	}
+
+	/**
+	 * Static method to retrieve LogModel objects for the specified UserModel
+	 * user from a specified segment file. Uses the file's LogIndex so only the
+	 * user's records are read.
+	 *
+	 * @param filePath
+	 *            Path of the segment file
+	 * @param user
+	 *            UserModel object of the user to search for
+	 * @return ObservableList of LogModel objects which were generated by the
+	 *         specified user
+	 */
+	public static ObservableList<LogModel> readLogLinesByUser(String filePath, UserModel user) {
+		return LogIndex.getIndex(filePath).readLogLinesByUser(user.getUsername());
+	}
+
+	/**
+	 * Static method to retrieve LogModel objects for the specified UserModel
+	 * user between two date-times (inclusive) from a specified segment file.
+	 *
+	 * @param filePath
+	 *            Path of the segment file
+	 * @param user
+	 *            UserModel object of the user to search for
+	 * @param from
+	 *            LocalDateTime of the start of the window
+	 * @param to
+	 *            LocalDateTime of the end of the window
+	 * @return ObservableList of LogModel objects which were generated by the
+	 *         specified user within the window
+	 */
+	public static ObservableList<LogModel> readLogLinesByUser(String filePath, UserModel user, LocalDateTime from,
+			LocalDateTime to) {
+		return LogIndex.getIndex(filePath).readLogLinesByUser(user.getUsername(), from, to);
+	}
+
+	/**
+	 * Static method to retrieve every LogModel object stored in a specified
+	 * segment file, in the order they were written.
+	 *
+	 * @param filePath
+	 *            Path of the segment file
+	 * @return ObservableList of all LogModel objects in the file
+	 */
+	public static ObservableList<LogModel> readLogLines(String filePath) {
+		ObservableList<LogModel> logLines = FXCollections.observableArrayList();
+
+		File inputFile = new File(filePath);
+		if (!inputFile.exists()) {
+			return logLines;
+		}
+
+		try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+				DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)))) {
+
+			if (!readFileHeader(in)) {
+				return logLines;
+			}
+
+			byte[] payload = new byte[256];
+			while (true) {
+				int length;
+				int checksum;
+				try {
+					length = in.readInt();
+					checksum = in.readInt();
+					in.readLong();
+				} catch (EOFException e) {
+					break;
+				}
+
+				if (length < 0 || length > MAX_PAYLOAD_LENGTH) {
+					break;
+				}
+				if (payload.length < length) {
+					payload = new byte[length];
+				}
+				try {
+					in.readFully(payload, 0, length);
+				} catch (EOFException e) {
+					// torn record at the end of the file
+					break;
+				}
+				if (checksum(payload, length) != checksum) {
+					break;
+				}
+
+				logLines.add(decodePayload(payload, length));
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return logLines;
+	}
+
+	/**
+	 * One-shot converter which reads every logLine element from a log file
+	 * written by XmlCustomLogger and appends them, in order, to the specified
+	 * segment file.
+	 *
+	 * @param xmlFilePath
+	 *            Path of the existing XML log file
+	 * @param filePath
+	 *            Path of the segment file to append to
+	 * @return int number of log lines converted
+	 */
+	public static int convertXmlLog(String xmlFilePath, String filePath) {
+		ObservableList<LogModel> logLines = XmlCustomLogger.readLogLines(xmlFilePath);
+		if (logLines.isEmpty()) {
+			return 0;
+		}
+
+		writeLogLines(filePath, logLines);
+		return logLines.size();
+	}
+
+	/**
+	 * Converts a log date-time string to seconds since the epoch. The
+	 * date-time is treated as zone-less so that the value sorts the same way
+	 * as the string it was created from.
+	 *
+	 * @param dateTime
+	 *            String of date-time in the format yyyy/MM/dd HH:mm:ss
+	 * @return long value of epoch seconds, or 0 if the string can not be
+	 *         parsed
+	 */
+	public static long toEpochSeconds(String dateTime) {
+		try {
+			return LocalDateTime.parse(dateTime, dtf).toEpochSecond(ZoneOffset.UTC);
+		} catch (DateTimeParseException e) {
+			return 0L;
+		}
+	}
+
+	/*
+	 * Opens the segment file for appending, writing the file header first if
+	 * the file is new or empty.
+	 */
+	static FileChannel openForAppend(String filePath) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+		if (channel.size() == 0) {
+			ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_LENGTH);
+			header.putInt(FILE_MAGIC);
+			header.putShort(FILE_VERSION);
+			header.putShort((short) 0);
+			header.flip();
+			writeFully(channel, header);
+		}
+
+		return channel;
+	}
+
+	/*
+	 * Encodes a LogModel object as a complete record (header and payload)
+	 * ready to be written to a segment file.
+	 */
+	static ByteBuffer encodeRecord(LogModel logObject) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeUTF(logObject.getUsername());
+		out.writeUTF(logObject.getDateTime());
+		out.writeUTF(logObject.getMessage());
+		out.flush();
+
+		byte[] payload = bytes.toByteArray();
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_LENGTH + payload.length);
+		record.putInt(payload.length);
+		record.putInt(checksum(payload, payload.length));
+		record.putLong(toEpochSeconds(logObject.getDateTime()));
+		record.put(payload);
+		record.flip();
+		return record;
+	}
+
+	/*
+	 * Decodes a record payload back into a LogModel object.
+	 */
+	static LogModel decodePayload(byte[] payload, int length) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+		String username = in.readUTF();
+		String dateTime = in.readUTF();
+		String message = in.readUTF();
+
+		LogModel logObject = new LogModel(username, message);
+		logObject.setDateTime(dateTime);
+		return logObject;
+	}
+
+	/*
+	 * Reads and checks the segment file header. Returns false if the file is
+	 * empty or is not a segment file.
+	 */
+	static boolean readFileHeader(DataInputStream in) throws IOException {
+		try {
+			int magic = in.readInt();
+			short version = in.readShort();
+			in.readShort();
+			return magic == FILE_MAGIC && version == FILE_VERSION;
+		} catch (EOFException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * Calculates the CRC32 checksum of the first length bytes of data.
+	 */
+	static int checksum(byte[] data, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, length);
+		return (int) crc.getValue();
+	}
+
+	/*
+	 * Writes the whole buffer to the channel.
+	 */
+	static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,624 @@
+package gc01.cw.robf.utility;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.OrderRecord;
+import gc01.cw.robf.model.UserModel;
+import javafx.collections.ObservableList;
+
+/**
+ * Utility class for streaming OrderModel, UserModel and MenuItemModel items
+ * to and from the XML files written by FileXmlHandler. Reads each file in a
+ * single pass with a StAX pull parser, creating each model as soon as its
+ * element ends, so memory use beyond the resulting models does not grow with
+ * the size of the file. Used by FileXmlHandler when streaming is enabled.
+ * <p>
+ * Saving streams the models through an XMLStreamWriter into a buffered
+ * channel on a temporary file in the same directory, which is forced to disk
+ * and then atomically renamed over the target, so a failed or interrupted
+ * save never leaves a truncated file. The output is byte-for-byte the same as
+ * the DOM Transformer output of FileXmlHandler: the same XML declaration, no
+ * whitespace, empty elements for empty values, and numeric character
+ * references for carriage returns, control characters and characters outside
+ * the Basic Multilingual Plane.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class StaxXmlHandler {
+
+	// declaration written by the DOM Transformer
+	private static final byte[] XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+			.getBytes(StandardCharsets.UTF_8);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static XMLInputFactory inputFactory = createInputFactory();
+	private static XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+	/**
+	 * Static method which streams the specified XML file and loads the stored
+	 * elements as UserModel objects. Loaded file requires structure created by
+	 * FileXmlHandler.saveUsers method.
+	 *
+	 * @param filePath
+	 *            Path of the XML file
+	 * @param overwrite
+	 *            Specifies whether loaded users should overwrite current users
+	 *            in memory or append only.
+	 */
+	public static void loadUsers(String filePath, boolean overwrite) {
+
+		// allows the loader to completely clear or just append to the list
+		if (overwrite) {
+			UserModel.getUserList().clear();
+		}
+
+		try (InputStream in = new BufferedInputStream(new FileInputStream(filePath))) {
+			XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+
+			String fullName = null;
+			String username = null;
+			String password = null;
+			String userType = null;
+
+			try {
+				while (reader.hasNext()) {
+					int event = reader.next();
+
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						switch (reader.getLocalName()) {
+						case "fullName":
+							fullName = reader.getElementText();
+							break;
+						case "username":
+							username = reader.getElementText();
+							break;
+						case "password":
+							password = reader.getElementText();
+							break;
+						case "userType":
+							userType = reader.getElementText();
+							break;
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("user")) {
+						new UserModel(fullName, username, password, UserModel.UserType.valueOf(userType));
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+	}
+
+	/**
+	 * Static method which streams the specified XML file and loads the stored
+	 * elements as OrderModel objects. Loaded file requires structure created
+	 * by FileXmlHandler.saveOrders method. Uses name and item ID of the menu
+	 * items contained within orders to lookup MenuItemModel objects. This
+	 * requires that a MenuItemObject exists for such orders. Repeated menu
+	 * items with no quantity or unit price, as saved before order lines, are
+	 * counted into lines at the current menu price.
+	 *
+	 * @param filePath
+	 *            Path of the XML file
+	 * @param overwrite
+	 *            Specifies whether loaded orders should overwrite current
+	 *            orders in memory or append only.
+	 */
+	public static void loadOrders(String filePath, boolean overwrite) {
+
+		// allows the loader to completely clear or just append to the list
+		if (overwrite) {
+			OrderModel.getOrderList().clear();
+		}
+
+		try (InputStream in = new BufferedInputStream(new FileInputStream(filePath))) {
+			XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+
+			OrderModel order = null;
+			String totalCost = null;
+			boolean inMenuItem = false;
+			String itemName = null;
+			String itemId = null;
+			String quantity = null;
+			String unitPrice = null;
+
+			try {
+				while (reader.hasNext()) {
+					int event = reader.next();
+
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						String elementName = reader.getLocalName();
+
+						if (elementName.equals("order")) {
+							continue;
+						} else if (elementName.equals("menuItem")) {
+							inMenuItem = true;
+							continue;
+						}
+
+						if (inMenuItem) {
+							// added to the order at the end of the menu item
+							switch (elementName) {
+							case "name":
+								itemName = reader.getElementText();
+								break;
+							case "itemId":
+								itemId = reader.getElementText();
+								break;
+							case "quantity":
+								quantity = reader.getElementText();
+								break;
+							case "unitPrice":
+								unitPrice = reader.getElementText();
+								break;
+							}
+							continue;
+						}
+
+						switch (elementName) {
+						case "tableNumber":
+							// table number is always the first field of an order,
+							// followed by the creating user
+							order = new OrderModel(Integer.valueOf(reader.getElementText()), null);
+							break;
+						case "creatingUser":
+							order.setCreatingUser(reader.getElementText());
+							break;
+						case "status":
+							order.setStatus(OrderModel.OrderStatus.valueOf(reader.getElementText()));
+							break;
+						case "dateOpened":
+							order.setDateOpened(reader.getElementText());
+							break;
+						case "dateClosed":
+							order.setDateClosed(reader.getElementText());
+							break;
+						case "totalCost":
+							// set once the items have been added
+							totalCost = reader.getElementText();
+							break;
+						case "comments":
+							order.setComments(reader.getElementText());
+							break;
+						case "orderId":
+							// keep saved order IDs unless appending, where they
+							// could clash with orders already loaded
+							String orderId = reader.getElementText();
+							if (overwrite) {
+								order.setOrderId(Long.valueOf(orderId));
+							}
+							break;
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT) {
+						String elementName = reader.getLocalName();
+
+						if (elementName.equals("menuItem")) {
+							inMenuItem = false;
+							if (order != null && itemName != null) {
+								// look up menu item object from saved name and
+								// add line to order
+								MenuItemModel mItem = MenuItemModel.getMenuItem(itemName,
+										itemId != null ? Long.valueOf(itemId) : 0);
+								if (mItem != null) {
+									order.addItem(mItem, quantity != null ? Integer.valueOf(quantity) : 1,
+											unitPrice != null ? MenuItemModel.toPence(Double.valueOf(unitPrice))
+													: mItem.getPricePence());
+								}
+							}
+							itemName = null;
+							itemId = null;
+							quantity = null;
+							unitPrice = null;
+						} else if (elementName.equals("order")) {
+							// saved total replaces the running total of the
+							// items
+							if (order != null && totalCost != null) {
+								order.setTotalCost(Double.valueOf(totalCost));
+							}
+							order = null;
+							totalCost = null;
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+	}
+
+	/**
+	 * Static method which streams the specified XML file and loads the stored
+	 * elements as MenuItemModel objects. Loaded file requires structure
+	 * created by FileXmlHandler.saveMenuItems method.
+	 *
+	 * @param filePath
+	 *            Path of the XML file
+	 * @param overwrite
+	 *            Specifies whether loaded menu items should overwrite current
+	 *            menu items in memory or append only.
+	 */
+	public static void loadMenuItems(String filePath, boolean overwrite) {
+
+		// allows the loader to completely clear or just append to the list
+		if (overwrite) {
+			MenuItemModel.getMenu().clear();
+		}
+
+		try (InputStream in = new BufferedInputStream(new FileInputStream(filePath))) {
+			XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+
+			String name = null;
+			String description = null;
+			String price = null;
+			String type = null;
+			String itemId = null;
+
+			try {
+				while (reader.hasNext()) {
+					int event = reader.next();
+
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						switch (reader.getLocalName()) {
+						case "name":
+							name = reader.getElementText();
+							break;
+						case "description":
+							description = reader.getElementText();
+							break;
+						case "price":
+							price = reader.getElementText();
+							break;
+						case "type":
+							type = reader.getElementText();
+							break;
+						case "itemId":
+							itemId = reader.getElementText();
+							break;
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("menuItem")) {
+						MenuItemModel menuItem = new MenuItemModel(name, description, Double.valueOf(price),
+								MenuItemModel.ItemType.valueOf(type));
+
+						// keep saved item IDs unless appending, where they
+						// could clash with menu items already loaded
+						if (overwrite && itemId != null) {
+							menuItem.setItemId(Long.valueOf(itemId));
+						}
+						itemId = null;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+	}
+
+	/**
+	 * Static method for streaming a list of UserModel objects to the
+	 * specified XML file.
+	 *
+	 * @param filePath
+	 *            Path of the XML file
+	 * @param userList
+	 *            ObservableList of UserModel objects to save.
+	 * @return boolean true if the file was saved
+	 */
+	public static boolean saveUsers(String filePath, ObservableList<UserModel> userList) {
+		Path tempPath = null;
+
+		try {
+			tempPath = createTempFile(filePath);
+
+			try (OutputStream out = openOutput(tempPath)) {
+				XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+
+				writer.writeStartElement("users");
+				for (UserModel user : userList) {
+					writer.writeStartElement("user");
+					writeTextElement(writer, "fullName", user.getFullName());
+					writeTextElement(writer, "username", user.getUsername());
+					writeTextElement(writer, "password", user.getPassword());
+					writeTextElement(writer, "userType", user.getType().toString());
+					writer.writeEndElement();
+				}
+				writer.writeEndElement();
+				writer.close();
+			}
+
+			replace(tempPath, filePath);
+			return true;
+		} catch (XMLStreamException e) {
+			e.printStackTrace();
+			deleteTempFile(tempPath);
+		} catch (IOException e) {
+			e.printStackTrace();
+			deleteTempFile(tempPath);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Static method for streaming a list of OrderModel objects to the
+	 * specified XML file.
+	 *
+	 * @param filePath
+	 *            Path of the XML file
+	 * @param orderList
+	 *            ObservableList of OrderModel objects to save.
+	 */
+	public static void saveOrders(String filePath, ObservableList<OrderModel> orderList) {
+		saveOrderRecords(filePath, OrderRecord.copyOf(orderList));
+	}
+
+	/**
+	 * Static method for streaming a list of OrderRecord copies of orders to
+	 * the specified XML file. Writes the same file as saveOrders and may be
+	 * called from any thread.
+	 *
+	 * @param filePath
+	 *            Path of the XML file
+	 * @param orderRecords
+	 *            List of OrderRecord objects to save.
+	 * @return boolean true if the file was saved
+	 */
+	public static boolean saveOrderRecords(String filePath, List<OrderRecord> orderRecords) {
+		Path tempPath = null;
+
+		try {
+			tempPath = createTempFile(filePath);
+
+			try (OutputStream out = openOutput(tempPath)) {
+				XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+
+				writer.writeStartElement("orders");
+				for (OrderRecord order : orderRecords) {
+					writer.writeStartElement("order");
+					writeTextElement(writer, "tableNumber", Integer.toString(order.getTableNumber()));
+					writeTextElement(writer, "creatingUser", order.getCreatingUser());
+					writeTextElement(writer, "status", order.getStatus().toString());
+					writeTextElement(writer, "dateOpened", order.getDateOpened());
+					writeTextElement(writer, "dateClosed", order.getDateClosed());
+					writeTextElement(writer, "totalCost", Double.toString(order.getTotalCost()));
+					writeTextElement(writer, "comments", order.getComments());
+					writeTextElement(writer, "orderId", Long.toString(order.getOrderId()));
+
+					// write the lines within the order using the name. Name
+					// field is assumed unique
+					for (OrderRecord.Line line : order.getLines()) {
+						writer.writeStartElement("menuItem");
+						writeTextElement(writer, "name", line.getName());
+						writeTextElement(writer, "itemId", Long.toString(line.getItemId()));
+						writeTextElement(writer, "quantity", Integer.toString(line.getQuantity()));
+						writeTextElement(writer, "unitPrice", Double.toString(line.getUnitPricePence() / 100.0));
+						writer.writeEndElement();
+					}
+					writer.writeEndElement();
+				}
+				writer.writeEndElement();
+				writer.close();
+			}
+
+			replace(tempPath, filePath);
+			return true;
+		} catch (XMLStreamException e) {
+			e.printStackTrace();
+			deleteTempFile(tempPath);
+		} catch (IOException e) {
+			e.printStackTrace();
+			deleteTempFile(tempPath);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Static method for streaming a list of MenuItemModel objects to the
+	 * specified XML file.
+	 *
+	 * @param filePath
+	 *            Path of the XML file
+	 * @param menuItemList
+	 *            ObservableList of MenuItemModel objects to save.
+	 * @return boolean true if the file was saved
+	 */
+	public static boolean saveMenuItems(String filePath, ObservableList<MenuItemModel> menuItemList) {
+		Path tempPath = null;
+
+		try {
+			tempPath = createTempFile(filePath);
+
+			try (OutputStream out = openOutput(tempPath)) {
+				XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+
+				writer.writeStartElement("menuItems");
+				for (MenuItemModel menuItem : menuItemList) {
+					writer.writeStartElement("menuItem");
+					writeTextElement(writer, "name", menuItem.getName());
+					writeTextElement(writer, "description", menuItem.getDescription());
+					writeTextElement(writer, "price", Double.toString(menuItem.getPrice()));
+					writeTextElement(writer, "type", menuItem.getType().toString());
+					writeTextElement(writer, "itemId", Long.toString(menuItem.getItemId()));
+					writer.writeEndElement();
+				}
+				writer.writeEndElement();
+				writer.close();
+			}
+
+			replace(tempPath, filePath);
+			return true;
+		} catch (XMLStreamException e) {
+			e.printStackTrace();
+			deleteTempFile(tempPath);
+		} catch (IOException e) {
+			e.printStackTrace();
+			deleteTempFile(tempPath);
+		}
+
+		return false;
+	}
+
+	/*
+	 * Creates the shared input factory. Text is coalesced so getElementText
+	 * returns whole values and DTDs and external entities are refused.
+	 */
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		return factory;
+	}
+
+	/*
+	 * Writes an element containing only text, or an empty element if there
+	 * is no text, as the DOM Transformer does.
+	 */
+	private static void writeTextElement(XMLStreamWriter writer, String name, String text)
+			throws XMLStreamException {
+		if (text == null || text.isEmpty()) {
+			writer.writeEmptyElement(name);
+			return;
+		}
+
+		writer.writeStartElement(name);
+
+		// characters the DOM Transformer writes as numeric references are
+		// written as entity references, the rest as escaped text
+		int runStart = 0;
+		int i = 0;
+		while (i < text.length()) {
+			int codePoint = text.codePointAt(i);
+			int next = i + Character.charCount(codePoint);
+
+			if (codePoint == '\r' || (codePoint < 0x20 && codePoint != '\t' && codePoint != '\n')
+					|| (codePoint >= 0x7F && codePoint <= 0x9F) || codePoint > 0xFFFF) {
+				if (runStart < i) {
+					writer.writeCharacters(text.substring(runStart, i));
+				}
+				writer.writeEntityRef("#" + codePoint);
+				runStart = next;
+			}
+			i = next;
+		}
+		if (runStart < text.length()) {
+			writer.writeCharacters(text.substring(runStart));
+		}
+
+		writer.writeEndElement();
+	}
+
+	/*
+	 * Creates an empty temporary file next to the target so that it can be
+	 * renamed over the target atomically. Temporary files are only readable
+	 * by their owner, so the permissions of an existing target are copied.
+	 */
+	static Path createTempFile(String filePath) throws IOException {
+		Path target = Paths.get(filePath).toAbsolutePath();
+		Path tempPath = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+
+		try {
+			Set<PosixFilePermission> permissions = Files.exists(target) ? Files.getPosixFilePermissions(target)
+					: PosixFilePermissions.fromString("rw-r--r--");
+			Files.setPosixFilePermissions(tempPath, permissions);
+		} catch (UnsupportedOperationException e) {
+			// not a POSIX file system
+		}
+
+		return tempPath;
+	}
+
+	/*
+	 * Opens a buffered stream over a channel on the temporary file and writes
+	 * the XML declaration. Closing the stream forces the file to disk.
+	 */
+	private static OutputStream openOutput(Path tempPath) throws IOException {
+		final FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE) {
+			@Override
+			public void close() throws IOException {
+				try {
+					flush();
+					channel.force(true);
+				} finally {
+					super.close();
+				}
+			}
+		};
+		out.write(XML_DECLARATION);
+		return out;
+	}
+
+	/*
+	 * Atomically replaces the target file with the completed temporary file.
+	 */
+	static void replace(Path tempPath, String filePath) throws IOException {
+		Path target = Paths.get(filePath).toAbsolutePath();
+		try {
+			Files.move(tempPath, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempPath, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/*
+	 * Deletes a temporary file left by a failed save.
+	 */
+	static void deleteTempFile(Path tempPath) {
+		if (tempPath == null) {
+			return;
+		}
+		try {
+			Files.deleteIfExists(tempPath);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
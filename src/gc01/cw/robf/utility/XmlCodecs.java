@@ -0,0 +1,100 @@
+package gc01.cw.robf.utility;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+/**
+ * Utility class which hands out the DOM parsers and transformers used by
+ * FileXmlHandler and XmlCustomLogger. The factories are looked up and
+ * configured once, and each thread keeps one DocumentBuilder and one
+ * Transformer which are reset and reused on every call, rather than looking
+ * up a factory and creating a new parser for every file read or written.
+ * <p>
+ * Parsers refuse DTDs and external entities, as the StaxXmlHandler input
+ * factory does. The files OrdoGrub writes never contain them.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class XmlCodecs {
+
+	private static final DocumentBuilderFactory documentBuilderFactory = createDocumentBuilderFactory();
+	private static final TransformerFactory transformerFactory = createTransformerFactory();
+
+	// DocumentBuilder and Transformer objects are not thread safe, so each
+	// thread has its own
+	private static final ThreadLocal<DocumentBuilder> documentBuilders = new ThreadLocal<>();
+	private static final ThreadLocal<Transformer> transformers = new ThreadLocal<>();
+
+	/**
+	 * Static method returning the DocumentBuilder of the calling thread,
+	 * reset ready to parse or create a new document. Documents already
+	 * returned by it are not affected.
+	 *
+	 * @return DocumentBuilder for use on the calling thread only
+	 * @throws ParserConfigurationException
+	 *             if a DocumentBuilder can not be created
+	 */
+	public static DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+		DocumentBuilder documentBuilder = documentBuilders.get();
+		if (documentBuilder == null) {
+			// factories are not guaranteed to be thread safe
+			synchronized (documentBuilderFactory) {
+				documentBuilder = documentBuilderFactory.newDocumentBuilder();
+			}
+			documentBuilders.set(documentBuilder);
+		} else {
+			documentBuilder.reset();
+		}
+		return documentBuilder;
+	}
+
+	/**
+	 * Static method returning the Transformer of the calling thread, reset to
+	 * copy a document to a file with default output properties.
+	 *
+	 * @return Transformer for use on the calling thread only
+	 * @throws TransformerConfigurationException
+	 *             if a Transformer can not be created
+	 */
+	public static Transformer newTransformer() throws TransformerConfigurationException {
+		Transformer transformer = transformers.get();
+		if (transformer == null) {
+			synchronized (transformerFactory) {
+				transformer = transformerFactory.newTransformer();
+			}
+			transformers.set(transformer);
+		} else {
+			transformer.reset();
+		}
+		return transformer;
+	}
+
+	private static DocumentBuilderFactory createDocumentBuilderFactory() {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setExpandEntityReferences(false);
+		try {
+			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+		} catch (ParserConfigurationException e) {
+			e.printStackTrace();
+		}
+		return factory;
+	}
+
+	private static TransformerFactory createTransformerFactory() {
+		TransformerFactory factory = TransformerFactory.newInstance();
+		try {
+			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+		} catch (TransformerConfigurationException e) {
+			e.printStackTrace();
+		}
+		return factory;
+	}
+}
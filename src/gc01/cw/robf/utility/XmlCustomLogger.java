@@ -4,12 +4,10 @@ import java.io.File;
 import java.io.IOException;
 
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 
@@ -48,8 +46,7 @@ public class XmlCustomLogger {
 	 */
 	public static void writeLogLine(String filePath, LogModel logObject) {
 		try {
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
+			DocumentBuilder dBuilder = XmlCodecs.newDocumentBuilder();
 			Document doc;
 			Element rootElement;
 
@@ -83,8 +80,7 @@ public class XmlCustomLogger {
 			logLineElement.appendChild(message);
 
 			// save the content into xml file
-			TransformerFactory transformerFactory = TransformerFactory.newInstance();
-			Transformer transformer = transformerFactory.newTransformer();
+			Transformer transformer = XmlCodecs.newTransformer();
 			DOMSource source = new DOMSource(doc);
 			StreamResult result = new StreamResult(new File(filePath));
 			transformer.transform(source, result);
@@ -118,10 +114,9 @@ public class XmlCustomLogger {
 
 		try {
 			File inputFile = new File(filePath);
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
 			DocumentBuilder dBuilder;
 
-			dBuilder = dbFactory.newDocumentBuilder();
+			dBuilder = XmlCodecs.newDocumentBuilder();
 
 			Document doc = dBuilder.parse(inputFile);
 			doc.getDocumentElement().normalize();
@@ -155,4 +150,54 @@ public class XmlCustomLogger {
 
 		return logLines;
 	}
+
+	/**
+	 * Static method to retrieve every LogModel object from a specified file,
+	 * in the order they were written. Used to convert existing XML logs to
+	 * other formats. A missing or empty file returns an empty list.
+	 *
+	 * @param filePath
+	 *            Path of the XML file
+	 * @return ObservableList of all LogModel objects in the file
+	 */
+	public static ObservableList<LogModel> readLogLines(String filePath) {
+		ObservableList<LogModel> logLines = FXCollections.observableArrayList();
+
+		File inputFile = new File(filePath);
+		if (!inputFile.exists() || inputFile.length() == 0) {
+			return logLines;
+		}
+
+		try {
+			DocumentBuilder dBuilder = XmlCodecs.newDocumentBuilder();
+			Document doc = dBuilder.parse(inputFile);
+			doc.getDocumentElement().normalize();
+
+			NodeList nList = doc.getElementsByTagName("logLine");
+
+			for (int i = 0; i < nList.getLength(); i++) {
+				Node nNode = nList.item(i);
+				if (nNode.getNodeType() == Node.ELEMENT_NODE) {
+					Element eElement = (Element) nNode;
+
+					String username = eElement.getElementsByTagName("username").item(0).getTextContent();
+					String dateTime = eElement.getElementsByTagName("dateTime").item(0).getTextContent();
+					String message = eElement.getElementsByTagName("message").item(0).getTextContent();
+
+					LogModel logObject = new LogModel(username, message);
+					logObject.setDateTime(dateTime);
+
+					logLines.add(logObject);
+				}
+			}
+		} catch (ParserConfigurationException e) {
+			e.printStackTrace();
+		} catch (SAXException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return logLines;
+	}
 }
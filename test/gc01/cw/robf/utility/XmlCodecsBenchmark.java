@@ -0,0 +1,91 @@
+package gc01.cw.robf.utility;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+
+/**
+ * Measures the time to parse and write one XML document with a parser and
+ * transformer from factories looked up on every call, as FileXmlHandler and
+ * XmlCustomLogger did before XmlCodecs, against the reused ones XmlCodecs
+ * hands out. The document is read from and written to memory, so that only
+ * the parser and transformer are measured.
+ * <p>
+ * Run from the project directory, optionally with the path of the XML file
+ * to use and the number of calls to time. Each approach is warmed up with the
+ * same number of calls first.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class XmlCodecsBenchmark {
+
+	private static final String DEFAULT_FILE = "./data/menuItems.xml";
+	private static final int DEFAULT_CALLS = 20000;
+
+	/**
+	 * Times both approaches and prints the mean time per call of each.
+	 *
+	 * @param args
+	 *            optional path of the XML file and number of calls
+	 * @throws Exception
+	 *             if the file can not be read, parsed or written
+	 */
+	public static void main(String[] args) throws Exception {
+		byte[] xml = Files.readAllBytes(Paths.get(args.length > 0 ? args[0] : DEFAULT_FILE));
+		int calls = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CALLS;
+
+		for (boolean pooled : new boolean[] { false, true }) {
+			// warm up, so that both are timed after JIT compilation
+			time(xml, calls, pooled);
+			double micros = time(xml, calls, pooled);
+			System.out.printf("%-12s %8.1f us per call%n", pooled ? "XmlCodecs" : "newInstance", micros);
+		}
+	}
+
+	/*
+	 * Returns the mean time in microseconds to parse and write the document.
+	 */
+	private static double time(byte[] xml, int calls, boolean pooled) throws Exception {
+		long written = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < calls; i++) {
+			written += pooled ? parseAndWritePooled(xml) : parseAndWriteNewInstance(xml);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		// use the output so the work can not be optimised away
+		if (written == 0) {
+			throw new IllegalStateException("Nothing written");
+		}
+		return elapsed / 1000.0 / calls;
+	}
+
+	private static int parseAndWriteNewInstance(byte[] xml) throws Exception {
+		Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(xml));
+		Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		return write(doc, transformer);
+	}
+
+	private static int parseAndWritePooled(byte[] xml) throws Exception {
+		Document doc = XmlCodecs.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+		return write(doc, XmlCodecs.newTransformer());
+	}
+
+	private static int write(Document doc, Transformer transformer) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		transformer.transform(new DOMSource(doc), new StreamResult(out));
+		return out.size();
+	}
+}
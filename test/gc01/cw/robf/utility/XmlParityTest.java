@@ -0,0 +1,145 @@
+package gc01.cw.robf.utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import gc01.cw.robf.model.MenuItemModel;
+import gc01.cw.robf.model.OrderLineModel;
+import gc01.cw.robf.model.OrderModel;
+import gc01.cw.robf.model.UserModel;
+
+/**
+ * Checks that the DOM loaders of FileXmlHandler and the streaming loaders of
+ * StaxXmlHandler build the same models from the shipped data files. Each file
+ * is loaded through both paths and the loaded models are compared field by
+ * field. The shipped orders file may hold no orders, so generated orders,
+ * with lines, comments and closed orders, are saved together with the menu
+ * items they refer to and compared as well.
+ * <p>
+ * Run from the project directory, so that the ./data paths resolve. Prints
+ * each difference found and exits with status 1 if there are any.
+ *
+ * @author Rob Farthing
+ * @version 1.0.0
+ *
+ */
+public class XmlParityTest {
+
+	private static final String MENU_ITEM_FILE = "./data/menuItems.xml";
+	private static final String USER_FILE = "./data/users.xml";
+	private static final String ORDER_FILE = "./data/orders.xml";
+
+	/**
+	 * Loads the data files through both paths and compares the models.
+	 *
+	 * @param args
+	 *            not used
+	 */
+	public static void main(String[] args) throws IOException {
+		File generatedMenuItemFile = File.createTempFile("menuItems", ".xml");
+		File generatedOrderFile = File.createTempFile("orders", ".xml");
+		generatedMenuItemFile.deleteOnExit();
+		generatedOrderFile.deleteOnExit();
+		saveGeneratedOrders(generatedMenuItemFile.getPath(), generatedOrderFile.getPath());
+
+		List<String> domModels = new ArrayList<>();
+		List<String> staxModels = new ArrayList<>();
+		for (boolean streaming : new boolean[] { false, true }) {
+			List<String> models = streaming ? staxModels : domModels;
+			FileXmlHandler.setStreaming(streaming);
+			load(models, MENU_ITEM_FILE, USER_FILE, ORDER_FILE);
+			load(models, generatedMenuItemFile.getPath(), USER_FILE, generatedOrderFile.getPath());
+		}
+
+		int differences = 0;
+		for (int i = 0; i < Math.max(domModels.size(), staxModels.size()); i++) {
+			String domModel = i < domModels.size() ? domModels.get(i) : "(missing)";
+			String staxModel = i < staxModels.size() ? staxModels.get(i) : "(missing)";
+			if (!domModel.equals(staxModel)) {
+				System.err.println("DOM:  " + domModel);
+				System.err.println("StAX: " + staxModel);
+				differences++;
+			}
+		}
+
+		if (differences > 0 || domModels.isEmpty()) {
+			System.err.println("FAILED: " + differences + " of " + domModels.size() + " models differ");
+			System.exit(1);
+		}
+		System.out.println("OK: " + domModels.size() + " models match");
+	}
+
+	/*
+	 * Saves the shipped menu items, which then have item IDs, and orders of
+	 * them with the DOM savers: one order per table, each with a line per
+	 * menu item up to the table number, every other order closed.
+	 */
+	private static void saveGeneratedOrders(String menuItemFilePath, String orderFilePath) {
+		FileXmlHandler.setStreaming(false);
+		FileXmlHandler.loadMenuItems(MENU_ITEM_FILE, true);
+		OrderModel.getOrderList().clear();
+
+		List<MenuItemModel> menu = MenuItemModel.getMenu();
+		for (int table = 1; table <= 10; table++) {
+			OrderModel order = new OrderModel(table, "user" + table);
+			for (int i = 0; i < Math.min(table, menu.size()); i++) {
+				order.addItem(menu.get(i), i + 1, menu.get(i).getPricePence());
+			}
+			order.setComments("Table " + table + " <no nuts> & \"sauce on the side\"");
+			if (table % 2 == 0) {
+				order.setStatus(OrderModel.OrderStatus.CLOSED);
+			}
+		}
+
+		FileXmlHandler.saveMenuItems(menuItemFilePath, MenuItemModel.getMenu());
+		FileXmlHandler.saveOrders(orderFilePath, OrderModel.getOrderList());
+		OrderModel.getOrderList().clear();
+	}
+
+	/*
+	 * Loads menu items, users and orders with the current loaders and adds
+	 * the fields of each loaded model to a list, one string per model.
+	 */
+	private static void load(List<String> models, String menuItemFilePath, String userFilePath,
+			String orderFilePath) {
+		// orders look up the menu items loaded before them
+		FileXmlHandler.loadMenuItems(menuItemFilePath, true);
+		FileXmlHandler.loadUsers(userFilePath, true);
+		FileXmlHandler.loadOrders(orderFilePath, true);
+
+		// item IDs missing from a file are assigned from a counter which
+		// carries on between loads, so IDs are compared to the first item's
+		List<MenuItemModel> menu = MenuItemModel.getMenu();
+		long firstItemId = menu.isEmpty() ? 0 : menu.get(0).getItemId();
+
+		for (MenuItemModel menuItem : menu) {
+			models.add(fields("menuItem", menuItem.getItemId() - firstItemId, menuItem.getName(),
+					menuItem.getDescription(), menuItem.getPricePence(), menuItem.getType()));
+		}
+		for (UserModel user : UserModel.getUserList()) {
+			models.add(fields("user", user.getFullName(), user.getUsername(), user.getPassword(), user.getType()));
+		}
+		for (OrderModel order : OrderModel.getOrderList()) {
+			models.add(fields("order", order.getOrderId(), order.getTableNumber(), order.getCreatingUser(),
+					order.getStatus(), order.getOpenedMillis(), order.getClosedMillis(), order.getTotalPence(),
+					order.getComments()));
+			for (OrderLineModel line : order.getLines()) {
+				models.add(fields("line", order.getOrderId(), line.getMenuItem().getItemId() - firstItemId,
+						line.getName(), line.getQuantity(), line.getUnitPricePence()));
+			}
+		}
+	}
+
+	private static String fields(Object... values) {
+		StringBuilder fields = new StringBuilder();
+		for (Object value : values) {
+			if (fields.length() > 0) {
+				fields.append(" | ");
+			}
+			fields.append(value);
+		}
+		return fields.toString();
+	}
+}